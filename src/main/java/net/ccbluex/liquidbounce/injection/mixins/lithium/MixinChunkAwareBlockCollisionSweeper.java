@@ -38,7 +38,12 @@ public class MixinChunkAwareBlockCollisionSweeper {
             return original;
         }
 
-        final BlockShapeEvent shapeEvent = EventManager.INSTANCE.callEvent(new BlockShapeEvent(blockState, this.pos, original));
+        final var firstHook = EventManager.INSTANCE.firstRunningHook(BlockShapeEvent.class);
+        if (firstHook == null) {
+            return original;
+        }
+
+        final BlockShapeEvent shapeEvent = EventManager.INSTANCE.callEvent(new BlockShapeEvent(blockState, this.pos, original), firstHook);
         return shapeEvent.getShape();
     }
 
@@ -49,7 +49,12 @@ public class MixinBlock {
      */
     @ModifyReturnValue(method = "getVelocityMultiplier", at = @At("RETURN"))
     private float hookVelocityMultiplier(float original) {
-        final var multiplierEvent = EventManager.INSTANCE.callEvent(new BlockVelocityMultiplierEvent((Block) (Object) this, original));
+        final var firstHook = EventManager.INSTANCE.firstRunningHook(BlockVelocityMultiplierEvent.class);
+        if (firstHook == null) {
+            return original;
+        }
+
+        final var multiplierEvent = EventManager.INSTANCE.callEvent(new BlockVelocityMultiplierEvent((Block) (Object) this, original), firstHook);
         return multiplierEvent.getMultiplier();
     }
 
@@ -60,7 +65,12 @@ public class MixinBlock {
      */
     @ModifyReturnValue(method = "getSlipperiness", at = @At("RETURN"))
     private float hookSlipperinessMultiplier(float original) {
-        final var slipperinessEvent = EventManager.INSTANCE.callEvent(new BlockSlipperinessMultiplierEvent((Block) (Object) this, original));
+        final var firstHook = EventManager.INSTANCE.firstRunningHook(BlockSlipperinessMultiplierEvent.class);
+        if (firstHook == null) {
+            return original;
+        }
+
+        final var slipperinessEvent = EventManager.INSTANCE.callEvent(new BlockSlipperinessMultiplierEvent((Block) (Object) this, original), firstHook);
         return slipperinessEvent.getSlipperiness();
     }
 }
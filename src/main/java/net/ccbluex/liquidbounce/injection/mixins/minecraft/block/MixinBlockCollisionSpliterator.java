@@ -54,7 +54,12 @@ public class MixinBlockCollisionSpliterator {
             return original;
         }
 
-        final BlockShapeEvent shapeEvent = EventManager.INSTANCE.callEvent(new BlockShapeEvent(blockState, this.pos, original));
+        final var firstHook = EventManager.INSTANCE.firstRunningHook(BlockShapeEvent.class);
+        if (firstHook == null) {
+            return original;
+        }
+
+        final BlockShapeEvent shapeEvent = EventManager.INSTANCE.callEvent(new BlockShapeEvent(blockState, this.pos, original), firstHook);
         return shapeEvent.getShape();
     }
 
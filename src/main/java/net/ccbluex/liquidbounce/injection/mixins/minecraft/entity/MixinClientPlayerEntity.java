@@ -36,7 +36,7 @@ import net.ccbluex.liquidbounce.features.module.modules.render.ModuleNoSwing;
 import net.ccbluex.liquidbounce.integration.BrowserScreen;
 import net.ccbluex.liquidbounce.integration.VirtualDisplayScreen;
 import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerData;
-import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerInventoryData;
+import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerInventoryTracker;
 import net.ccbluex.liquidbounce.interfaces.ClientPlayerEntityAddition;
 import net.ccbluex.liquidbounce.utils.aiming.RotationManager;
 import net.ccbluex.liquidbounce.utils.aiming.data.Rotation;
@@ -74,7 +74,7 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
     private PlayerData lastKnownStatistics = null;
 
     @Unique
-    private PlayerInventoryData lastKnownInventory = null;
+    private final PlayerInventoryTracker inventoryTracker = new PlayerInventoryTracker();
 
     @Unique
     private PlayerNetworkMovementTickEvent eventMotion;
@@ -93,8 +93,13 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
             ordinal = 0),
             cancellable = true)
     private void hookTickEvent(CallbackInfo ci) {
+        var firstHook = EventManager.INSTANCE.firstRunningHook(PlayerTickEvent.class);
+        if (firstHook == null) {
+            return;
+        }
+
         var tickEvent = new PlayerTickEvent();
-        EventManager.INSTANCE.callEvent(tickEvent);
+        EventManager.INSTANCE.callEvent(tickEvent, firstHook);
 
         if (tickEvent.isCancelled()) {
             ci.cancel();
@@ -115,12 +120,11 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
         }
         this.lastKnownStatistics = statistics;
 
-        // Call player inventory event when inventory changes
-        var playerInventory = PlayerInventoryData.Companion.fromPlayer((ClientPlayerEntity) (Object) this);
-        if (lastKnownInventory == null || !lastKnownInventory.equals(playerInventory)) {
+        // Call player inventory event when a slot changes
+        var playerInventory = inventoryTracker.update((ClientPlayerEntity) (Object) this);
+        if (playerInventory != null) {
             EventManager.INSTANCE.callEvent(ClientPlayerInventoryEvent.Companion.fromPlayerInventory(playerInventory));
         }
-        this.lastKnownInventory = playerInventory;
     }
 
     /**
@@ -196,7 +200,12 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
      */
     @ModifyVariable(method = "move", at = @At("HEAD"), name = "arg2", ordinal = 0, index = 2, argsOnly = true)
     private Vec3d hookMove(Vec3d movement, MovementType type) {
-        return EventManager.INSTANCE.callEvent(new PlayerMoveEvent(type, movement)).getMovement();
+        var firstHook = EventManager.INSTANCE.firstRunningHook(PlayerMoveEvent.class);
+        if (firstHook == null) {
+            return movement;
+        }
+
+        return EventManager.INSTANCE.callEvent(new PlayerMoveEvent(type, movement), firstHook).getMovement();
     }
 
     /**
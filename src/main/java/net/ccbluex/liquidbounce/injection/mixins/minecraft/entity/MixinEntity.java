@@ -85,8 +85,13 @@ public abstract class MixinEntity {
      */
     @Inject(method = "getTargetingMargin", at = @At("RETURN"), cancellable = true)
     private void hookMargin(CallbackInfoReturnable<Float> callback) {
+        var firstHook = EventManager.INSTANCE.firstRunningHook(EntityMarginEvent.class);
+        if (firstHook == null) {
+            return;
+        }
+
         EntityMarginEvent marginEvent = new EntityMarginEvent((Entity) (Object) this, callback.getReturnValue());
-        EventManager.INSTANCE.callEvent(marginEvent);
+        EventManager.INSTANCE.callEvent(marginEvent, firstHook);
         callback.setReturnValue(marginEvent.getMargin());
     }
 
@@ -166,8 +171,13 @@ public abstract class MixinEntity {
 
     @Inject(method = "updateMovementInFluid", at = @At("HEAD"), cancellable = true)
     private void hookFluidMovement(TagKey<Fluid> tag, double speed, CallbackInfoReturnable<Boolean> cir) {
-        if ((Object) this == MinecraftClient.getInstance().player) {
-            var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(tag));
+        if ((Object) this != MinecraftClient.getInstance().player) {
+            return;
+        }
+
+        var firstHook = EventManager.INSTANCE.firstRunningHook(PlayerFluidCollisionCheckEvent.class);
+        if (firstHook != null) {
+            var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(tag), firstHook);
 
             if (event.isCancelled()) {
                 cir.setReturnValue(false);
@@ -177,8 +187,13 @@ public abstract class MixinEntity {
 
     @Inject(method = "isSubmergedIn", at = @At("HEAD"), cancellable = true)
     private void hookIsSubmergedIn(TagKey<Fluid> fluidTag, CallbackInfoReturnable<Boolean> cir) {
-        if ((Object) this == MinecraftClient.getInstance().player) {
-            var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(fluidTag));
+        if ((Object) this != MinecraftClient.getInstance().player) {
+            return;
+        }
+
+        var firstHook = EventManager.INSTANCE.firstRunningHook(PlayerFluidCollisionCheckEvent.class);
+        if (firstHook != null) {
+            var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(fluidTag), firstHook);
 
             if (event.isCancelled()) {
                 cir.setReturnValue(false);
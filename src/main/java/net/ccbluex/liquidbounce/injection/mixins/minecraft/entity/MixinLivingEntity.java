@@ -336,12 +336,17 @@ public abstract class MixinLivingEntity extends MixinEntity {
 
     @Inject(method = "setHealth", at = @At("HEAD"))
     private void hookSetHealth(float health, CallbackInfo callbackInfo) {
+        var firstHook = EventManager.INSTANCE.firstRunningHook(EntityHealthUpdateEvent.class);
+        if (firstHook == null) {
+            return;
+        }
+
         var oldHealth = this.getHealth();
         var maxHealth = this.getMaxHealth();
         var newHealth = MathHelper.clamp(health, 0.0F, maxHealth);
 
         if (oldHealth != newHealth) {
-            EventManager.INSTANCE.callEvent(new EntityHealthUpdateEvent((LivingEntity) (Object) this, oldHealth, newHealth, maxHealth));
+            EventManager.INSTANCE.callEvent(new EntityHealthUpdateEvent((LivingEntity) (Object) this, oldHealth, newHealth, maxHealth), firstHook);
         }
     }
 }
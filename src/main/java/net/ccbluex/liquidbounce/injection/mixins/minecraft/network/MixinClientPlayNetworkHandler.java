@@ -42,6 +42,7 @@ import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.network.ClientConnection;
 import net.minecraft.network.NetworkThreadUtils;
+import net.minecraft.network.packet.s2c.common.SynchronizeTagsS2CPacket;
 import net.minecraft.network.packet.s2c.play.*;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.MathHelper;
@@ -79,6 +80,11 @@ public abstract class MixinClientPlayNetworkHandler extends ClientCommonNetworkH
         ChunkUpdateFlag.chunkUpdate = true;
     }
 
+    @Inject(method = "onSynchronizeTags", at = @At("RETURN"))
+    private void injectTagsSynchronizeEvent(SynchronizeTagsS2CPacket packet, CallbackInfo ci) {
+        EventManager.INSTANCE.callEvent(new TagsSynchronizeEvent());
+    }
+
     @Inject(method = "onEntityPosition", at = @At("RETURN"))
     private void hookOnEntityPosition(EntityPositionS2CPacket packet, CallbackInfo ci) {
         EntityMoveTrigger.INSTANCE.notify(packet);
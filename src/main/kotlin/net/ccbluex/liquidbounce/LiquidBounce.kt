@@ -61,6 +61,7 @@ import net.ccbluex.liquidbounce.lang.LanguageManager
 import net.ccbluex.liquidbounce.render.FontManager
 import net.ccbluex.liquidbounce.render.HAS_AMD_VEGA_APU
 import net.ccbluex.liquidbounce.render.ui.ItemImageAtlas
+import net.ccbluex.liquidbounce.script.PolyglotScript
 import net.ccbluex.liquidbounce.script.ScriptManager
 import net.ccbluex.liquidbounce.utils.aiming.PostRotationExecutor
 import net.ccbluex.liquidbounce.utils.aiming.RotationManager
@@ -78,6 +79,7 @@ import net.minecraft.resource.ReloadableResourceManagerImpl
 import net.minecraft.resource.ResourceManager
 import net.minecraft.resource.ResourceReloader
 import net.minecraft.resource.SynchronousResourceReloader
+import java.io.File
 import kotlin.time.measureTime
 
 /**
@@ -148,9 +150,9 @@ object LiquidBounce : EventListener {
      *
      * The thread should be the main render thread.
      */
-    private fun initializeClient() {
+    private fun initializeClient() = StartupTrace.span("Initialize client") {
         if (isInitialized) {
-            return
+            return@span
         }
 
         // Ensure we are on the render thread
@@ -158,10 +160,15 @@ object LiquidBounce : EventListener {
 
         // Initialize managers and features
         Client
-        initializeManagers()
+        StartupTrace.span("Initialize managers", block = ::initializeManagers)
+        // Independent of everything but the managers, these run in the background
+        val fontLoading = loadFontFaces()
         initializeFeatures()
-        initializeResources()
-        prepareGuiStage()
+        val resourceLoading = initializeResources()
+        // Preload marketplace items, the subscribed scripts are evaluated along with the local ones
+        ConfigSystem.load(MarketplaceManager)
+        val scriptLoading = loadScripts()
+        StartupTrace.span("Prepare GUI stage") { prepareGuiStage(fontLoading) }
 
         // Register shutdown hook in case [ClientShutdownEvent] is not called
         Runtime.getRuntime().addShutdownHook(Thread(::shutdownClient))
@@ -175,18 +182,27 @@ object LiquidBounce : EventListener {
 
         // Do backup before loading configs
         if (!ConfigSystem.isFirstLaunch && !Client.jsonFile.exists()) {
-            runCatching {
-                ConfigSystem.backup("automatic_${Client.version.inner}")
-            }.onFailure {
-                logger.error("Unable to create backup", it)
+            StartupTrace.span("Backup") {
+                runCatching {
+                    ConfigSystem.backup("automatic_${Client.version.inner}")
+                }.onFailure {
+                    logger.error("Unable to create backup", it)
+                }
             }
         }
 
+        // Scripts have been evaluated in the meantime, their modules have to be registered before loading configs
+        StartupTrace.span("Register scripts") { registerScripts(scriptLoading) }
+
+        // The resources may store configs themselves (e.g. a renewed account), so let them finish first
+        StartupTrace.span("Await resources") { runBlocking { resourceLoading.join() } }
+
         // Load all configurations
-        ConfigSystem.loadAll()
+        StartupTrace.span("Load configs", block = ConfigSystem::loadAll)
 
         isInitialized = true
-        logger.info("Client has been successfully initialized.")
+        logger.info("Client has been successfully initialized " +
+            "(${StartupTrace.elapsedNanos() / 1_000_000} ms since start).")
     }
 
     /**
@@ -234,15 +250,40 @@ object LiquidBounce : EventListener {
     }
 
     /**
-     * Initializes in-built and script features.
+     * Initializes in-built features.
      */
     private fun initializeFeatures() {
         // Register commands and modules
-        CommandManager.registerInbuilt()
-        ModuleManager.registerInbuilt()
+        StartupTrace.span("Register commands", block = CommandManager::registerInbuilt)
+        StartupTrace.span("Register modules", block = ModuleManager::registerInbuilt)
+    }
+
+    /**
+     * Finds the user scripts on the render thread and starts evaluating them in the background.
+     */
+    private fun loadScripts(): Deferred<List<PolyglotScript>> {
+        val scriptFiles = ScriptManager.findScriptFiles()
 
-        // Load user scripts
-        runCatching(ScriptManager::loadAll).onFailure { error ->
+        return ioScope.async(CoroutineName("Script Loader")) {
+            StartupTrace.span("Evaluate scripts") { ScriptManager.evaluateAll(scriptFiles) }
+        }
+    }
+
+    /**
+     * Rasterizes the metrics of the default font faces in the background,
+     * the glyph manager has to wait for them in [prepareGuiStage].
+     */
+    private fun loadFontFaces() = ioScope.launch(Dispatchers.Default + CoroutineName("Font Loader")) {
+        StartupTrace.span("Load font faces") { FontManager }
+    }
+
+    /**
+     * Waits for the user scripts to be evaluated and registers their features on the render thread.
+     */
+    private fun registerScripts(scriptLoading: Deferred<List<PolyglotScript>>) {
+        runCatching {
+            ScriptManager.register(runBlocking { scriptLoading.await() })
+        }.onFailure { error ->
             logger.error("ScriptManager was unable to load scripts.", error)
         }
     }
@@ -252,15 +293,15 @@ object LiquidBounce : EventListener {
      * such as translations, cosmetics, player heads, configs and so on,
      * which do not rely on the main thread.
      */
-    private fun initializeResources() = runBlocking(Dispatchers.IO + CoroutineName("Resource Initializer")) {
+    private fun initializeResources() = ioScope.launch(CoroutineName("Resource Initializer")) {
         logger.info("Initializing API...")
         // Lookup API config
-        ApiConfig.config
+        StartupTrace.span("Lookup API config") { ApiConfig.config }
 
         supervisorScope {
             launch {
                 // Load translations
-                LanguageManager.loadDefault()
+                StartupTrace.span("Load translations") { LanguageManager.loadDefault() }
             }
             launch {
                 val update = update ?: return@launch
@@ -278,7 +319,7 @@ object LiquidBounce : EventListener {
             }
             launch {
                 // Load configs
-                AutoConfig.reloadConfigs()
+                StartupTrace.span("Load auto configs") { AutoConfig.reloadConfigs() }
             }
             launch {
                 IpInfoApi.original
@@ -305,13 +346,11 @@ object LiquidBounce : EventListener {
      * Prepares the GUI stage of the client.
      * This will load [ThemeManager], as well as the [BrowserBackendManager] and [ClientInteropServer].
      */
-    private fun prepareGuiStage() = runBlocking(CoroutineName("GUI Initializer")) {
-        BrowserBackendManager.init()
-        ClientInteropServer.start()
+    private fun prepareGuiStage(fontLoading: Job) = runBlocking(CoroutineName("GUI Initializer")) {
+        StartupTrace.span("Initialize browser backend") { BrowserBackendManager.init() }
+        StartupTrace.span("Start interop server") { ClientInteropServer.start() }
         ThemeManager.init()
-        // Preload marketplace items
-        ConfigSystem.load(MarketplaceManager)
-        ThemeManager.load()
+        StartupTrace.span("Load theme") { ThemeManager.load() }
         IntegrationListener
 
         taskManager = TaskManager(ioScope).apply {
@@ -347,7 +386,8 @@ object LiquidBounce : EventListener {
 
         // Prepare glyph manager
         val duration = measureTime {
-            FontManager.createGlyphManager()
+            fontLoading.join()
+            StartupTrace.span("Create glyph manager") { FontManager.createGlyphManager() }
         }
         logger.info("Completed loading fonts in ${duration.inWholeMilliseconds} ms.")
         logger.info("Fonts: [ ${FontManager.fontFaces.keys.joinToString()} ]")
@@ -379,6 +419,9 @@ object LiquidBounce : EventListener {
      */
     @Suppress("unused")
     private val startHandler = handler<ClientStartEvent> {
+        // Startup spans are relative to this point
+        StartupTrace
+
         runCatching {
             logger.info("Launching $CLIENT_NAME v$clientVersion by $CLIENT_AUTHOR")
             // Print client information
@@ -431,6 +474,7 @@ object LiquidBounce : EventListener {
         override fun reload(manager: ResourceManager) {
             runCatching(::initializeClient).onSuccess {
                 logger.info("$CLIENT_NAME has been successfully initialized.")
+                StartupTrace.finish(File(ConfigSystem.rootFolder, "startup_trace.json"))
             }.onFailure {
                 ErrorHandler.fatal(it, additionalMessage = "Client resource reloader")
             }
@@ -142,6 +142,66 @@ object HttpClient {
         progressListener: OkHttpProgressInterceptor.ProgressListener? = null
     ) = request(url, HttpMethod.GET, agent, progressListener = progressListener).toFile(file)
 
+    /**
+     * Downloads [url] to [file], continuing where a previous download to the same [file] stopped.
+     *
+     * The missing bytes are requested through the `Range` header. If the server ignores it,
+     * the file is downloaded again from the start. The progress includes the bytes which were already present.
+     *
+     * @throws IOException if the [file] does not have the length announced by the server afterward
+     */
+    suspend fun downloadResumable(
+        url: String,
+        file: File,
+        agent: String = DEFAULT_AGENT,
+        progressListener: OkHttpProgressInterceptor.ProgressListener? = null
+    ) {
+        val offset = if (file.isFile) file.length() else 0L
+
+        val listener = if (progressListener != null && offset > 0) {
+            OkHttpProgressInterceptor.ProgressListener { bytesRead, contentLength, done ->
+                progressListener.update(offset + bytesRead, offset + contentLength, done)
+            }
+        } else {
+            progressListener
+        }
+
+        val response = try {
+            request(url, HttpMethod.GET, agent, headers = {
+                if (offset > 0) {
+                    add("Range", "bytes=$offset-")
+                }
+            }, progressListener = listener)
+        } catch (e: HttpException) {
+            // Nothing is missing
+            if (offset > 0 && e.code == RANGE_NOT_SATISFIABLE) {
+                return
+            }
+
+            throw e
+        }
+
+        response.use {
+            val append = offset > 0 && response.code == PARTIAL_CONTENT
+            val expectedLength = if (append) {
+                // Content-Range: bytes <first>-<last>/<complete length>
+                response.header("Content-Range")?.substringAfterLast('/')?.toLongOrNull() ?: -1L
+            } else {
+                response.body.contentLength()
+            }
+
+            file.sink(append).use(response.body.source()::readAll)
+
+            // The partial file is kept, so the next attempt continues where this one stopped
+            if (expectedLength >= 0 && file.length() != expectedLength) {
+                throw IOException("Downloaded ${file.length()} of $expectedLength bytes of $url")
+            }
+        }
+    }
+
+    private const val PARTIAL_CONTENT = 206
+    private const val RANGE_NOT_SATISFIABLE = 416
+
     // For Java and JS
     @JvmStatic
     fun Call.sendAsync(): CompletableFuture<Response> {
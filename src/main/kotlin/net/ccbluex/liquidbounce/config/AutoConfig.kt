@@ -31,6 +31,7 @@ import net.ccbluex.liquidbounce.authlib.utils.string
 import net.ccbluex.liquidbounce.config.ConfigSystem.deserializeConfigurable
 import net.ccbluex.liquidbounce.config.gson.publicGson
 import net.ccbluex.liquidbounce.config.gson.util.parseTree
+import net.ccbluex.liquidbounce.config.types.ValueChangeBatch
 import net.ccbluex.liquidbounce.config.types.nesting.Configurable
 import net.ccbluex.liquidbounce.event.events.NotificationEvent
 import net.ccbluex.liquidbounce.features.module.ModuleManager
@@ -124,6 +125,8 @@ object AutoConfig {
         chat(metadata = MessageMetadata(prefix = false))
         chat(regular("Auto Config").formatted(Formatting.LIGHT_PURPLE).bold(true))
 
+        val startTime = System.nanoTime()
+
         val name = jsonObject.string("name") ?: throw IllegalArgumentException("Auto Config has no name")
         when (name) {
             "autoconfig" -> {
@@ -141,6 +144,8 @@ object AutoConfig {
             else -> error("Unknown auto config type: $name")
         }
 
+        logger.info("Applied auto config in ${"%.1f".format((System.nanoTime() - startTime) / 1e6)}ms.")
+
         // Auto Config
         printOutInformation(jsonObject)
     }
@@ -313,16 +318,19 @@ object AutoConfig {
             return
         }
 
-        modules.forEach { module ->
-            val moduleConfigurable = ModuleManager.modulesConfigurable.inner.find { value ->
-                value.name == module.name
-            } as? Configurable ?: return@forEach
+        val moduleConfigurables = ModuleManager.modulesConfigurable.inner.associateBy { value -> value.name }
+        val moduleElements = jsonObject["value"].asJsonArray.associateBy { jsonElement ->
+            jsonElement.asJsonObject["name"].asString
+        }
 
-            val moduleElement = jsonObject.asJsonObject["value"].asJsonArray.find { jsonElement ->
-                jsonElement.asJsonObject["name"].asString == module.name
-            } ?: return@forEach
+        // Notify about the modules configurable once, not about each module
+        ValueChangeBatch.collect(ModuleManager.modulesConfigurable) {
+            for (module in modules) {
+                val moduleConfigurable = moduleConfigurables[module.name] as? Configurable ?: continue
+                val moduleElement = moduleElements[module.name] ?: continue
 
-            deserializeConfigurable(moduleConfigurable, moduleElement)
+                deserializeConfigurable(moduleConfigurable, moduleElement)
+            }
         }
     }
 
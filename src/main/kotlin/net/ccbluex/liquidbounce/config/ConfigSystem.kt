@@ -21,18 +21,24 @@ package net.ccbluex.liquidbounce.config
 import com.google.gson.Gson
 import com.google.gson.JsonElement
 import com.google.gson.JsonObject
+import com.google.gson.stream.JsonToken
 import net.ccbluex.liquidbounce.LiquidBounce
 import net.ccbluex.liquidbounce.config.gson.fileGson
+import net.ccbluex.liquidbounce.config.gson.util.DepthTrackingJsonReader
 import net.ccbluex.liquidbounce.config.gson.util.parseTree
 import net.ccbluex.liquidbounce.config.types.Value
+import net.ccbluex.liquidbounce.config.types.ValueChangeBatch
 import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
 import net.ccbluex.liquidbounce.config.types.nesting.Configurable
 import net.ccbluex.liquidbounce.config.types.nesting.DynamicConfigurable
+import net.ccbluex.liquidbounce.config.types.nesting.indexByName
+import net.ccbluex.liquidbounce.utils.client.StartupTrace
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.io.createZipArchive
 import net.ccbluex.liquidbounce.utils.io.extractZip
 import java.io.File
+import java.io.IOException
 import java.io.Reader
 import java.io.Writer
 
@@ -119,6 +125,9 @@ object ConfigSystem {
      * Create a ZIP file of root configurable files
      */
     fun backup(fileName: String, configurables: Collection<Configurable> = this.configurables) {
+        // Pending changes should be part of the backup
+        ConfigWriter.flush()
+
         val zipFile = File(backupFolder, "$fileName.zip")
         check(!zipFile.exists()) { "Backup file already exists" }
 
@@ -144,21 +153,27 @@ object ConfigSystem {
      */
     fun loadAll() {
         for (configurable in configurables) { // Make a new .json file to save our root configurable
-            load(configurable)
+            StartupTrace.span(configurable.loweredName, StartupTrace.CONFIG) {
+                load(configurable)
+            }
         }
     }
 
     fun load(configurable: Configurable) {
+        val startTime = System.nanoTime()
+
         configurable.jsonFile.runCatching {
             if (!exists()) {
                 // Do not try to load a non-existing file
-                return@runCatching
+                return@runCatching 0
             }
 
             logger.debug("Reading config ${configurable.loweredName}...")
-            deserializeConfigurable(configurable, bufferedReader())
-        }.onSuccess {
-            logger.info("Successfully loaded config '${configurable.loweredName}'.")
+            readConfigurable(configurable, bufferedReader())
+        }.onSuccess { changes ->
+            val millis = (System.nanoTime() - startTime) / 1e6
+            logger.info("Successfully loaded config '${configurable.loweredName}' " +
+                "($changes changed values, ${"%.1f".format(millis)}ms).")
         }.onFailure {
             logger.error("Unable to load config ${configurable.loweredName}", it)
         }
@@ -172,34 +187,27 @@ object ConfigSystem {
      * This will overwrite all existing files with the new values.
      *
      * These configurables are root configurables, which always create a new file with their name.
+     * Unlike [store], this writes synchronously, e.g. before a restore or on shutdown.
      */
     fun storeAll() {
-        configurables.forEach(::store)
+        configurables.forEach(ConfigWriter::markDirty)
+        ConfigWriter.flush()
     }
 
     /**
      * Store configurable to a file (will be created if not exists).
      *
-     * The configurable should be known to the config system.
+     * The configurable should be known to the config system. The file is written in the background,
+     * shortly after the last change, see [ConfigWriter].
      */
-    fun store(configurable: Configurable) { // Make a new .json file to save our root configurable
-        configurable.jsonFile.runCatching {
-            if (!exists()) {
-                createNewFile().let { logger.debug("Created new file (status: $it)") }
-            }
-
-            logger.debug("Writing config ${configurable.loweredName}...")
-            serializeConfigurable(configurable, bufferedWriter())
-            logger.info("Successfully saved config '${configurable.loweredName}'.")
-        }.onFailure {
-            logger.error("Unable to store config ${configurable.loweredName}", it)
-        }
+    fun store(configurable: Configurable) {
+        ConfigWriter.markDirty(configurable)
     }
 
     /**
      * Serialize a configurable to a writer, and close it
      */
-    private fun serializeConfigurable(configurable: Configurable, writer: Writer, gson: Gson = fileGson) {
+    internal fun serializeConfigurable(configurable: Configurable, writer: Writer, gson: Gson = fileGson) {
         gson.newJsonWriter(writer).use {
             gson.toJson(configurable, Configurable::class.javaObjectType, it)
         }
@@ -212,18 +220,217 @@ object ConfigSystem {
         gson.toJsonTree(configurable, Configurable::class.javaObjectType) as JsonObject
 
     /**
-     * Deserialize a configurable from a reader, and close it
+     * Deserialize a configurable from a reader, and close it.
+     *
+     * The JSON is streamed, only the contents of single values are parsed into trees.
+     * Listeners are notified once about [configurable] if anything changed, see [ValueChangeBatch].
      */
-    fun deserializeConfigurable(configurable: Configurable, reader: Reader, gson: Gson = fileGson) {
-        gson.newJsonReader(reader).use { reader ->
-            deserializeConfigurable(configurable, reader.parseTree())
+    fun deserializeConfigurable(configurable: Configurable, reader: Reader) {
+        readConfigurable(configurable, reader)
+    }
+
+    /**
+     * A value which cannot be read is skipped, the following values are still read.
+     *
+     * @return the amount of values that changed
+     */
+    private fun readConfigurable(configurable: Configurable, reader: Reader): Int {
+        return DepthTrackingJsonReader(reader).use { jsonReader ->
+            ValueChangeBatch.collect(configurable) {
+                jsonReader.beginObject()
+                readConfigurableFields(configurable, jsonReader)
+                jsonReader.endObject()
+            }
         }
     }
 
     /**
      * Deserialize a configurable from a [JsonElement]. It should be [JsonObject].
+     *
+     * Listeners are notified once about [configurable] if anything changed, see [ValueChangeBatch].
      */
     fun deserializeConfigurable(configurable: Configurable, jsonElement: JsonElement) {
+        ValueChangeBatch.collect(configurable) {
+            deserializeConfigurableTree(configurable, jsonElement)
+        }
+    }
+
+    /**
+     * Reads the fields of a configurable object, up to its end.
+     */
+    private fun readConfigurableFields(configurable: Configurable, reader: DepthTrackingJsonReader) {
+        val values = configurable.valueIndex()
+        var clearedDynamicValues = false
+
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "name" -> {
+                    val name = reader.nextString()
+
+                    // Check if the name is the same as the configurable name
+                    check(name == configurable.name || configurable.aliases.contains(name)) {
+                        "Configurable name does not match the name in the json object"
+                    }
+                }
+
+                "active" -> {
+                    if (configurable !is ChoiceConfigurable<*>) {
+                        reader.skipValue()
+                        continue
+                    }
+
+                    if (reader.peek() != JsonToken.STRING) {
+                        logger.error("Unable to deserialize active choice for ${configurable.name}")
+                        reader.skipValue()
+                        continue
+                    }
+
+                    // Set current active choice
+                    val active = reader.nextString()
+                    runCatching {
+                        configurable.setByString(active)
+                    }.onFailure {
+                        logger.error("Unable to deserialize active choice for ${configurable.name}", it)
+                    }
+                }
+
+                "choices" -> {
+                    if (configurable !is ChoiceConfigurable<*>) {
+                        reader.skipValue()
+                        continue
+                    }
+
+                    val choices = configurable.choices.indexByName()
+
+                    reader.beginObject()
+                    while (reader.hasNext()) {
+                        val choice = choices[reader.nextName()]
+                        if (choice == null) {
+                            reader.skipValue()
+                            continue
+                        }
+
+                        reader.readObjectIsolated({ "choice ${choice.name}" }) {
+                            reader.beginObject()
+                            readConfigurableFields(choice, reader)
+                            reader.endObject()
+                        }
+                    }
+                    reader.endObject()
+                }
+
+                "value" -> {
+                    reader.beginArray()
+                    while (reader.hasNext()) {
+                        // On a dynamic configurable, we first create an instance of the value and then deserialize it
+                        if (configurable is DynamicConfigurable) {
+                            if (!clearedDynamicValues) {
+                                // Clear the current values
+                                configurable.inner.clear()
+                                clearedDynamicValues = true
+                            }
+
+                            reader.readObjectIsolated({ "dynamic value of ${configurable.name}" }) {
+                                createDynamicValue(configurable, reader.parseTree().asJsonObject)
+                            }
+                        } else {
+                            reader.readObjectIsolated({ "value of ${configurable.name}" }) {
+                                readValue(values, reader)
+                            }
+                        }
+                    }
+                    reader.endArray()
+                }
+
+                else -> reader.skipValue()
+            }
+        }
+    }
+
+    /**
+     * Reads a single entry of a configurable's value array
+     */
+    private fun readValue(values: Map<String, Value<*>>, reader: DepthTrackingJsonReader) {
+        reader.beginObject()
+
+        if (!reader.hasNext()) {
+            reader.endObject()
+            return
+        }
+
+        // Files written by the client always start with the name, which lets us stream the rest
+        val firstName = reader.nextName()
+        if (firstName != "name") {
+            val jsonObject = JsonObject()
+            jsonObject.add(firstName, reader.parseTree())
+            while (reader.hasNext()) {
+                jsonObject.add(reader.nextName(), reader.parseTree())
+            }
+            reader.endObject()
+
+            val value = jsonObject["name"]?.asString?.let(values::get) ?: return
+            deserializeValue(value, jsonObject)
+            return
+        }
+
+        val value = values[reader.nextString()]
+
+        when (value) {
+            null -> {
+                while (reader.hasNext()) {
+                    reader.nextName()
+                    reader.skipValue()
+                }
+            }
+
+            // In the case of a configurable, we need to go deeper and deserialize the configurable itself
+            is Configurable -> readConfigurableFields(value, reader)
+
+            // Otherwise, we simply deserialize the value
+            else -> {
+                while (reader.hasNext()) {
+                    if (reader.nextName() != "value") {
+                        reader.skipValue()
+                        continue
+                    }
+
+                    val element = reader.parseTree()
+                    runCatching {
+                        value.deserializeFrom(fileGson, element)
+                    }.onFailure {
+                        logger.error("Unable to deserialize value ${value.name}", it)
+                    }
+                }
+            }
+        }
+
+        reader.endObject()
+    }
+
+    /**
+     * Reads an object with [block]. If it cannot be read, the error is logged and the rest of the object is skipped,
+     * so the values following it are still read, just like the tree of every value was deserialized on its own.
+     */
+    private inline fun DepthTrackingJsonReader.readObjectIsolated(description: () -> String, block: () -> Unit) {
+        if (peek() != JsonToken.BEGIN_OBJECT) {
+            logger.error("Unable to deserialize ${description()}, expected an object but was ${peek()}")
+            skipValue()
+            return
+        }
+
+        val depth = depth
+        try {
+            block()
+        } catch (e: IOException) {
+            // Malformed JSON, nothing after it can be read
+            throw e
+        } catch (e: Exception) {
+            logger.error("Unable to deserialize ${description()}", e)
+            skipTo(depth)
+        }
+    }
+
+    private fun deserializeConfigurableTree(configurable: Configurable, jsonElement: JsonElement) {
         val jsonObject = jsonElement.asJsonObject
 
         // Check if the name is the same as the configurable name
@@ -232,41 +439,46 @@ object ConfigSystem {
             "Configurable name does not match the name in the json object"
         }
 
-        val values = jsonObject.getAsJsonArray("value")
-            .map { valueElement -> valueElement.asJsonObject }
-            .associateBy { valueObj -> valueObj["name"].asString!! }
+        val valueObjects = jsonObject.getAsJsonArray("value").map { valueElement -> valueElement.asJsonObject }
 
         when (configurable) {
 
             // On a dynamic configurable, we first create an instance of the value and then deserialize it
             is DynamicConfigurable -> {
-                if (values.isNotEmpty()) {
+                if (valueObjects.isNotEmpty()) {
                     // Clear the current values
                     configurable.inner.clear()
                 }
 
-                for ((name, value) in values) {
-                    val valueInstance = configurable.factory(name, value) ?: continue
-                    configurable.value(valueInstance)
-
-                    deserializeValue(valueInstance, value)
+                for (valueObject in valueObjects) {
+                    createDynamicValue(configurable, valueObject)
                 }
             }
 
             // On an ordinary configurable, we simply deserialize the values that are present
             else -> {
-                for (value in configurable.inner) {
-                    val currentElement = values[value.name]
-                        // Alias support
-                        ?: values.entries.firstOrNull { entry -> entry.key in value.aliases }?.value
-                        ?: continue
+                val values = configurable.valueIndex()
 
-                    deserializeValue(value, currentElement)
+                for (valueObject in valueObjects) {
+                    val value = values[valueObject["name"].asString] ?: continue
+
+                    deserializeValue(value, valueObject)
                 }
             }
         }
     }
 
+    private fun createDynamicValue(configurable: DynamicConfigurable, valueObject: JsonObject) {
+        runCatching {
+            val valueInstance = configurable.factory(valueObject["name"].asString, valueObject) ?: return
+            configurable.value(valueInstance)
+
+            deserializeValue(valueInstance, valueObject)
+        }.onFailure {
+            logger.error("Unable to create dynamic value of ${configurable.name}", it)
+        }
+    }
+
     /**
      * Deserialize a value from a json object
      */
@@ -283,16 +495,13 @@ object ConfigSystem {
                     }
 
                     // Deserialize each choice
-                    val choices = jsonObject["choices"].asJsonObject
+                    val choices = value.choices.indexByName()
 
-                    for (choice in value.choices) {
-                        runCatching {
-                            val choiceElement = choices[choice.name]
-                                // Alias support
-                                ?: choice.aliases.firstNotNullOfOrNull { alias -> choices[alias] }
-                                ?: error("Choice ${choice.name} not found")
+                    for ((choiceName, choiceElement) in jsonObject["choices"].asJsonObject.entrySet()) {
+                        val choice = choices[choiceName] ?: continue
 
-                            deserializeConfigurable(choice, choiceElement)
+                        runCatching {
+                            deserializeConfigurableTree(choice, choiceElement)
                         }.onFailure {
                             logger.error("Unable to deserialize choice ${choice.name}", it)
                         }
@@ -300,7 +509,7 @@ object ConfigSystem {
                 }
 
                 // Deserialize the rest of the configurable
-                deserializeConfigurable(value, jsonObject)
+                deserializeConfigurableTree(value, jsonObject)
             }.onFailure {
                 logger.error("Unable to deserialize configurable ${value.name}", it)
             }
@@ -0,0 +1,319 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.config
+
+import net.ccbluex.liquidbounce.config.ConfigSystem.jsonFile
+import net.ccbluex.liquidbounce.config.types.Value
+import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
+import net.ccbluex.liquidbounce.config.types.nesting.Configurable
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.ValueChangedEvent
+import net.ccbluex.liquidbounce.event.handler
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.io.writeAtomically
+import net.minecraft.client.MinecraftClient
+import java.io.StringWriter
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Write-behind persistence of root configurables.
+ *
+ * [ConfigSystem.store] and changed values only mark their root configurable as dirty. Once changes have settled
+ * for [DEBOUNCE_NANOS], but no later than [MAX_DELAY_NANOS] after the first change, dirty roots are serialized
+ * on the client thread, where values are changed, and written on a background thread.
+ * A burst of changes results in one write per file. Files are replaced atomically, see [writeAtomically].
+ */
+internal object ConfigWriter : EventListener {
+
+    private val DEBOUNCE_NANOS = TimeUnit.MILLISECONDS.toNanos(500)
+    private val MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5)
+    private val INDEX_REBUILD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1)
+
+    /**
+     * Serializing can still race with changes on other threads. A failed attempt is simply repeated.
+     */
+    private const val MAX_ATTEMPTS = 3
+
+    private val executor = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "LiquidBounce Config Writer").apply { isDaemon = true }
+    }
+
+    /**
+     * Dirty root configurables with the [System.nanoTime] they became dirty at
+     */
+    private val dirty = ConcurrentHashMap<Configurable, Long>()
+    private val scheduled = AtomicBoolean(false)
+
+    @Volatile
+    private var lastChange = 0L
+
+    /**
+     * Root configurable of each value, used to attribute [ValueChangedEvent]s
+     */
+    @Volatile
+    private var rootsByValue: Map<Value<*>, Configurable> = emptyMap()
+
+    /**
+     * Guards [lastIndexRebuild] and [unresolvedValues]
+     */
+    private val indexLock = Any()
+    private var lastIndexRebuild = 0L
+
+    /**
+     * Changed values which were not in the index while it was rebuilt too recently,
+     * such as values created since. They are resolved by the next rebuild, which is scheduled for them.
+     */
+    private val unresolvedValues: MutableSet<Value<*>> = Collections.newSetFromMap(IdentityHashMap())
+
+    /**
+     * Orders the serialized snapshots, so a snapshot is never written over a newer one of the same file
+     */
+    private val snapshotSequence = AtomicLong()
+    private val writtenSequences = HashMap<Configurable, Long>()
+
+    private class Snapshot(val configurable: Configurable, val json: String, val dirtySince: Long, val sequence: Long)
+
+    private val writes = AtomicLong()
+    private val coalesced = AtomicLong()
+    private val failures = AtomicLong()
+    private val totalWriteNanos = AtomicLong()
+    private val maxWriteNanos = AtomicLong()
+    private val maxDelayNanos = AtomicLong()
+
+    @Suppress("unused")
+    private val valueChangedHandler = handler<ValueChangedEvent> { event ->
+        rootOf(event.value)?.let(::markDirty)
+    }
+
+    fun markDirty(configurable: Configurable) {
+        val now = System.nanoTime()
+        lastChange = now
+
+        if (dirty.putIfAbsent(configurable, now) != null) {
+            coalesced.incrementAndGet()
+        }
+
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(::flushWhenSettled, DEBOUNCE_NANOS, TimeUnit.NANOSECONDS)
+        }
+    }
+
+    private fun flushWhenSettled() {
+        val now = System.nanoTime()
+        val settledFor = now - lastChange
+        val oldestChange = dirty.values.minOrNull() ?: now
+
+        if (settledFor < DEBOUNCE_NANOS && now - oldestChange < MAX_DELAY_NANOS) {
+            executor.schedule(::flushWhenSettled, DEBOUNCE_NANOS - settledFor, TimeUnit.NANOSECONDS)
+            return
+        }
+
+        scheduled.set(false)
+
+        val client = MinecraftClient.getInstance()
+        if (client == null) {
+            flush()
+            return
+        }
+
+        client.execute {
+            val snapshots = serializeDirty()
+            if (snapshots.isNotEmpty()) {
+                executor.execute { snapshots.forEach(::write) }
+            }
+        }
+    }
+
+    /**
+     * Serializes and writes all dirty configurables on the calling thread.
+     */
+    fun flush() {
+        serializeDirty().forEach(::write)
+    }
+
+    private fun serializeDirty(): List<Snapshot> {
+        val snapshots = mutableListOf<Snapshot>()
+
+        for (configurable in dirty.keys.toList()) {
+            val dirtySince = dirty.remove(configurable) ?: continue
+            val json = serialize(configurable) ?: run {
+                failures.incrementAndGet()
+                continue
+            }
+
+            snapshots += Snapshot(configurable, json, dirtySince, snapshotSequence.incrementAndGet())
+        }
+
+        return snapshots
+    }
+
+    private fun write(snapshot: Snapshot) {
+        synchronized(this) {
+            val configurable = snapshot.configurable
+
+            // A synchronous flush might have written a newer snapshot already
+            if ((writtenSequences[configurable] ?: 0L) > snapshot.sequence) {
+                return
+            }
+
+            val startTime = System.nanoTime()
+
+            runCatching {
+                logger.debug("Writing config ${configurable.loweredName}...")
+                configurable.jsonFile.writeAtomically { stream -> stream.write(snapshot.json.toByteArray()) }
+            }.onSuccess {
+                val endTime = System.nanoTime()
+
+                writtenSequences[configurable] = snapshot.sequence
+                writes.incrementAndGet()
+                totalWriteNanos.addAndGet(endTime - startTime)
+                maxWriteNanos.accumulateAndGet(endTime - startTime) { a, b -> maxOf(a, b) }
+                maxDelayNanos.accumulateAndGet(endTime - snapshot.dirtySince) { a, b -> maxOf(a, b) }
+                logger.info("Successfully saved config '${configurable.loweredName}'.")
+            }.onFailure {
+                failures.incrementAndGet()
+                logger.error("Unable to store config ${configurable.loweredName}", it)
+            }
+        }
+    }
+
+    private fun serialize(configurable: Configurable): String? {
+        repeat(MAX_ATTEMPTS) { attempt ->
+            try {
+                return StringWriter().also { ConfigSystem.serializeConfigurable(configurable, it) }.toString()
+            } catch (e: Exception) {
+                if (attempt == MAX_ATTEMPTS - 1) {
+                    logger.error("Unable to serialize config ${configurable.loweredName}", e)
+                }
+            }
+        }
+
+        return null
+    }
+
+    private fun rootOf(value: Value<*>): Configurable? {
+        rootsByValue[value]?.let { return it }
+
+        val (root, resolvedRoots) = synchronized(indexLock) {
+            // Values which are not part of any root change as well, don't walk all trees for each of them
+            val sinceRebuild = System.nanoTime() - lastIndexRebuild
+            if (sinceRebuild < INDEX_REBUILD_INTERVAL_NANOS) {
+                if (unresolvedValues.add(value) && unresolvedValues.size == 1) {
+                    executor.schedule(
+                        ::resolveUnresolvedValues,
+                        INDEX_REBUILD_INTERVAL_NANOS - sinceRebuild,
+                        TimeUnit.NANOSECONDS
+                    )
+                }
+
+                return null
+            }
+
+            val resolvedRoots = rebuildIndex()
+            rootsByValue[value] to resolvedRoots
+        }
+
+        resolvedRoots.forEach(::markDirty)
+        return root
+    }
+
+    private fun resolveUnresolvedValues() {
+        val resolvedRoots = synchronized(indexLock) {
+            // Already resolved by a rebuild in the meantime
+            if (unresolvedValues.isEmpty()) {
+                return
+            }
+
+            rebuildIndex()
+        }
+
+        resolvedRoots.forEach(::markDirty)
+    }
+
+    /**
+     * Has to be called with [indexLock] held.
+     *
+     * @return the roots of the [unresolvedValues], which are cleared
+     */
+    private fun rebuildIndex(): Set<Configurable> {
+        lastIndexRebuild = System.nanoTime()
+
+        val index = IdentityHashMap<Value<*>, Configurable>()
+        for (root in ConfigSystem.configurables.toList()) {
+            index.addTree(root, root)
+        }
+        rootsByValue = index
+
+        // Values without a root are not part of any file
+        val resolvedRoots = unresolvedValues.mapNotNullTo(hashSetOf(), index::get)
+        unresolvedValues.clear()
+        return resolvedRoots
+    }
+
+    private fun MutableMap<Value<*>, Configurable>.addTree(value: Value<*>, root: Configurable) {
+        this[value] = root
+
+        if (value is ChoiceConfigurable<*>) {
+            value.choices.forEach { addTree(it, root) }
+        }
+
+        if (value is Configurable) {
+            value.inner.forEach { addTree(it, root) }
+        }
+    }
+
+    fun statistics() = Statistics(
+        pending = dirty.size,
+        writes = writes.get(),
+        coalesced = coalesced.get(),
+        failures = failures.get(),
+        averageWriteNanos = writes.get().let { if (it == 0L) 0L else totalWriteNanos.get() / it },
+        maxWriteNanos = maxWriteNanos.get(),
+        maxDelayNanos = maxDelayNanos.get()
+    )
+
+    data class Statistics(
+        /**
+         * Root configurables waiting to be written
+         */
+        val pending: Int,
+        val writes: Long,
+        /**
+         * Changes which were folded into an already pending write
+         */
+        val coalesced: Long,
+        val failures: Long,
+        /**
+         * Time spent writing a single file
+         */
+        val averageWriteNanos: Long,
+        val maxWriteNanos: Long,
+        /**
+         * Longest time between a configurable becoming dirty and its file being written
+         */
+        val maxDelayNanos: Long
+    )
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.config.gson.util
+
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import java.io.Reader
+
+/**
+ * A [JsonReader] which knows how deep it is nested, so reading can continue after a value
+ * which failed halfway through, see [skipTo].
+ */
+internal class DepthTrackingJsonReader(reader: Reader) : JsonReader(reader) {
+
+    /**
+     * Amount of objects and arrays which have been begun but not ended
+     */
+    var depth = 0
+        private set
+
+    override fun beginObject() {
+        super.beginObject()
+        depth++
+    }
+
+    override fun endObject() {
+        super.endObject()
+        depth--
+    }
+
+    override fun beginArray() {
+        super.beginArray()
+        depth++
+    }
+
+    override fun endArray() {
+        super.endArray()
+        depth--
+    }
+
+    /**
+     * Skips the rest of all objects and arrays down to [targetDepth].
+     */
+    fun skipTo(targetDepth: Int) {
+        while (depth > targetDepth) {
+            while (hasNext()) {
+                if (peek() == JsonToken.NAME) {
+                    nextName()
+                }
+                skipValue()
+            }
+
+            if (peek() == JsonToken.END_OBJECT) {
+                endObject()
+            } else {
+                endArray()
+            }
+        }
+    }
+
+}
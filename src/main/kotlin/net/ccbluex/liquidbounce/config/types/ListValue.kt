@@ -71,10 +71,16 @@ open class ListValue<T : MutableCollection<E>, E>(
         element as? JsonArray ?: error("ListValue can only be deserialized from a JsonArray.")
 
         val currValue = this.inner
+        val previousValue = currValue.toList()
 
         currValue.clear()
         element.mapTo(currValue) { gson.fromJson(it, this.innerType) }
 
+        // Nothing to notify about when loading the same list again
+        if (currValue.toList() == previousValue) {
+            return
+        }
+
         set(currValue) { /** Trigger listener callbacks */ }
     }
 
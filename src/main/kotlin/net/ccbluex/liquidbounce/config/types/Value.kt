@@ -27,8 +27,6 @@ import kotlinx.coroutines.flow.StateFlow
 import net.ccbluex.liquidbounce.config.gson.stategies.Exclude
 import net.ccbluex.liquidbounce.config.gson.stategies.ProtocolExclude
 import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
-import net.ccbluex.liquidbounce.event.EventManager
-import net.ccbluex.liquidbounce.event.events.ValueChangedEvent
 import net.ccbluex.liquidbounce.lang.translation
 import net.ccbluex.liquidbounce.script.ScriptApiRequired
 import net.ccbluex.liquidbounce.script.asArray
@@ -238,7 +236,7 @@ open class Value<T : Any>(
             }
         }.onSuccess {
             apply.accept(currT)
-            EventManager.callEvent(ValueChangedEvent(this))
+            ValueChangeBatch.changed(this)
             changedListeners.forEach { it.accept(currT) }
             stateFlow.value = currT
         }.onFailure { ex ->
@@ -0,0 +1,76 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.config.types
+
+import net.ccbluex.liquidbounce.event.EventManager
+import net.ccbluex.liquidbounce.event.events.ValueChangedEvent
+
+/**
+ * Dispatches [ValueChangedEvent]s, unless a batch is open on the current thread.
+ *
+ * Loading a config can change hundreds of values. Inside [collect], the changes are only collected
+ * and listeners receive a single [ValueChangedEvent] for the loaded configurable in the end.
+ * Per-value listeners registered through [Value.onChanged] are not affected.
+ */
+internal object ValueChangeBatch {
+
+    private val batch = ThreadLocal<Batch?>()
+
+    private class Batch {
+        var changes = 0
+    }
+
+    fun changed(value: Value<*>) {
+        val batch = batch.get()
+
+        if (batch != null) {
+            batch.changes++
+        } else {
+            EventManager.callEvent(ValueChangedEvent(value))
+        }
+    }
+
+    /**
+     * Runs [block] with value change events held back, then notifies about [root] once if anything changed.
+     * Nested calls join the outer batch.
+     *
+     * @return the amount of values that changed
+     */
+    fun collect(root: Value<*>, block: () -> Unit): Int {
+        if (batch.get() != null) {
+            block()
+            return 0
+        }
+
+        val current = Batch()
+        batch.set(current)
+        try {
+            block()
+        } finally {
+            batch.remove()
+        }
+
+        if (current.changes > 0) {
+            EventManager.callEvent(ValueChangedEvent(root))
+        }
+
+        return current.changes
+    }
+
+}
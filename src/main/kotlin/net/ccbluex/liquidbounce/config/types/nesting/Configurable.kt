@@ -176,6 +176,13 @@ open class Configurable(
         }
     }
 
+    /**
+     * [inner] indexed by name and aliases, to resolve many values by name at once, e.g. while loading a config.
+     *
+     * The index is a snapshot, [inner] might change afterward.
+     */
+    internal fun valueIndex(): Map<String, Value<*>> = inner.indexByName()
+
     /**
      * Restore all values to their default values
      */
@@ -538,3 +545,22 @@ open class Configurable(
 
 
 }
+
+/**
+ * Indexes values by name and aliases. Names take precedence over aliases of other values.
+ */
+internal fun <V : Value<*>> Iterable<V>.indexByName(): Map<String, V> {
+    val index = HashMap<String, V>()
+
+    for (value in this) {
+        for (alias in value.aliases) {
+            index.putIfAbsent(alias, value)
+        }
+    }
+
+    for (value in this) {
+        index[value.name] = value
+    }
+
+    return index
+}
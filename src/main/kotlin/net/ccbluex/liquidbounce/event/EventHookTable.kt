@@ -0,0 +1,94 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.event
+
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList
+import net.ccbluex.liquidbounce.utils.kotlin.sortedInsert
+
+private val EMPTY_HOOKS = emptyArray<EventHook<in Event>>()
+
+/**
+ * Holds all [EventHook]s of a single event class.
+ *
+ * Mutations are rare (register, unregister) and synchronized, while dispatch is hot and reads
+ * [snapshot], a plain array which is rebuilt on every mutation. This way, firing an event
+ * neither takes a lock nor allocates an iterator.
+ */
+internal class EventHookTable {
+
+    /**
+     * Sorted descending by [EventHook.priority]
+     */
+    private val hooks = ReferenceArrayList<EventHook<in Event>>()
+
+    /**
+     * Immutable copy of [hooks], replaced as a whole on each change.
+     */
+    @Volatile
+    @JvmField
+    var snapshot: Array<EventHook<in Event>> = EMPTY_HOOKS
+
+    /**
+     * The first hook which would be executed when firing an event right now, if any.
+     */
+    fun firstRunningHook(): EventHook<in Event>? {
+        for (hook in snapshot) {
+            if (hook.handlerClass.running) {
+                return hook
+            }
+        }
+
+        return null
+    }
+
+    @Synchronized
+    fun add(hook: EventHook<in Event>) {
+        if (hook in hooks) {
+            return
+        }
+
+        hooks.sortedInsert(hook) { -it.priority }
+        rebuild()
+    }
+
+    @Synchronized
+    fun remove(hook: EventHook<in Event>) {
+        if (hooks.remove(hook)) {
+            rebuild()
+        }
+    }
+
+    @Synchronized
+    fun removeIf(predicate: (EventHook<in Event>) -> Boolean) {
+        if (hooks.removeIf { predicate(it) }) {
+            rebuild()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        hooks.clear()
+        rebuild()
+    }
+
+    private fun rebuild() {
+        snapshot = if (hooks.isEmpty()) EMPTY_HOOKS else hooks.toTypedArray()
+    }
+
+}
@@ -22,8 +22,6 @@ import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.event.events.*
 import net.ccbluex.liquidbounce.features.misc.HideAppearance.isDestructed
 import net.ccbluex.liquidbounce.utils.client.logger
-import net.ccbluex.liquidbounce.utils.kotlin.sortedInsert
-import java.util.concurrent.CopyOnWriteArrayList
 
 /**
  * Contains all classes of events. Used to create lookup tables ahead of time
@@ -104,6 +102,7 @@ internal val ALL_EVENT_CLASSES: Array<Class<out Event>> = arrayOf(
     ClientChatErrorEvent::class.java,
     ClientChatJwtTokenEvent::class.java,
     WorldChangeEvent::class.java,
+    TagsSynchronizeEvent::class.java,
     AccountManagerMessageEvent::class.java,
     AccountManagerAdditionResultEvent::class.java,
     AccountManagerRemovalResultEvent::class.java,
@@ -154,10 +153,10 @@ internal val ALL_EVENT_CLASSES: Array<Class<out Event>> = arrayOf(
  */
 object EventManager {
 
-    private val registry: Map<Class<out Event>, CopyOnWriteArrayList<EventHook<in Event>>> =
+    private val registry: Map<Class<out Event>, EventHookTable> =
         ALL_EVENT_CLASSES.associateWithTo(
             Reference2ObjectOpenHashMap(ALL_EVENT_CLASSES.size)
-        ) { CopyOnWriteArrayList() }
+        ) { EventHookTable() }
 
     init {
         SequenceManager
@@ -171,12 +170,7 @@ object EventManager {
             ?: error("The event '${eventClass.name}' is not registered in Events.kt::ALL_EVENT_CLASSES.")
 
         @Suppress("UNCHECKED_CAST")
-        val hook = eventHook as EventHook<in Event>
-
-        if (!handlers.contains(hook)) {
-            // `handlers` is sorted descending by EventHook.priority
-            handlers.sortedInsert(hook) { -it.priority }
-        }
+        handlers.add(eventHook as EventHook<in Event>)
 
         return eventHook
     }
@@ -201,9 +195,34 @@ object EventManager {
         }
     }
 
+    /**
+     * Returns whether firing an event of [eventClass] would reach at least one hook.
+     *
+     * The state is read live from the registry and [EventListener.running], so it never goes stale.
+     */
+    fun hasListeners(eventClass: Class<out Event>): Boolean = firstRunningHook(eventClass) != null
+
+    /**
+     * Returns the first hook of [eventClass] which would be executed when firing an event right now,
+     * or `null` if firing it would reach no hook.
+     *
+     * Hot call sites (mostly mixins) use this to skip constructing events nobody listens to, and pass
+     * the result on to [callEvent], so the hooks in front of it are not checked a second time.
+     */
+    fun firstRunningHook(eventClass: Class<out Event>): EventHook<in Event>? {
+        if (isDestructed) {
+            return null
+        }
+
+        return registry[eventClass]?.firstRunningHook()
+    }
+
     /**
      * Call event to listeners
      *
+     * The hooks are read from an array snapshot of the event class, so dispatching neither locks nor
+     * allocates. [EventListener.running] is still checked per hook as it may depend on the game state.
+     *
      * @param event to call
      */
     fun <T : Event> callEvent(event: T): T {
@@ -213,17 +232,75 @@ object EventManager {
 
         val target = registry[event.javaClass] ?: return event
 
+        return dispatch(event, target.snapshot, -1)
+    }
+
+    /**
+     * Same as [callEvent], but starts at [firstHook] as returned by [firstRunningHook], which is executed
+     * without checking [EventListener.running] again. If the hooks changed in the meantime and [firstHook]
+     * is gone, all hooks are checked.
+     */
+    fun <T : Event> callEvent(event: T, firstHook: EventHook<in Event>): T {
+        if (isDestructed) {
+            return event
+        }
+
+        val target = registry[event.javaClass] ?: return event
+        val hooks = target.snapshot
+
+        return dispatch(event, hooks, hooks.indexOf(firstHook))
+    }
+
+    /**
+     * Executes the running [hooks] starting at [from]. The hook at [from] is known to be running.
+     * If [from] is -1, every hook is checked.
+     */
+    private fun <T : Event> dispatch(event: T, hooks: Array<EventHook<in Event>>, from: Int): T {
+        if (EventProfiler.enabled) {
+            return callEventProfiled(event, hooks)
+        }
+
+        val start = from.coerceAtLeast(0)
+
+        event.isCompleted = false
+        for (i in start until hooks.size) {
+            val eventHook = hooks[i]
+
+            if (i != from && !eventHook.handlerClass.running) {
+                continue
+            }
+
+            try {
+                eventHook.handler.accept(event)
+            } catch (e: Throwable) {
+                logger.error("Exception while executing handler.", e)
+            }
+        }
+        event.isCompleted = true
+
+        return event
+    }
+
+    /**
+     * Same as [callEvent], but measures every hook for the [EventProfiler].
+     */
+    private fun <T : Event> callEventProfiled(event: T, hooks: Array<EventHook<in Event>>): T {
+        val eventClass = event.javaClass
+        EventProfiler.recordFire(eventClass)
+
         event.isCompleted = false
-        for (eventHook in target) {
+        for (eventHook in hooks) {
             if (!eventHook.handlerClass.running) {
                 continue
             }
 
-            runCatching {
+            val start = System.nanoTime()
+            try {
                 eventHook.handler.accept(event)
-            }.onFailure {
-                logger.error("Exception while executing handler.", it)
+            } catch (e: Throwable) {
+                logger.error("Exception while executing handler.", e)
             }
+            EventProfiler.recordHook(eventClass, eventHook, System.nanoTime() - start)
         }
         event.isCompleted = true
 
@@ -0,0 +1,211 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.event
+
+import net.ccbluex.liquidbounce.config.types.nesting.Configurable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Opt-in instrumentation of [EventManager.callEvent].
+ *
+ * While [enabled] is false, the event manager only pays a single volatile read per fired event.
+ * Once enabled, it counts fires per event class and measures every [EventHook] it executes.
+ */
+object EventProfiler {
+
+    /**
+     * Each power of two is split into 2^[SUB_BUCKET_BITS] linear sub-buckets,
+     * which keeps the percentile error below 25%.
+     */
+    private const val SUB_BUCKET_BITS = 2
+    private const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+    private const val BUCKET_COUNT = Long.SIZE_BITS shl SUB_BUCKET_BITS
+
+    private const val NOT_STARTED = Long.MIN_VALUE
+
+    @Volatile
+    var enabled = false
+        private set
+
+    @Volatile
+    private var startedAt = NOT_STARTED
+
+    @Volatile
+    private var stoppedAt = NOT_STARTED
+
+    /**
+     * How long the current measurements have been recorded, 0 if the profiler has not been started since
+     * the last [reset]. Does not grow while the profiler is stopped.
+     */
+    val durationNanos: Long
+        get() {
+            val startedAt = startedAt
+            if (startedAt == NOT_STARTED) {
+                return 0L
+            }
+
+            val endedAt = if (enabled) System.nanoTime() else stoppedAt
+            return (endedAt - startedAt).coerceAtLeast(0L)
+        }
+
+    private val fireCounts = ConcurrentHashMap<Class<out Event>, LongAdder>()
+    private val hookStats = ConcurrentHashMap<EventHook<*>, HookStats>()
+
+    fun start() {
+        if (!enabled) {
+            reset()
+            startedAt = System.nanoTime()
+            enabled = true
+        }
+    }
+
+    fun stop() {
+        if (enabled) {
+            stoppedAt = System.nanoTime()
+            enabled = false
+        }
+    }
+
+    fun reset() {
+        fireCounts.clear()
+        hookStats.clear()
+        startedAt = if (enabled) System.nanoTime() else NOT_STARTED
+    }
+
+    internal fun recordFire(eventClass: Class<out Event>) {
+        fireCounts.computeIfAbsent(eventClass) { LongAdder() }.increment()
+    }
+
+    internal fun recordHook(eventClass: Class<out Event>, hook: EventHook<*>, nanos: Long) {
+        val stats = hookStats[hook] ?: hookStats.computeIfAbsent(hook) { HookStats(eventClass, it) }
+        stats.record(nanos)
+    }
+
+    /**
+     * Fire counts per event class, most fired first.
+     */
+    fun fireCounts(): List<EventFireCount> = fireCounts.entries
+        .map { (eventClass, count) -> EventFireCount(eventClass.simpleName, count.sum()) }
+        .sortedByDescending { it.count }
+
+    /**
+     * Hook measurements, most expensive (by cumulative time) first.
+     */
+    fun hooks(): List<EventHookProfile> = hookStats.values
+        .map { it.toProfile() }
+        .sortedByDescending { it.totalNanos }
+
+    private class HookStats(val eventClass: Class<out Event>, val hook: EventHook<*>) {
+        val calls = LongAdder()
+        val totalNanos = LongAdder()
+        val maxNanos = AtomicLong()
+        val histogram = AtomicLongArray(BUCKET_COUNT)
+
+        fun record(nanos: Long) {
+            calls.increment()
+            totalNanos.add(nanos)
+            maxNanos.accumulateAndGet(nanos) { a, b -> maxOf(a, b) }
+            histogram.incrementAndGet(bucketOf(nanos))
+        }
+
+        fun toProfile(): EventHookProfile {
+            val calls = calls.sum()
+            val totalNanos = totalNanos.sum()
+
+            return EventHookProfile(
+                event = eventClass.simpleName,
+                listener = hook.handlerClass.profilerName,
+                priority = hook.priority,
+                calls = calls,
+                totalNanos = totalNanos,
+                averageNanos = if (calls == 0L) 0L else totalNanos / calls,
+                p50Nanos = percentile(0.50),
+                p99Nanos = percentile(0.99),
+                maxNanos = maxNanos.get()
+            )
+        }
+
+        private fun percentile(fraction: Double): Long {
+            val counts = LongArray(BUCKET_COUNT) { histogram.get(it) }
+            val threshold = (counts.sum() * fraction).toLong().coerceAtLeast(1L)
+
+            var seen = 0L
+            for (bucket in counts.indices) {
+                seen += counts[bucket]
+                if (seen >= threshold) {
+                    return bucketUpperBound(bucket)
+                }
+            }
+
+            return 0L
+        }
+    }
+
+    private fun bucketOf(nanos: Long): Int {
+        if (nanos < SUB_BUCKETS) {
+            return nanos.coerceAtLeast(0L).toInt()
+        }
+
+        val exponent = Long.SIZE_BITS - 1 - nanos.countLeadingZeroBits()
+        val subBucket = (nanos ushr (exponent - SUB_BUCKET_BITS)).toInt() and (SUB_BUCKETS - 1)
+        return ((exponent - SUB_BUCKET_BITS + 1) shl SUB_BUCKET_BITS) + subBucket
+    }
+
+    private fun bucketUpperBound(bucket: Int): Long {
+        if (bucket < SUB_BUCKETS) {
+            return bucket.toLong()
+        }
+
+        val exponent = (bucket shr SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1
+        val subBucket = bucket and (SUB_BUCKETS - 1)
+        return ((SUB_BUCKETS + subBucket + 1).toLong() shl (exponent - SUB_BUCKET_BITS)) - 1
+    }
+
+    /**
+     * Readable path of a listener, e.g. `KillAura.FailSwing`
+     */
+    private val EventListener.profilerName: String
+        get() {
+            val names = ArrayDeque<String>()
+            var current: EventListener? = this
+            while (current != null) {
+                names.addFirst((current as? Configurable)?.name ?: current.javaClass.simpleName)
+                current = current.parent()
+            }
+            return names.joinToString(".")
+        }
+
+}
+
+data class EventFireCount(val event: String, val count: Long)
+
+data class EventHookProfile(
+    val event: String,
+    val listener: String,
+    val priority: Short,
+    val calls: Long,
+    val totalNanos: Long,
+    val averageNanos: Long,
+    val p50Nanos: Long,
+    val p99Nanos: Long,
+    val maxNanos: Long
+)
@@ -37,6 +37,9 @@ import net.minecraft.util.shape.VoxelShape
 @Nameable("worldChange")
 class WorldChangeEvent(val world: ClientWorld?) : Event()
 
+@Nameable("tagsSynchronize")
+class TagsSynchronizeEvent : Event()
+
 @Nameable("chunkUnload")
 class ChunkUnloadEvent(val pos: ChunkPos) : Event()
 
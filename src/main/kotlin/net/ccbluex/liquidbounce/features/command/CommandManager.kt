@@ -44,6 +44,7 @@ import net.ccbluex.liquidbounce.features.command.commands.translate.CommandTrans
 import net.ccbluex.liquidbounce.features.misc.HideAppearance
 import net.ccbluex.liquidbounce.lang.translation
 import net.ccbluex.liquidbounce.script.ScriptApiRequired
+import net.ccbluex.liquidbounce.utils.client.StartupTrace
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.math.levenshtein
 import java.util.concurrent.CompletableFuture
@@ -123,6 +124,7 @@ object CommandManager : Collection<Command> by commandSet {
             CommandFakePlayer,
             CommandAutoAccount,
             CommandDebug,
+            CommandProfile,
             CommandItemRename,
             CommandItemGive,
             CommandItemSkull,
@@ -142,7 +144,9 @@ object CommandManager : Collection<Command> by commandSet {
         )
 
         commands.forEach {
-            addCommand(it.createCommand())
+            StartupTrace.span(it.javaClass.simpleName, StartupTrace.COMMAND) {
+                addCommand(it.createCommand())
+            }
         }
     }
 
@@ -0,0 +1,154 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.features.command.commands.client
+
+import net.ccbluex.liquidbounce.config.ConfigWriter
+import net.ccbluex.liquidbounce.event.EventProfiler
+import net.ccbluex.liquidbounce.features.command.Command
+import net.ccbluex.liquidbounce.features.command.builder.CommandBuilder
+import net.ccbluex.liquidbounce.features.command.builder.ParameterBuilder
+import net.ccbluex.liquidbounce.integration.interop.protocol.event.SocketEventListener
+import net.ccbluex.liquidbounce.utils.block.ChunkScanner
+import net.ccbluex.liquidbounce.utils.client.chat
+import net.ccbluex.liquidbounce.utils.client.regular
+import net.ccbluex.liquidbounce.utils.client.variable
+
+/**
+ * Profile Command
+ *
+ * Allows you to find out which event handlers are eating the tick and frame budget
+ * and whether the chunk scanner, the config writer and the user interface event stream keep up.
+ */
+object CommandProfile : Command.Factory {
+
+    private const val DEFAULT_LIMIT = 10
+
+    override fun createCommand(): Command {
+        return CommandBuilder.begin("profile")
+            .hub()
+            .subcommand(eventsSubcommand())
+            .subcommand(scannerSubcommand())
+            .subcommand(configSubcommand())
+            .subcommand(socketSubcommand())
+            .build()
+    }
+
+    private fun eventsSubcommand() = CommandBuilder.begin("events")
+        .hub()
+        .subcommand(CommandBuilder.begin("start").handler {
+            EventProfiler.start()
+            chat(regular(command.result("started")))
+        }.build())
+        .subcommand(CommandBuilder.begin("stop").handler {
+            EventProfiler.stop()
+            chat(regular(command.result("stopped")))
+        }.build())
+        .subcommand(CommandBuilder.begin("reset").handler {
+            EventProfiler.reset()
+            chat(regular(command.result("reset")))
+        }.build())
+        .subcommand(showSubcommand())
+        .build()
+
+    private fun scannerSubcommand() = CommandBuilder.begin("scanner")
+        .handler {
+            val statistics = ChunkScanner.ChunkScannerThread.statistics()
+
+            chat(regular(command.result(
+                "statistics",
+                variable(statistics.pendingChunks.toString()),
+                variable(statistics.pendingRequests.toString()),
+                variable(statistics.inFlightChunks.toString()),
+                variable(statistics.processed.toString()),
+                variable(statistics.merged.toString()),
+                variable(statistics.dropped.toString())
+            )))
+        }
+        .build()
+
+    private fun configSubcommand() = CommandBuilder.begin("config")
+        .handler {
+            val statistics = ConfigWriter.statistics()
+
+            chat(regular(command.result(
+                "statistics",
+                variable(statistics.pending.toString()),
+                variable(statistics.writes.toString()),
+                variable(statistics.coalesced.toString()),
+                variable(statistics.failures.toString()),
+                variable("%.2f".format(statistics.averageWriteNanos / 1e6)),
+                variable("%.2f".format(statistics.maxWriteNanos / 1e6)),
+                variable("%.0f".format(statistics.maxDelayNanos / 1e6))
+            )))
+        }
+        .build()
+
+    private fun socketSubcommand() = CommandBuilder.begin("socket")
+        .handler {
+            val statistics = SocketEventListener.statistics()
+
+            chat(regular(command.result(
+                "statistics",
+                variable(statistics.broadcasts.toString()),
+                variable((statistics.bytes / 1024).toString()),
+                variable(statistics.coalesced.toString()),
+                variable(statistics.unchanged.toString()),
+                variable("%.1f".format(statistics.averageSerializeNanos / 1e3)),
+                variable("%.1f".format(statistics.maxSerializeNanos / 1e3))
+            )))
+        }
+        .build()
+
+    private fun showSubcommand() = CommandBuilder.begin("show")
+        .parameter(
+            ParameterBuilder.begin<Int>("limit")
+                .verifiedBy(ParameterBuilder.POSITIVE_INTEGER_VALIDATOR)
+                .optional()
+                .build()
+        )
+        .handler {
+            val limit = args.getOrNull(0) as Int? ?: DEFAULT_LIMIT
+            val hooks = EventProfiler.hooks()
+
+            if (hooks.isEmpty()) {
+                chat(regular(command.result("noData")))
+                return@handler
+            }
+
+            val seconds = EventProfiler.durationNanos / 1e9
+            chat(regular(command.result("header", variable("%.1f".format(seconds)))))
+
+            for (hook in hooks.take(limit)) {
+                chat(regular(command.result(
+                    "hook",
+                    variable(hook.listener),
+                    variable(hook.event),
+                    variable("%.2f".format(hook.totalNanos / 1e6)),
+                    variable(hook.calls.toString()),
+                    variable("%.1f".format(hook.p50Nanos / 1e3)),
+                    variable("%.1f".format(hook.p99Nanos / 1e3))
+                )))
+            }
+
+            val events = EventProfiler.fireCounts().take(limit).joinToString(", ") { "${it.event} (${it.count})" }
+            chat(regular(command.result("events", variable(events))))
+        }
+        .build()
+
+}
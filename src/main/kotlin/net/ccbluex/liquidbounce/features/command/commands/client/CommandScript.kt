@@ -19,6 +19,7 @@
 package net.ccbluex.liquidbounce.features.command.commands.client
 
 import net.ccbluex.liquidbounce.features.command.Command
+import net.ccbluex.liquidbounce.features.command.CommandExecutor.suspendHandler
 import net.ccbluex.liquidbounce.features.command.builder.CommandBuilder
 import net.ccbluex.liquidbounce.features.command.builder.ParameterBuilder
 import net.ccbluex.liquidbounce.features.command.builder.enumChoice
@@ -231,7 +232,7 @@ object CommandScript : Command.Factory {
 
     }.build()
 
-    private fun reloadSubcommand() = CommandBuilder.begin("reload").handler {
+    private fun reloadSubcommand() = CommandBuilder.begin("reload").suspendHandler {
         runCatching {
             ScriptManager.reload()
         }.onSuccess {
@@ -18,6 +18,12 @@
  */
 package net.ccbluex.liquidbounce.features.marketplace
 
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItem
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItemType
 import net.ccbluex.liquidbounce.config.ConfigSystem
@@ -28,13 +34,20 @@ import net.ccbluex.liquidbounce.features.command.Command
 import net.ccbluex.liquidbounce.integration.task.type.Task
 import net.ccbluex.liquidbounce.lang.translation
 import net.ccbluex.liquidbounce.utils.client.*
+import net.ccbluex.liquidbounce.utils.kotlin.MinecraftDispatcher
 import java.io.File
+import java.util.EnumSet
 
 /**
  * Marketplace manager for subscribing and updating items.
  */
 object MarketplaceManager : Configurable("marketplace"), EventListener {
 
+    /**
+     * How many items are checked and installed at the same time
+     */
+    private const val MAX_CONCURRENT_UPDATES = 4
+
     val subscribedItems by list("subscribed", mutableListOf<SubscribedItem>(), ValueType.SUBSCRIBED_ITEM)
 
     val marketplaceRoot = File(ConfigSystem.rootFolder, "marketplace").apply {
@@ -47,22 +60,50 @@ object MarketplaceManager : Configurable("marketplace"), EventListener {
 
     fun isSubscribed(itemId: Int) = subscribedItems.any { it.id == itemId }
 
+    /**
+     * Updates all subscribed items, [MAX_CONCURRENT_UPDATES] at a time.
+     * The manager of every type with an updated item is reloaded once afterward.
+     */
     suspend fun updateAll(task: Task? = null, command: Command? = null) {
-         subscribedItems.forEach { item ->
-             update(item, task, command)
-         }
+        val semaphore = Semaphore(MAX_CONCURRENT_UPDATES)
+
+        val updatedItems = coroutineScope {
+            subscribedItems.toList().map { item ->
+                async {
+                    semaphore.withPermit {
+                        item.takeIf { update(item, task, command, reload = false).getOrDefault(false) }
+                    }
+                }
+            }.awaitAll().filterNotNull()
+        }
+
+        val updatedTypes = updatedItems.mapTo(EnumSet.noneOf(MarketplaceItemType::class.java)) { it.type }
+        if (updatedTypes.isNotEmpty()) {
+            // Reload the item type's manager on the render thread.
+            withContext(MinecraftDispatcher) {
+                updatedTypes.forEach { type -> type.reload() }
+            }
+        }
     }
 
-    suspend fun update(item: SubscribedItem, task: Task? = null, command: Command? = null) = runCatching {
+    /**
+     * @return whether a new revision was installed
+     */
+    suspend fun update(
+        item: SubscribedItem,
+        task: Task? = null,
+        command: Command? = null,
+        reload: Boolean = true
+    ) = runCatching {
         logger.info("Checking for updates for item ${item.id} (${item.type})")
         val updateRevisionId = item.checkUpdate() ?: run {
             command?.run { chat(regular(command.result("noUpdate", variable(item.id.toString())))) }
-            return@runCatching
+            return@runCatching false
         }
         logger.info("Updating item ${item.id} (${item.type})...")
         command?.run { chat(regular(command.result("updating", variable(item.id.toString())))) }
         val subTask = task?.getOrCreateFileTask(item.id.toString())
-        item.install(updateRevisionId, subTask)
+        item.install(updateRevisionId, subTask, reload)
         subTask?.isCompleted = true
         logger.info("Successfully updated item ${item.id} (${item.type})")
         command?.run {
@@ -76,6 +117,8 @@ object MarketplaceManager : Configurable("marketplace"), EventListener {
                 )
             )
         }
+
+        true
     }.onFailure { e ->
         logger.error("Failed to update item ${item.id}", e)
         if (command != null) {
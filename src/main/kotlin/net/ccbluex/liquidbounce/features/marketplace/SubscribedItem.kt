@@ -2,7 +2,7 @@ package net.ccbluex.liquidbounce.features.marketplace
 
 import kotlinx.coroutines.withContext
 import net.ccbluex.liquidbounce.LiquidBounce.logger
-import net.ccbluex.liquidbounce.api.core.HttpClient.download
+import net.ccbluex.liquidbounce.api.core.HttpClient.downloadResumable
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItem
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItemStatus
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItemType
@@ -11,6 +11,7 @@ import net.ccbluex.liquidbounce.config.ConfigSystem
 import net.ccbluex.liquidbounce.integration.task.type.ResourceTask
 import net.ccbluex.liquidbounce.mcef.listeners.OkHttpProgressInterceptor
 import net.ccbluex.liquidbounce.utils.io.extractZip
+import net.ccbluex.liquidbounce.utils.io.verifyZip
 import net.ccbluex.liquidbounce.utils.kotlin.MinecraftDispatcher
 import java.io.File
 
@@ -92,7 +93,16 @@ data class SubscribedItem(val name: String, val id: Int, val type: MarketplaceIt
         }
     }
 
-    suspend fun install(revisionId: Int, subTask: ResourceTask? = null) {
+    /**
+     * Downloads and installs the revision.
+     *
+     * The archive is downloaded to a partial file first, which is resumed if a previous attempt was interrupted.
+     * It is only extracted once its size matches the announced one and every entry matches its CRC-32.
+     *
+     * @param reload whether the manager of the item type is reloaded afterward,
+     * can be left out when installing many items to reload once at the end
+     */
+    suspend fun install(revisionId: Int, subTask: ResourceTask? = null, reload: Boolean = true) {
         // The revision is already installed, no need to install it again.
         if (revisionId == installedRevisionId) {
             return
@@ -104,23 +114,30 @@ data class SubscribedItem(val name: String, val id: Int, val type: MarketplaceIt
         }
 
         val revisionUrl = MarketplaceApi.downloadRevision(id, revisionId)
-        val revisionArchiveFile = itemDir.resolve("$id.zip")
-        check(!revisionArchiveFile.exists() || revisionArchiveFile.delete()) {
-            "Failed to delete existing revision file"
-        }
+        val revisionArchiveFile = itemDir.resolve("$revisionId.zip.part")
+
+        // Partial downloads of other revisions will not be resumed anymore
+        itemDir.listFiles { file -> file.isFile && file != revisionArchiveFile }?.forEach(File::delete)
 
         val revisionDir = itemDir.resolve(revisionId.toString())
         val previousRevisionDir = installedRevisionId?.let { itemDir.resolve(it.toString()) }
 
-        try {
-            val taskProgressUpdater = subTask?.let { subTask ->
-                OkHttpProgressInterceptor.ProgressListener { bytesRead, contentLength, _ ->
-                    subTask.update(bytesRead, contentLength)
-                }
+        val taskProgressUpdater = subTask?.let { subTask ->
+            OkHttpProgressInterceptor.ProgressListener { bytesRead, contentLength, _ ->
+                subTask.update(bytesRead, contentLength)
             }
+        }
 
-            download(revisionUrl, revisionArchiveFile, progressListener = taskProgressUpdater)
-            // TODO: Check checksum
+        // Keep the partial file if the download fails, so the next attempt continues from there
+        downloadResumable(revisionUrl, revisionArchiveFile, progressListener = taskProgressUpdater)
+
+        try {
+            // TODO: Check checksum, once the marketplace API publishes one
+            verifyZip(revisionArchiveFile)
+
+            if (revisionDir.exists()) {
+                revisionDir.deleteRecursively()
+            }
             extractZip(revisionArchiveFile, revisionDir)
 
             installedRevisionId = revisionId
@@ -132,6 +149,7 @@ data class SubscribedItem(val name: String, val id: Int, val type: MarketplaceIt
 
             throw exception
         } finally {
+            // Either installed or not a valid archive, which would not get better by resuming
             revisionArchiveFile.delete()
         }
 
@@ -141,11 +159,12 @@ data class SubscribedItem(val name: String, val id: Int, val type: MarketplaceIt
             logger.warn("Failed to delete previous revision directory", exception)
         }
 
-        // Reload the item type's manager on the render thread.
-        withContext(MinecraftDispatcher) {
-            type.reload()
+        if (reload) {
+            // Reload the item type's manager on the render thread.
+            withContext(MinecraftDispatcher) {
+                type.reload()
+            }
         }
     }
 
-
 }
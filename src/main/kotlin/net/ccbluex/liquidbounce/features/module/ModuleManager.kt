@@ -92,6 +92,7 @@ import net.ccbluex.liquidbounce.features.module.modules.world.packetmine.ModuleP
 import net.ccbluex.liquidbounce.features.module.modules.world.scaffold.ModuleScaffold
 import net.ccbluex.liquidbounce.features.module.modules.world.traps.ModuleAutoTrap
 import net.ccbluex.liquidbounce.script.ScriptApiRequired
+import net.ccbluex.liquidbounce.utils.client.StartupTrace
 import net.ccbluex.liquidbounce.utils.client.inGame
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
@@ -107,6 +108,13 @@ object ModuleManager : EventListener, Collection<ClientModule> by modules {
 
     val modulesConfigurable = ConfigSystem.root("modules", modules)
 
+    /**
+     * Increased whenever a module is added or removed, so views of the module set know when to refresh
+     */
+    @Volatile
+    var modificationCount = 0
+        private set
+
     /**
      * Handles keystrokes for module binds.
      * This also runs in GUIs, so that if a GUI is opened while a key is pressed,
@@ -436,9 +444,11 @@ object ModuleManager : EventListener, Collection<ClientModule> by modules {
         )
 
         builtin.forEach { module ->
-            addModule(module)
-            module.walkKeyPath()
-            module.verifyFallbackDescription()
+            StartupTrace.span(module.name, StartupTrace.MODULE) {
+                addModule(module)
+                module.walkKeyPath()
+                module.verifyFallbackDescription()
+            }
         }
     }
 
@@ -446,6 +456,7 @@ object ModuleManager : EventListener, Collection<ClientModule> by modules {
         if (!modules.add(module)) {
             error("Module '${module.name}' is already registered.")
         }
+        modificationCount++
         module.initConfigurable()
         module.onRegistration()
     }
@@ -454,6 +465,7 @@ object ModuleManager : EventListener, Collection<ClientModule> by modules {
         if (!modules.remove(module)) {
             error("Module '${module.name}' is not registered.")
         }
+        modificationCount++
         if (module.running) {
             module.onDisabled()
         }
@@ -462,6 +474,7 @@ object ModuleManager : EventListener, Collection<ClientModule> by modules {
 
     fun clear() {
         modules.clear()
+        modificationCount++
     }
 
     /**
@@ -55,6 +55,13 @@ object AutoBowAutoShootFeature : ToggleableConfigurable(ModuleAutoBow, "AutoShoo
 
     private var forceUncharged = false
 
+    private const val SIMULATED_TICKS = 40
+
+    /**
+     * Player hitbox at the origin, expanded by the size of the arrow
+     */
+    private val PLAYER_HIT_BOX = Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3).expand(0.3)
+
     @Suppress("unused")
     private val tickHandler = handler<GameTickEvent> {
         forceUncharged = false
@@ -125,18 +132,13 @@ object AutoBowAutoShootFeature : ToggleableConfigurable(ModuleAutoBow, "AutoShoo
 
         val players = findAndBuildSimulatedPlayers()
 
-        for (i in 0 until 40) {
+        for (i in 0 until SIMULATED_TICKS) {
             val lastPos = arrow.pos
 
             arrow.tick()
 
             players.forEach { (entity, player) ->
-                val playerSnapshot = player.getSnapshotAt(i)
-
-                val playerHitBox =
-                    Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3)
-                        .expand(0.3)
-                        .offset(playerSnapshot.pos)
+                val playerHitBox = PLAYER_HIT_BOX.offset(player.getPosAt(i))
 
                 val raycastResult = playerHitBox.raycast(lastPos, arrow.pos)
 
@@ -150,12 +152,12 @@ object AutoBowAutoShootFeature : ToggleableConfigurable(ModuleAutoBow, "AutoShoo
     }
 
     private fun findAndBuildSimulatedPlayers(): List<Pair<AbstractClientPlayerEntity, SimulatedPlayerCache>> {
-        return world.players.filter {
+        val players = world.players.filter {
             it != player &&
                 Line(player.pos, player.rotationVector).squaredDistanceTo(it.pos) < 10.0 * 10.0
-        }.map {
-            Pair(it, PlayerSimulationCache.getSimulationForOtherPlayers(it))
         }
+
+        return players.zip(PlayerSimulationCache.simulateOtherPlayers(players, SIMULATED_TICKS))
     }
 
     override fun onDisabled() {
@@ -190,12 +190,12 @@ abstract class PredictFeature(name: String) : ToggleableConfigurable(ModuleCryst
 
 object SelfPredict : PredictFeature("Self") {
     override fun getSnapshotPos(player: PlayerEntity?, ticks: Int): Vec3d {
-        return PlayerSimulationCache.getSimulationForLocalPlayer().getSnapshotAt(ticks).pos
+        return PlayerSimulationCache.getSimulationForLocalPlayer().getPosAt(ticks)
     }
 }
 
 object TargetPredict : PredictFeature("Target") {
     override fun getSnapshotPos(player: PlayerEntity?, ticks: Int): Vec3d {
-        return PlayerSimulationCache.getSimulationForOtherPlayers(player!!).getSnapshotAt(ticks).pos
+        return PlayerSimulationCache.getSimulationForOtherPlayers(player!!).getPosAt(ticks)
     }
 }
@@ -36,6 +36,7 @@ import net.minecraft.block.Block
 import net.minecraft.block.BlockState
 import net.minecraft.client.util.math.MatrixStack
 import net.minecraft.util.math.BlockPos
+import java.util.function.Predicate
 
 /**
  * BlockESP module
@@ -185,7 +186,9 @@ object ModuleBlockESP : ClientModule("BlockESP", Category.RENDER) {
         ChunkScanner.unsubscribe(BlockTracker)
     }
 
-    private object BlockTracker : AbstractBlockLocationTracker.State2BlockPos<Block>() {
+    private object BlockTracker : AbstractBlockLocationTracker.ChunkIndexed<Block>() {
+        override val chunkScanFilter = Predicate<BlockState> { it.block in targets }
+
         override fun getStateFor(pos: BlockPos, state: BlockState): Block? =
             state.block?.takeIf { it in targets }
     }
@@ -49,6 +49,7 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3d
 import java.awt.Color
+import java.util.function.Predicate
 
 /**
  * StorageESP module
@@ -266,7 +267,9 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
         }
     }
 
-    private object StorageScanner : AbstractBlockLocationTracker.State2BlockPos<ChestType>() {
+    private object StorageScanner : AbstractBlockLocationTracker.ChunkIndexed<ChestType>() {
+        override val chunkScanFilter = Predicate<BlockState> { it.hasBlockEntity() }
+
         override fun getStateFor(pos: BlockPos, state: BlockState): ChestType? {
             val chunk = mc.world?.getChunk(pos) ?: return null
             return chunk.getBlockEntity(pos)?.categorize()
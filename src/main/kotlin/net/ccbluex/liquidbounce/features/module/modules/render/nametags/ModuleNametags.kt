@@ -18,6 +18,7 @@
  */
 package net.ccbluex.liquidbounce.features.module.modules.render.nametags
 
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.event.computedOn
 import net.ccbluex.liquidbounce.event.events.GameTickEvent
 import net.ccbluex.liquidbounce.event.events.OverlayRenderEvent
@@ -31,7 +32,7 @@ import net.ccbluex.liquidbounce.render.renderEnvironmentForGUI
 import net.ccbluex.liquidbounce.utils.entity.RenderedEntities
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.FIRST_PRIORITY
 import net.ccbluex.liquidbounce.utils.math.sq
-import kotlin.math.abs
+import net.minecraft.entity.Entity
 
 /**
  * Nametags module
@@ -49,22 +50,37 @@ object ModuleNametags : ClientModule("Nametags", Category.RENDER) {
     val fontRenderer
         get() = FontManager.FONT_RENDERER
 
+    /**
+     * The nametags of all rendered entities, kept across ticks so their text is only rebuilt when it changes
+     */
+    private val nametags = Reference2ObjectOpenHashMap<Entity, Nametag>()
+
     private val nametagsToRender by computedOn<GameTickEvent, MutableList<Nametag>>(
         initialValue = mutableListOf()
     ) { _, list ->
         list.clear()
-        collectAndSortNametagsToRender(list)
+        collectNametagsToRender(list)
         list
     }
 
+    /**
+     * The nametags on screen in the current frame, reused between frames
+     */
+    private val visibleNametags = ArrayList<Nametag>()
+
+    private var currentTick = 0
+
     @Suppress("unused")
     private val worldChangeHandler = handler<WorldChangeEvent> {
         nametagsToRender.clear()
+        nametags.clear()
     }
 
     override fun onDisabled() {
         RenderedEntities.unsubscribe(this)
         nametagsToRender.clear()
+        nametags.clear()
+        visibleNametags.clear()
     }
 
     override fun onEnabled() {
@@ -92,16 +108,16 @@ object ModuleNametags : ClientModule("Nametags", Category.RENDER) {
         drawnEnchantmentAreas.clear()
         nametagsToRender.forEach { it.calculatePosition(tickDelta) }
 
-        val filteredNameTags = nametagsToRender.filterTo(mutableListOf()) { it.position != null }
+        val filteredNameTags = visibleNametags
+        filteredNameTags.clear()
+        nametagsToRender.filterTo(filteredNameTags) { it.position != null }
         if (filteredNameTags.isEmpty()) {
             return
         }
 
         val nametagsCount = filteredNameTags.size.toFloat()
 
-        filteredNameTags.sortBy { tag ->
-            tag.entity.squaredDistanceTo(mc.cameraEntity)
-        }
+        filteredNameTags.sortWith(BY_CAMERA_DISTANCE)
 
         filteredNameTags.forEachIndexed { index, nametagInfo ->
             val pos = nametagInfo.position!!
@@ -113,24 +129,33 @@ object ModuleNametags : ClientModule("Nametags", Category.RENDER) {
                 drawNametag(nametagInfo, pos.copy(z = renderZ))
             }
         }
+
+        filteredNameTags.clear()
     }
 
     /**
-     * Collects all entities that should be rendered, gets the screen position, where the name tag should be displayed,
-     * add what should be rendered ([Nametag]). The nametags are sorted in order of rendering.
+     * Collects the nametags of all entities that should be rendered and updates what should be rendered.
+     * Nametags of entities which are no longer rendered are evicted. The nametags are sorted for rendering per frame.
      */
-    private fun collectAndSortNametagsToRender(list: MutableList<Nametag>) {
+    private fun collectNametagsToRender(list: MutableList<Nametag>) {
         val maximumDistanceSquared = maximumDistance.sq()
+        val tick = ++currentTick
 
         for (entity in RenderedEntities) {
+            val nametag = nametags.getOrPut(entity) { Nametag(entity) }
+            nametag.lastSeenTick = tick
+
             if (entity.squaredDistanceTo(mc.cameraEntity) > maximumDistanceSquared) {
                 continue
             }
 
-            list += Nametag(entity)
+            nametag.update()
+            list += nametag
         }
 
-        list.sortByDescending { abs(it.entity.z - player.pos.z) }
+        nametags.values.removeIf { it.lastSeenTick != tick }
     }
 
+    private val BY_CAMERA_DISTANCE = Comparator.comparingDouble(Nametag::cameraDistanceSq)
+
 }
@@ -18,7 +18,10 @@
  */
 package net.ccbluex.liquidbounce.features.module.modules.render.nametags
 
+import net.ccbluex.liquidbounce.render.engine.font.FontRenderer
+import net.ccbluex.liquidbounce.render.engine.font.processor.TextProcessor
 import net.ccbluex.liquidbounce.render.engine.type.Vec3
+import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.entity.interpolateCurrentPosition
 import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.entity.Entity
@@ -26,28 +29,82 @@ import net.minecraft.entity.LivingEntity
 import net.minecraft.item.ItemStack
 import net.minecraft.text.Text
 
-class Nametag private constructor(
-    val entity: Entity,
+/**
+ * The nametag of an [entity]. It is kept across ticks, its text is only built and processed again
+ * when one of its inputs changed.
+ */
+class Nametag(val entity: Entity) {
+
+    private var content: NametagTextFormatter.Content? = null
+
     /**
      * The text to render as nametag
      */
-    val text: Text,
+    var text: Text = Text.empty()
+        private set
+
+    private var processedText: TextProcessor.ProcessedText? = null
+    private var processedBy: FontRenderer? = null
+
     /**
      * The items that should be rendered above the name tag
      */
-    val items: List<ItemStack>
-) {
+    var items: List<ItemStack> = emptyList()
+        private set
 
     var position: Vec3? = null
         private set
 
-    constructor(entity: Entity) : this(entity, NametagTextFormatter(entity).format(), createItemList(entity))
+    /**
+     * The squared distance to the camera at the time the [position] was calculated
+     */
+    var cameraDistanceSq = 0.0
+        private set
+
+    /**
+     * The tick in which the entity was last seen, used to evict nametags of entities which are gone.
+     */
+    internal var lastSeenTick = 0
+
+    /**
+     * Checks the inputs of the text and the items, and rebuilds them if they changed.
+     */
+    fun update() {
+        val content = NametagTextFormatter(entity).content()
+
+        if (content != this.content) {
+            this.content = content
+            this.text = content.format()
+            this.processedText = null
+        }
+
+        if (!hasSameItems(entity, items)) {
+            items = createItemList(entity)
+        }
+    }
+
+    /**
+     * The [text] processed by [fontRenderer], processed again only if the text or the renderer changed.
+     */
+    fun processedText(fontRenderer: FontRenderer): TextProcessor.ProcessedText {
+        val processedText = this.processedText
+
+        if (processedText != null && processedBy === fontRenderer) {
+            return processedText
+        }
+
+        return fontRenderer.process(text).also {
+            this.processedText = it
+            this.processedBy = fontRenderer
+        }
+    }
 
     fun calculatePosition(tickDelta: Float) {
         val nametagPos = entity.interpolateCurrentPosition(tickDelta)
             .add(0.0, entity.getEyeHeight(entity.pose) + 0.55, 0.0)
 
         position = WorldToScreen.calculateScreenPos(nametagPos)
+        cameraDistanceSq = mc.cameraEntity?.let(entity::squaredDistanceTo) ?: 0.0
     }
 
     companion object {
@@ -71,7 +128,35 @@ class Nametag private constructor(
             return listOf(firstHandItem) + armorItems + secondHandItem
         }
 
+        /**
+         * Whether the entity still holds and wears the same stacks as in [items], in the order of [createItemList].
+         * Changes within a stack, like damage or enchantments, are rendered anyway since the stacks are shared.
+         */
+        private fun hasSameItems(entity: Entity, items: List<ItemStack>): Boolean {
+            if (entity !is LivingEntity) {
+                return items.isEmpty()
+            }
+
+            if (items.isEmpty()) {
+                return false
+            }
+
+            val handItems = entity.handItems.iterator()
+            if (items.first() !== handItems.next() || items.last() !== handItems.next()) {
+                return false
+            }
+
+            // The armor is stored in reverse between the hand items
+            var index = items.size - 1
+            for (armorItem in entity.armorItems) {
+                if (--index < 1 || items[index] !== armorItem) {
+                    return false
+                }
+            }
+
+            return index == 1
+        }
+
     }
 
 }
-
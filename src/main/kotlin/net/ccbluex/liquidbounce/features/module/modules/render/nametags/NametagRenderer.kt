@@ -64,7 +64,7 @@ class NametagRenderer {
 
         val x =
             ModuleNametags.fontRenderer.draw(
-                ModuleNametags.fontRenderer.process(nametag.text),
+                nametag.processedText(ModuleNametags.fontRenderer),
                 0f,
                 0f,
                 shadow = true,
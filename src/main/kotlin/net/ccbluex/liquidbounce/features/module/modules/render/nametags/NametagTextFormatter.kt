@@ -38,99 +38,120 @@ import kotlin.math.roundToInt
 
 @Suppress("MagicNumber")
 class NametagTextFormatter(private val entity: Entity) {
-    fun format(): Text {
-        val outputText = Text.empty()
 
-        if (NametagShowOptions.DISTANCE.isShowing()) {
-            outputText.append(this.distanceText).append(" ")
-        }
-        if (NametagShowOptions.PING.isShowing()) {
-            outputText.append(this.pingText).append(" ")
-        }
+    /**
+     * Everything the nametag text depends on, equal contents result in the same text.
+     *
+     * A value is null if it is not shown.
+     */
+    data class Content(
+        val distance: Int?,
+        val showPing: Boolean,
+        val ping: Int?,
+        val name: Text,
+        val nameColor: TextColor?,
+        val showHealth: Boolean,
+        val health: Int?,
+        val isBot: Boolean
+    ) {
+
+        fun format(): Text {
+            val outputText = Text.empty()
+
+            if (distance != null) {
+                outputText.append(distanceText(distance)).append(" ")
+            }
+            if (showPing) {
+                outputText.append(pingText(ping)).append(" ")
+            }
 
-        val name = entity.displayName!!
-        val nameColor = this.nameColor
+            val nameText: Text = if (nameColor != null) {
+                name.string.asText().withColor(nameColor)
+            } else {
+                name
+            }
 
-        val nameText: Text = if (nameColor != null) {
-            name.string.asText().withColor(nameColor)
-        } else {
-            name
-        }
+            outputText.append(nameText)
 
-        outputText.append(nameText)
+            if (showHealth) {
+                outputText.append(" ").append(healthText(health))
+            }
 
-        if (NametagShowOptions.HEALTH.isShowing()) {
-            outputText.append(" ").append(this.healthText)
-        }
+            if (isBot) {
+                outputText.append(" ").append("Bot".asText().formatted().bold(true).withColor(Formatting.RED))
+            }
 
-        if (this.isBot) {
-            outputText.append(" ").append("Bot".asText().formatted().bold(true).withColor(Formatting.RED))
+            return outputText
         }
 
-        return outputText
     }
 
-    private val isBot = ModuleAntiBot.isBot(entity)
-
-    private val nameColor: TextColor?
-        get() {
-            val tagColor = EntityTaggingManager.getTag(this.entity).color
-
-            return when {
-                isBot -> Formatting.DARK_AQUA.toTextColor()
-                entity.isInvisible -> Formatting.GOLD.toTextColor()
-                entity.isSneaking -> Formatting.DARK_RED.toTextColor()
-                tagColor != null -> TextColor.fromRgb(tagColor.toARGB())
-                else -> null
-            }
-        }
+    fun format(): Text = content().format()
+
+    fun content(): Content {
+        val isBot = ModuleAntiBot.isBot(entity)
+        val showPing = NametagShowOptions.PING.isShowing()
+        val showHealth = NametagShowOptions.HEALTH.isShowing()
+
+        return Content(
+            distance = if (NametagShowOptions.DISTANCE.isShowing()) player.distanceTo(entity).roundToInt() else null,
+            showPing = showPing,
+            ping = if (showPing) (entity as? PlayerEntity)?.ping else null,
+            name = entity.displayName!!,
+            nameColor = nameColor(isBot),
+            showHealth = showHealth,
+            health = if (showHealth) (entity as? LivingEntity)?.getActualHealth()?.toInt() else null,
+            isBot = isBot
+        )
+    }
 
-    private val distanceText: Text
-        get() {
-            val playerDistanceRounded = player.distanceTo(entity).roundToInt()
+    private fun nameColor(isBot: Boolean): TextColor? {
+        val tagColor = EntityTaggingManager.getTag(this.entity).color
 
-            return "${playerDistanceRounded}m".asText().formatted(Formatting.GRAY)
+        return when {
+            isBot -> Formatting.DARK_AQUA.toTextColor()
+            entity.isInvisible -> Formatting.GOLD.toTextColor()
+            entity.isSneaking -> Formatting.DARK_RED.toTextColor()
+            tagColor != null -> TextColor.fromRgb(tagColor.toARGB())
+            else -> null
         }
-
-    private fun getPing(entity: Entity): Int? {
-        return (entity as? PlayerEntity)?.ping
     }
 
-    private val pingText: Text
-        get() {
-            val playerPing = getPing(entity) ?: return Text.of("")
-
-            val coloringBasedOnPing = when {
-                playerPing > 200 -> Formatting.RED
-                playerPing > 100 -> Formatting.YELLOW
-                else -> Formatting.GREEN
-            }
+}
 
-            return regular(" [")
-                .append(
-                    (playerPing.toString() + "ms").asText().formatted(coloringBasedOnPing)
-                )
-                .append(regular("]"))
-        }
+private fun distanceText(distance: Int): Text {
+    return "${distance}m".asText().formatted(Formatting.GRAY)
+}
 
-    private val healthText: Text
-        get() {
-            if (entity !is LivingEntity) {
-                return regular("")
-            }
+@Suppress("MagicNumber")
+private fun pingText(ping: Int?): Text {
+    ping ?: return Text.of("")
 
-            val actualHealth = entity.getActualHealth().toInt()
+    val coloringBasedOnPing = when {
+        ping > 200 -> Formatting.RED
+        ping > 100 -> Formatting.YELLOW
+        else -> Formatting.GREEN
+    }
 
-            val healthColor = when {
-                // Perhaps you should modify the values here
-                actualHealth >= 14 -> Formatting.GREEN
-                actualHealth >= 8 -> Formatting.YELLOW
-                else -> Formatting.RED
-            }
+    return regular(" [")
+        .append(
+            (ping.toString() + "ms").asText().formatted(coloringBasedOnPing)
+        )
+        .append(regular("]"))
+}
 
-            return "$actualHealth HP".asText().formatted(healthColor)
+@Suppress("MagicNumber")
+private fun healthText(health: Int?): Text {
+    health ?: return regular("")
+
+    val healthColor = when {
+        // Perhaps you should modify the values here
+        health >= 14 -> Formatting.GREEN
+        health >= 8 -> Formatting.YELLOW
+        else -> Formatting.RED
+    }
 
-        }
+    return "$health HP".asText().formatted(healthColor)
 }
 
 private fun Formatting.toTextColor(): TextColor {
@@ -36,6 +36,7 @@ import net.ccbluex.liquidbounce.utils.math.toFixed
 import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.ccbluex.liquidbounce.utils.render.trajectory.TrajectoryData
 import net.ccbluex.liquidbounce.utils.render.trajectory.TrajectoryInfoRenderer
+import net.ccbluex.liquidbounce.utils.render.trajectory.TrajectorySimulationCache
 import net.minecraft.entity.Ownable
 import net.minecraft.entity.player.PlayerEntity
 import net.minecraft.util.math.Vec3d
@@ -163,8 +164,11 @@ object ModuleTrajectories : ClientModule("Trajectories", Category.RENDER) {
     private val simulationResults =
         mutableListOf<Pair<TrajectoryInfoRenderer, TrajectoryInfoRenderer.SimulationResult>>()
 
+    private val simulationCache = TrajectorySimulationCache(this)
+
     override fun onDisabled() {
         simulationResults.clear()
+        simulationCache.clear()
     }
 
     val renderHandler = handler<WorldRenderEvent> { event ->
@@ -188,7 +192,7 @@ object ModuleTrajectories : ClientModule("Trajectories", Category.RENDER) {
             val color = TrajectoryData.getColorForEntity(it)
 
             simulationResults += trajectoryRenderer to trajectoryRenderer.drawTrajectoryForProjectile(
-                maxSimulatedTicks,
+                simulationCache.simulate(it, trajectoryRenderer, maxSimulatedTicks),
                 event,
                 trajectoryColor = color,
                 blockHitColor = color,
@@ -205,7 +209,11 @@ object ModuleTrajectories : ClientModule("Trajectories", Category.RENDER) {
             drawHypotheticalTrajectory(player, event)
         }
 
+        simulationCache.evictUnused()
+
         debugParameter("TrajectoryCount") { simulationResults.size }
+        debugParameter("SimulationCacheHits") { simulationCache.hits }
+        debugParameter("SimulationCacheMisses") { simulationCache.misses }
     }
 
     /**
@@ -238,7 +246,7 @@ object ModuleTrajectories : ClientModule("Trajectories", Category.RENDER) {
         )
 
         simulationResults += renderer to renderer.drawTrajectoryForProjectile(
-            maxSimulatedTicks,
+            simulationCache.simulate(otherPlayer, renderer, maxSimulatedTicks),
             event,
             trajectoryColor = Color4b.WHITE,
             blockHitColor = Color4b(0, 160, 255, 150),
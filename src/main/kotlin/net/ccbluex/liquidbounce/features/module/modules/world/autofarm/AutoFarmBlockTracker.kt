@@ -33,7 +33,7 @@ enum class AutoFarmTrackedState {
     SOUL_SAND,
 }
 
-object AutoFarmBlockTracker : AbstractBlockLocationTracker.State2BlockPos<AutoFarmTrackedState>() {
+object AutoFarmBlockTracker : AbstractBlockLocationTracker.ChunkIndexed<AutoFarmTrackedState>() {
     override fun getStateFor(pos: BlockPos, state: BlockState): AutoFarmTrackedState? {
         // Should be destroyed? e.g., Melon block, Pumpkin block
         if (pos.readyForHarvest(state)) {
@@ -22,10 +22,16 @@ package net.ccbluex.liquidbounce.integration.interop.protocol.event
 import com.google.gson.stream.JsonWriter
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.event.*
+import net.ccbluex.liquidbounce.event.events.ClientPlayerDataEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerInventoryEvent
 import net.ccbluex.liquidbounce.integration.interop.ClientInteropServer.httpServer
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.minecraft.util.Util
 import org.apache.commons.io.output.StringBuilderWriter
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
 
 internal object SocketEventListener : EventListener {
 
@@ -40,6 +46,30 @@ internal object SocketEventListener : EventListener {
 
     private val writeBuffer = ThreadLocal.withInitial { StringBuilderWriter(DEFAULT_BUFFER_SIZE) }
 
+    /**
+     * Topics carrying a full snapshot of some state, e.g. the player inventory, with their maximum rate.
+     *
+     * Snapshots arriving faster than that are coalesced, only the latest one is sent.
+     * A snapshot which serializes to the same JSON as the previously sent one is dropped.
+     */
+    private val stateTopics: Map<Class<out Event>, StateTopic> = mapOf(
+        ClientPlayerDataEvent::class.java to StateTopic(intervalMillis = 100),
+        ClientPlayerInventoryEvent::class.java to StateTopic(intervalMillis = 100)
+    )
+
+    private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "WebSocket Event Scheduler").apply {
+            isDaemon = true
+        }
+    }
+
+    private val broadcasts = LongAdder()
+    private val coalesced = LongAdder()
+    private val unchanged = LongAdder()
+    private val bytes = LongAdder()
+    private val serializeNanos = LongAdder()
+    private val maxSerializeNanos = AtomicLong()
+
     fun registerAll() {
         events.keys.forEach { register(it) }
     }
@@ -67,7 +97,21 @@ internal object SocketEventListener : EventListener {
         EventManager.unregisterEventHook(eventClass, eventHook)
     }
 
-    private fun writeToSockets(event: Event) = Util.getMainWorkerExecutor().execute {
+    private fun writeToSockets(event: Event) {
+        val topic = stateTopics[event.javaClass]
+
+        if (topic != null) {
+            topic.offer(event)
+        } else {
+            Util.getMainWorkerExecutor().execute {
+                broadcast(serialize(event) ?: return@execute)
+            }
+        }
+    }
+
+    private fun serialize(event: Event): String? {
+        val startTime = System.nanoTime()
+
         val json = writeBuffer.get().runCatching {
             JsonWriter(this).use { writer ->
                 writer.beginObject()
@@ -79,13 +123,94 @@ internal object SocketEventListener : EventListener {
             toString().also { builder.clear() }
         }.onFailure {
             logger.error("Failed to serialize event $event", it)
-        }.getOrNull() ?: return@execute
+        }.getOrNull()
+
+        val nanos = System.nanoTime() - startTime
+        serializeNanos.add(nanos)
+        maxSerializeNanos.accumulateAndGet(nanos) { a, b -> maxOf(a, b) }
+        return json
+    }
+
+    private fun broadcast(json: String) {
+        broadcasts.increment()
+        bytes.add(json.length.toLong())
 
         httpServer.webSocketController.broadcast(json) { _, t ->
             logger.error("WebSocket event broadcast failed, JSON: $json", t)
         }
     }
 
+    fun statistics() = Statistics(
+        broadcasts = broadcasts.sum(),
+        coalesced = coalesced.sum(),
+        unchanged = unchanged.sum(),
+        bytes = bytes.sum(),
+        averageSerializeNanos = serializeNanos.sum() / (broadcasts.sum() + unchanged.sum()).coerceAtLeast(1),
+        maxSerializeNanos = maxSerializeNanos.get()
+    )
+
+    data class Statistics(
+        val broadcasts: Long,
+        /**
+         * Snapshots which were replaced by a newer one before being sent
+         */
+        val coalesced: Long,
+        /**
+         * Snapshots which were not sent, as they did not differ from the previous one
+         */
+        val unchanged: Long,
+        /**
+         * Characters of JSON broadcast to each connection
+         */
+        val bytes: Long,
+        val averageSerializeNanos: Long,
+        val maxSerializeNanos: Long
+    )
+
+    private class StateTopic(intervalMillis: Long) {
+
+        private val intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis)
+
+        private var pending: Event? = null
+        private var scheduled = false
+        private var lastBroadcast = 0L
+
+        /**
+         * Only accessed by the [scheduler] thread
+         */
+        private var lastJson: String? = null
+
+        @Synchronized
+        fun offer(event: Event) {
+            if (pending != null) {
+                coalesced.increment()
+            }
+            pending = event
+
+            if (!scheduled) {
+                scheduled = true
+
+                val delay = (lastBroadcast + intervalNanos - System.nanoTime()).coerceAtLeast(0L)
+                scheduler.schedule(::flush, delay, TimeUnit.NANOSECONDS)
+            }
+        }
+
+        private fun flush() {
+            val event = synchronized(this) {
+                scheduled = false
+                lastBroadcast = System.nanoTime()
+                pending.also { pending = null }
+            } ?: return
+
+            val json = serialize(event) ?: return
+            if (json == lastJson) {
+                unchanged.increment()
+                return
+            }
 
+            lastJson = json
+            broadcast(json)
+        }
+    }
 
 }
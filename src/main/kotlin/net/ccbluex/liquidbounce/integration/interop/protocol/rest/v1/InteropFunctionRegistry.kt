@@ -74,6 +74,13 @@ internal fun registerInteropFunctions(node: Node) = node.withPath("/api/v1/clien
     get("/components", ::getComponents)
     get("/components/:id", ::getComponents)
 
+    // Profiler Functions
+    get("/profiler/events", ::getEventProfile).apply {
+        post("/start", ::postStartEventProfile)
+        post("/stop", ::postStopEventProfile)
+        post("/reset", ::postResetEventProfile)
+    }
+
     // Session Functions
     get("/session", ::getSessionInfo)
     get("/location", ::getLocationInfo)
@@ -167,6 +174,8 @@ internal fun registerInteropFunctions(node: Node) = node.withPath("/api/v1/clien
     // Texture Functions
     get("/resource", ::getResource).apply {
         get("/itemTexture", ::getItemTexture)
+        get("/itemAtlas", ::getItemAtlas)
+        get("/itemAtlas/map", ::getItemAtlasMap)
         get("/skin", ::getSkin)
     }
 
@@ -0,0 +1,57 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.client
+
+import com.google.gson.JsonObject
+import io.netty.handler.codec.http.FullHttpResponse
+import net.ccbluex.liquidbounce.config.gson.interopGson
+import net.ccbluex.liquidbounce.event.EventProfiler
+import net.ccbluex.netty.http.model.RequestObject
+import net.ccbluex.netty.http.util.httpNoContent
+import net.ccbluex.netty.http.util.httpOk
+
+// GET /api/v1/client/profiler/events
+@Suppress("UNUSED_PARAMETER")
+fun getEventProfile(requestObject: RequestObject) = httpOk(JsonObject().apply {
+    addProperty("enabled", EventProfiler.enabled)
+    addProperty("durationNanos", EventProfiler.durationNanos)
+    add("events", interopGson.toJsonTree(EventProfiler.fireCounts()))
+    add("hooks", interopGson.toJsonTree(EventProfiler.hooks()))
+})
+
+// POST /api/v1/client/profiler/events/start
+@Suppress("UNUSED_PARAMETER")
+fun postStartEventProfile(requestObject: RequestObject): FullHttpResponse {
+    EventProfiler.start()
+    return httpNoContent()
+}
+
+// POST /api/v1/client/profiler/events/stop
+@Suppress("UNUSED_PARAMETER")
+fun postStopEventProfile(requestObject: RequestObject): FullHttpResponse {
+    EventProfiler.stop()
+    return httpNoContent()
+}
+
+// POST /api/v1/client/profiler/events/reset
+@Suppress("UNUSED_PARAMETER")
+fun postResetEventProfile(requestObject: RequestObject): FullHttpResponse {
+    EventProfiler.reset()
+    return httpNoContent()
+}
@@ -116,10 +116,11 @@ data class PlayerData(
             player.experienceLevel,
             player.experienceProgress.fixNaN(),
             player.ping,
-            player.statusEffects.toList(),
-            player.mainHandStack,
-            if (shouldHideOffhand(player = player) && hideShieldSlot) ItemStack.EMPTY else player.offHandStack,
-            player.armorItems.toList(),
+            // Copies, as the data may be serialized off the client thread while the player keeps changing
+            player.statusEffects.map(::StatusEffectInstance),
+            player.mainHandStack.copy(),
+            if (shouldHideOffhand(player = player) && hideShieldSlot) ItemStack.EMPTY else player.offHandStack.copy(),
+            player.armorItems.map(ItemStack::copy),
             if (mc.player === player) ScoreboardData.fromScoreboard(player.scoreboard) else null
         )
     }
@@ -0,0 +1,92 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
+
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.item.ItemStack
+
+/**
+ * Tracks the inventory of a player slot by slot.
+ *
+ * Instead of copying the whole inventory each tick to compare it with the previous copy,
+ * only the stacks of slots which changed are copied, and a [PlayerInventoryData] is only built if any did.
+ */
+class PlayerInventoryTracker {
+
+    private val armor = SlotTracker()
+    private val main = SlotTracker()
+    private val crafting = SlotTracker()
+    private val enderChest = SlotTracker()
+
+    /**
+     * @return the new inventory if any slot changed since the last update, otherwise null
+     */
+    fun update(player: PlayerEntity): PlayerInventoryData? {
+        // Non-short-circuiting, every tracker has to see the current slots
+        val dirty = armor.update(player.inventory.armor) or
+            main.update(player.inventory.main) or
+            crafting.update(player.playerScreenHandler.craftingInput.heldStacks) or
+            enderChest.update(player.enderChestInventory.heldStacks)
+
+        if (!dirty) {
+            return null
+        }
+
+        return PlayerInventoryData(
+            armor = armor.snapshot(),
+            main = main.snapshot(),
+            crafting = crafting.snapshot(),
+            enderChest = enderChest.snapshot()
+        )
+    }
+
+    private class SlotTracker {
+
+        /**
+         * Copies of the last known stacks. A copy is replaced rather than modified, so snapshots can share them.
+         */
+        private var stacks = EMPTY
+
+        fun update(current: List<ItemStack>): Boolean {
+            if (stacks.size != current.size) {
+                stacks = Array(current.size) { current[it].copy() }
+                return true
+            }
+
+            var dirty = false
+            for (slot in stacks.indices) {
+                val stack = current[slot]
+
+                if (!ItemStack.areEqual(stacks[slot], stack)) {
+                    stacks[slot] = stack.copy()
+                    dirty = true
+                }
+            }
+
+            return dirty
+        }
+
+        fun snapshot(): List<ItemStack> = stacks.toList()
+
+        companion object {
+            private val EMPTY = emptyArray<ItemStack>()
+        }
+    }
+
+}
@@ -25,6 +25,7 @@ package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
 
 import com.google.common.base.CaseFormat
 import com.google.gson.JsonObject
+import io.netty.handler.codec.http.FullHttpResponse
 import net.ccbluex.liquidbounce.features.module.ModuleManager
 import net.ccbluex.liquidbounce.integration.interop.ClientInteropServer
 import net.ccbluex.liquidbounce.utils.client.convertToString
@@ -34,7 +35,6 @@ import net.ccbluex.liquidbounce.utils.client.toName
 import net.ccbluex.liquidbounce.utils.network.packetRegistry
 import net.ccbluex.netty.http.model.RequestObject
 import net.ccbluex.netty.http.util.httpForbidden
-import net.ccbluex.netty.http.util.httpOk
 import net.minecraft.item.BlockItem
 import net.minecraft.item.Items
 import net.minecraft.network.NetworkSide
@@ -45,6 +45,7 @@ import net.minecraft.registry.tag.ItemTags
 import net.minecraft.registry.tag.TagKey
 import net.minecraft.util.Identifier
 import net.minecraft.util.math.BlockPos
+import net.minecraft.world.WorldView
 import java.util.*
 import kotlin.jvm.optionals.getOrNull
 
@@ -170,14 +171,32 @@ private fun <T> constructMap(registry: DefaultedRegistry<T>, tagKeys: Array<TagK
 }
 
 // GET /api/v1/client/registry/:name
-@Suppress("UNUSED_PARAMETER")
-fun getRegistry(requestObject: RequestObject) = httpOk(JsonObject().apply {
+fun getRegistry(requestObject: RequestObject): FullHttpResponse {
+    val registryName = requestObject.params["name"]?.lowercase(Locale.ENGLISH)
+        ?: return httpForbidden("Missing registry name parameter")
+
+    if (registryName !in REGISTRY_NAMES) {
+        return httpForbidden("Invalid registry name: $registryName")
+    }
+
+    // Modules are the only entries which are not fixed after bootstrap
+    val version = if (registryName == "client_module") ModuleManager.modificationCount.toLong() else 0L
+
+    return RegistryResponseCache.getOrPut(registryName, version) {
+        constructRegistry(registryName)
+    }.respond(requestObject)
+}
+
+private val REGISTRY_NAMES = setOf(
+    "blocks", "items", "sounds", "statuseffects", "clientpackets", "serverpackets",
+    "entity_type", "screen_handler", "client_module"
+)
+
+private fun constructRegistry(registryName: String) = JsonObject().apply {
     fun iconUrl(id: Identifier) =
         "${ClientInteropServer.url}/api/v1/client/resource/itemTexture?id=$id"
 
-    val registryName = requestObject.params["name"]
-        ?: return httpForbidden("Missing registry name parameter")
-    when (registryName.lowercase(Locale.ENGLISH)) {
+    when (registryName) {
         "blocks" -> {
             Registries.BLOCK.forEach { block ->
                 val id = Registries.BLOCK.getId(block)
@@ -274,75 +293,87 @@ fun getRegistry(requestObject: RequestObject) = httpOk(JsonObject().apply {
             }
         }
 
-        else -> return httpForbidden("Invalid registry name: $registryName")
+        else -> error("Unknown registry $registryName")
     }
-})
-
+}
 
 // GET /api/v1/client/registry/:name/groups
-@Suppress("UNUSED_PARAMETER", "CognitiveComplexMethod")
-fun getRegistryGroups(requestObject: RequestObject) = httpOk(JsonObject().apply {
-    val registryName = requestObject.params["name"]
+fun getRegistryGroups(requestObject: RequestObject): FullHttpResponse {
+    val registryName = requestObject.params["name"]?.lowercase(Locale.ENGLISH)
         ?: return httpForbidden("Missing registry name parameter")
-    when (registryName.lowercase(Locale.ENGLISH)) {
-        "items" -> {
-            for ((k, v) in constructMap(Registries.ITEM, ACCEPTED_ITEM_TAGS)) {
-                add(
-                    k.toString(),
-                    JsonObject().apply {
-                        addProperty("relation", "group")
-                        addProperty("relative", v.toString())
-                    }
-                )
-            }
-        }
 
+    // The groups follow the tags
+    val world = mc.world
+    val version = RegistryResponseCache.tagsVersion
+
+    val response = when (registryName) {
+        "items" -> RegistryResponseCache.getOrPut("items/groups", version, ::constructItemGroups)
         "blocks" -> {
-            val parentMap = hashMapOf<Identifier, Identifier>()
-            val world = mc.world ?: return httpForbidden("No world")
+            // The pick stacks of the blocks are taken in the world
+            world ?: return httpForbidden("No world")
+            RegistryResponseCache.getOrPut("blocks/groups", version) { constructBlockGroups(world) }
+        }
 
-            Registries.BLOCK.forEach { block ->
-                val pickStack = block.getPickStack(world, BlockPos.ORIGIN, block.defaultState, false)
-                val id = Registries.BLOCK.getId(block)
+        else -> return httpForbidden("Invalid registry name: $registryName")
+    }
 
-                when (val item = pickStack.item) {
-                    is BlockItem -> {
-                        if (item.block != block) {
-                            parentMap[id] = Registries.BLOCK.getId(item.block)
-                        }
-                    }
-
-                    else -> {
-                        if (!pickStack.isEmpty) {
-                            logger.warn("Invalid pick stack for $id: $pickStack")
-                        }
-                    }
-                }
-            }
+    return response.respond(requestObject)
+}
 
-            val constructedMap = constructMap(Registries.BLOCK, ACCEPTED_BLOCK_TAGS)
+private fun constructItemGroups() = JsonObject().apply {
+    for ((k, v) in constructMap(Registries.ITEM, ACCEPTED_ITEM_TAGS)) {
+        add(
+            k.toString(),
+            JsonObject().apply {
+                addProperty("relation", "group")
+                addProperty("relative", v.toString())
+            }
+        )
+    }
+}
 
-            Registries.BLOCK.forEach { block ->
-                val id = Registries.BLOCK.getId(block)
+@Suppress("CognitiveComplexMethod")
+private fun constructBlockGroups(world: WorldView) = JsonObject().apply {
+    val parentMap = hashMapOf<Identifier, Identifier>()
 
-                val obj = when (id) {
-                    in parentMap -> JsonObject().apply {
-                        addProperty("relation", "parent")
-                        addProperty("relative", parentMap[id]!!.toString())
-                    }
+    Registries.BLOCK.forEach { block ->
+        val pickStack = block.getPickStack(world, BlockPos.ORIGIN, block.defaultState, false)
+        val id = Registries.BLOCK.getId(block)
 
-                    in constructedMap -> JsonObject().apply {
-                        addProperty("relation", "group")
-                        addProperty("relative", constructedMap[id]!!.toString())
-                    }
+        when (val item = pickStack.item) {
+            is BlockItem -> {
+                if (item.block != block) {
+                    parentMap[id] = Registries.BLOCK.getId(item.block)
+                }
+            }
 
-                    else -> return@forEach
+            else -> {
+                if (!pickStack.isEmpty) {
+                    logger.warn("Invalid pick stack for $id: $pickStack")
                 }
+            }
+        }
+    }
+
+    val constructedMap = constructMap(Registries.BLOCK, ACCEPTED_BLOCK_TAGS)
+
+    Registries.BLOCK.forEach { block ->
+        val id = Registries.BLOCK.getId(block)
 
-                add(id.toString(), obj)
+        val obj = when (id) {
+            in parentMap -> JsonObject().apply {
+                addProperty("relation", "parent")
+                addProperty("relative", parentMap[id]!!.toString())
             }
+
+            in constructedMap -> JsonObject().apply {
+                addProperty("relation", "group")
+                addProperty("relative", constructedMap[id]!!.toString())
+            }
+
+            else -> return@forEach
         }
 
-        else -> return httpForbidden("Invalid registry name: $registryName")
+        add(id.toString(), obj)
     }
-})
+}
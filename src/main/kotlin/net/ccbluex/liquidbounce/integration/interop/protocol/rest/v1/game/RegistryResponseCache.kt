@@ -0,0 +1,190 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
+
+import com.google.gson.JsonElement
+import io.netty.buffer.Unpooled
+import io.netty.handler.codec.http.DefaultFullHttpResponse
+import io.netty.handler.codec.http.FullHttpResponse
+import io.netty.handler.codec.http.HttpHeaderNames
+import io.netty.handler.codec.http.HttpHeaderValues
+import io.netty.handler.codec.http.HttpResponseStatus
+import io.netty.handler.codec.http.HttpVersion
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.ResourceReloadEvent
+import net.ccbluex.liquidbounce.event.events.TagsSynchronizeEvent
+import net.ccbluex.liquidbounce.event.events.WorldChangeEvent
+import net.ccbluex.liquidbounce.event.handler
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.netty.http.model.RequestObject
+import org.apache.commons.codec.digest.DigestUtils
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.zip.GZIPOutputStream
+import kotlin.time.measureTimedValue
+
+/**
+ * Responses smaller than this are not worth compressing
+ */
+private const val MIN_GZIP_SIZE = 1024
+
+/**
+ * A JSON response serialized once, along with its gzip variant and an entity tag of its content.
+ */
+internal class SerializedJsonResponse(json: JsonElement) {
+
+    private val bytes = json.toString().toByteArray(Charsets.UTF_8)
+
+    private val gzipBytes = if (bytes.size >= MIN_GZIP_SIZE) {
+        ByteArrayOutputStream(bytes.size / 4).also { stream ->
+            GZIPOutputStream(stream).use { it.write(bytes) }
+        }.toByteArray()
+    } else {
+        null
+    }
+
+    private val hash = DigestUtils.sha1Hex(bytes)
+
+    private val etag = "\"$hash\""
+
+    /**
+     * The gzip variant is another representation of the same content, so it needs its own tag
+     */
+    private val gzipEtag = "\"$hash-gzip\""
+
+    val size
+        get() = bytes.size
+
+    val compressedSize
+        get() = gzipBytes?.size ?: bytes.size
+
+    /**
+     * Responds with the content, gzipped if the client accepts it,
+     * or with `304 Not Modified` if the client already has it.
+     */
+    fun respond(requestObject: RequestObject): FullHttpResponse {
+        val matchingEtag = arrayOf(etag, gzipEtag).firstOrNull(requestObject::matchesEntityTag)
+        if (matchingEtag != null) {
+            return DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED).apply {
+                headers().set(HttpHeaderNames.ETAG, matchingEtag)
+                headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING)
+            }
+        }
+
+        val gzip = gzipBytes != null && requestObject.acceptsGzip()
+        val content = if (gzip) gzipBytes!! else bytes
+
+        return DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1,
+            HttpResponseStatus.OK,
+            Unpooled.wrappedBuffer(content)
+        ).apply {
+            headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+            headers().set(HttpHeaderNames.CONTENT_LENGTH, content.size)
+            headers().set(HttpHeaderNames.ETAG, if (gzip) gzipEtag else etag)
+            headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING)
+
+            if (gzip) {
+                headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP)
+            }
+        }
+    }
+
+    private fun RequestObject.acceptsGzip(): Boolean {
+        val acceptEncoding = headers.entries.firstOrNull { (name, _) ->
+            HttpHeaderNames.ACCEPT_ENCODING.contentEqualsIgnoreCase(name)
+        }?.value ?: return false
+
+        return acceptEncoding.split(',').any { candidate ->
+            val coding = candidate.substringBefore(';').trim()
+            val quality = candidate.substringAfter("q=", "1").trim().toFloatOrNull() ?: 1f
+
+            (coding.equals("gzip", ignoreCase = true) || coding == "*") && quality > 0f
+        }
+    }
+
+}
+
+/**
+ * Keeps the serialized registry responses, as the registries do not change after bootstrap.
+ *
+ * All responses are invalidated by a resource reload, as the names depend on the language.
+ * Responses which also depend on something else carry a version of it, such as the
+ * [net.ccbluex.liquidbounce.features.module.ModuleManager.modificationCount] for the modules
+ * or the [tagsVersion] for the groups.
+ */
+internal object RegistryResponseCache : EventListener {
+
+    private class Entry(val version: Long, val response: SerializedJsonResponse)
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+
+    /**
+     * Increased on every invalidation, so a response built from the state before is not kept
+     */
+    @Volatile
+    private var generation = 0
+
+    private val tagsVersionCounter = AtomicLong()
+
+    /**
+     * Increased whenever the tags might have changed. The server sends them when joining a world
+     * and again when it reloads its data packs.
+     */
+    val tagsVersion
+        get() = tagsVersionCounter.get()
+
+    /**
+     * Returns the response of [key], serializing the result of [build] if there is none of the same [version].
+     */
+    fun getOrPut(key: String, version: Long = 0, build: () -> JsonElement): SerializedJsonResponse {
+        entries[key]?.takeIf { it.version == version }?.let { return it.response }
+
+        val generation = generation
+        val (response, duration) = measureTimedValue { SerializedJsonResponse(build()) }
+        logger.debug(
+            "Serialized registry response $key in ${duration.inWholeMilliseconds} ms " +
+                "(${response.size} bytes, ${response.compressedSize} compressed)"
+        )
+
+        if (generation == this.generation) {
+            entries[key] = Entry(version, response)
+        }
+        return response
+    }
+
+    @Suppress("unused")
+    private val resourceReloadHandler = handler<ResourceReloadEvent> {
+        generation++
+        entries.clear()
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        tagsVersionCounter.incrementAndGet()
+    }
+
+    @Suppress("unused")
+    private val tagsSynchronizeHandler = handler<TagsSynchronizeEvent> {
+        tagsVersionCounter.incrementAndGet()
+    }
+
+}
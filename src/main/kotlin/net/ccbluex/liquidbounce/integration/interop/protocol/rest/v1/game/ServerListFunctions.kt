@@ -23,6 +23,19 @@ package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
 
 import com.google.gson.JsonArray
 import io.netty.handler.codec.http.FullHttpResponse
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runInterruptible
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withTimeoutOrNull
+import net.ccbluex.liquidbounce.api.core.renderScope
 import net.ccbluex.liquidbounce.config.gson.interopGson
 import net.ccbluex.liquidbounce.config.gson.serializer.minecraft.ResourcePolicy
 import net.ccbluex.liquidbounce.event.EventListener
@@ -49,12 +62,13 @@ import net.minecraft.client.network.ServerInfo
 import net.minecraft.client.network.ServerInfo.ResourcePackPolicy
 import net.minecraft.client.option.ServerList
 import net.minecraft.screen.ScreenTexts
+import net.minecraft.server.ServerMetadata
 import net.minecraft.text.Text
 import net.minecraft.util.Colors
 import net.minecraft.util.Util
 import java.net.UnknownHostException
-import java.util.concurrent.CompletableFuture
-import java.util.concurrent.Future
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.time.Duration.Companion.seconds
 
 // GET /api/v1/client/servers
 @Suppress("UNUSED_PARAMETER")
@@ -179,6 +193,29 @@ fun postOrderServers(requestObject: RequestObject): FullHttpResponse {
 
 object ActiveServerList : EventListener {
 
+    /**
+     * How many servers are connected to at the same time, the others wait for their turn
+     */
+    private const val MAX_CONCURRENT_PINGS = 8
+
+    /**
+     * How long a server keeps its turn without responding. The [serverListPinger] does not tell
+     * when a connection failed, so those only give their turn back after this.
+     * Reachable servers answer well within it, an unreachable one keeps connecting
+     * in the background without holding back the others.
+     */
+    private val PING_TIMEOUT = 2.seconds
+
+    /**
+     * How long a status is shown again instead of pinging the server, e.g. when the server list is opened again
+     */
+    private val STATUS_CACHE_DURATION = 30.seconds
+
+    /**
+     * Favicon changes of a whole batch of pings are saved at once
+     */
+    private val SAVE_DELAY = 1.seconds
+
     internal val serverList = ServerList(mc).apply { loadFile() }
 
     private val serverListPinger = MultiplayerServerListPinger()
@@ -187,16 +224,76 @@ object ActiveServerList : EventListener {
     private val cannotResolveText = Text.translatable("multiplayer.status.cannot_resolve")
         .withColor(Colors.RED)
 
-    private val pingTasks = mutableListOf<Future<*>>()
+    private val pingScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    private val pingPermits = Semaphore(MAX_CONCURRENT_PINGS)
+
+    /**
+     * Last status of each server address, see [STATUS_CACHE_DURATION]
+     */
+    private val statusCache = ConcurrentHashMap<String, CachedStatus>()
+
+    private var saveJob: Job? = null
+
+    private class CachedStatus(
+        val status: ServerInfo.Status,
+        val label: Text,
+        val playerCountLabel: Text,
+        val version: Text,
+        val protocolVersion: Int,
+        val ping: Long,
+        val players: ServerMetadata.Players?,
+        val playerListSummary: List<Text>,
+        val favicon: ByteArray?,
+        val time: Long = Util.getMeasuringTimeMs()
+    ) {
+
+        constructor(entry: ServerInfo) : this(
+            entry.status,
+            entry.label,
+            entry.playerCountLabel,
+            entry.version,
+            entry.protocolVersion,
+            entry.ping,
+            entry.players,
+            entry.playerListSummary,
+            entry.favicon
+        )
+
+        val isExpired
+            get() = Util.getMeasuringTimeMs() - time > STATUS_CACHE_DURATION.inWholeMilliseconds
+
+        /**
+         * @return whether the favicon of the [entry] changed
+         */
+        fun applyTo(entry: ServerInfo): Boolean {
+            entry.status = status
+            entry.label = label
+            entry.playerCountLabel = playerCountLabel
+            entry.version = version
+            entry.protocolVersion = protocolVersion
+            entry.ping = ping
+            entry.players = players
+            entry.playerListSummary = playerListSummary
+
+            if (favicon == null || favicon.contentEquals(entry.favicon)) {
+                return false
+            }
+
+            entry.favicon = favicon
+            return true
+        }
+
+    }
 
     private fun cancelTasks() {
-        pingTasks.forEach { it.cancel(true) }
-        pingTasks.clear()
+        pingScope.coroutineContext.cancelChildren()
         serverListPinger.cancel()
     }
 
     internal fun pingThemAll() {
         cancelTasks()
+        statusCache.values.removeIf(CachedStatus::isExpired)
+
         serverList.servers
             .distinctBy { it.address } // We do not want to ping the same server multiple times
             .forEach(this::ping)
@@ -207,35 +304,84 @@ object ActiveServerList : EventListener {
         cancelTasks()
     }
 
+    /**
+     * Shows the cached status of the server, or queues a ping if it is not fresh anymore.
+     */
     fun ping(serverEntry: ServerInfo) {
         if (serverEntry.status != ServerInfo.Status.INITIAL) {
             return
         }
 
+        val cachedStatus = statusCache[serverEntry.address]
+        if (cachedStatus != null && !cachedStatus.isExpired) {
+            if (cachedStatus.applyTo(serverEntry)) {
+                scheduleSave()
+            }
+            return
+        }
+
         serverEntry.status = ServerInfo.Status.PINGING
         serverEntry.label = ScreenTexts.EMPTY
         serverEntry.playerCountLabel = ScreenTexts.EMPTY
 
-        pingTasks += CompletableFuture.runAsync({
-            try {
-                serverListPinger.add(serverEntry, { mc.execute(serverList::saveFile) }) {
-                    serverEntry.status =
-                        if (serverEntry.protocolVersion == SharedConstants.getGameVersion().protocolVersion) {
-                            ServerInfo.Status.SUCCESSFUL
-                        } else {
-                            ServerInfo.Status.INCOMPATIBLE
-                        }
+        pingScope.launch {
+            // The turn lasts until the server responded, not only until the query is sent
+            pingPermits.withPermit {
+                val response = CompletableDeferred<Unit>()
+
+                if (runInterruptible { connect(serverEntry) { response.complete(Unit) } }) {
+                    withTimeoutOrNull(PING_TIMEOUT) {
+                        response.await()
+                    }
                 }
-            } catch (unknownHostException: UnknownHostException) {
-                serverEntry.status = ServerInfo.Status.UNREACHABLE
-                serverEntry.label = cannotResolveText
-                logger.error("Failed to ping server ${serverEntry.name} due to ${unknownHostException.message}")
-            } catch (exception: Exception) {
-                serverEntry.status = ServerInfo.Status.UNREACHABLE
-                serverEntry.label = cannotConnectText
-                logger.error("Failed to ping server ${serverEntry.name}", exception)
             }
-        }, Util.getDownloadWorkerExecutor())
+        }
+    }
+
+    /**
+     * Connects to the server and sends the status query, the response is handled by the [serverListPinger].
+     *
+     * @return whether the query was sent, [onResponse] is called once the server responded
+     */
+    private fun connect(serverEntry: ServerInfo, onResponse: () -> Unit): Boolean {
+        try {
+            serverListPinger.add(serverEntry, ::scheduleSave) {
+                serverEntry.status =
+                    if (serverEntry.protocolVersion == SharedConstants.getGameVersion().protocolVersion) {
+                        ServerInfo.Status.SUCCESSFUL
+                    } else {
+                        ServerInfo.Status.INCOMPATIBLE
+                    }
+
+                statusCache[serverEntry.address] = CachedStatus(serverEntry)
+                onResponse()
+            }
+            return true
+        } catch (unknownHostException: UnknownHostException) {
+            serverEntry.status = ServerInfo.Status.UNREACHABLE
+            serverEntry.label = cannotResolveText
+            statusCache[serverEntry.address] = CachedStatus(serverEntry)
+            logger.error("Failed to ping server ${serverEntry.name} due to ${unknownHostException.message}")
+        } catch (exception: Exception) {
+            serverEntry.status = ServerInfo.Status.UNREACHABLE
+            serverEntry.label = cannotConnectText
+            logger.error("Failed to ping server ${serverEntry.name}", exception)
+        }
+
+        return false
+    }
+
+    /**
+     * Saves the server list once no favicon changed for [SAVE_DELAY].
+     */
+    private fun scheduleSave() {
+        synchronized(this) {
+            saveJob?.cancel()
+            saveJob = renderScope.launch {
+                delay(SAVE_DELAY)
+                serverList.saveFile()
+            }
+        }
     }
 
     @Suppress("unused")
@@ -21,9 +21,18 @@
 
 package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
 
+import io.netty.buffer.Unpooled
+import io.netty.handler.codec.http.DefaultFullHttpResponse
+import io.netty.handler.codec.http.FullHttpResponse
+import io.netty.handler.codec.http.HttpHeaderNames
+import io.netty.handler.codec.http.HttpHeaderValues
+import io.netty.handler.codec.http.HttpResponseStatus
+import io.netty.handler.codec.http.HttpVersion
+import net.ccbluex.liquidbounce.render.ui.EncodedImage
 import net.ccbluex.liquidbounce.render.ui.ItemImageAtlas
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.client.world
+import net.ccbluex.liquidbounce.utils.kotlin.LruCache
 import net.ccbluex.netty.http.model.RequestObject
 import net.ccbluex.netty.http.util.httpBadRequest
 import net.ccbluex.netty.http.util.httpFileStream
@@ -35,9 +44,24 @@ import net.minecraft.registry.RegistryKey
 import net.minecraft.registry.RegistryKeys
 import net.minecraft.util.Identifier
 import java.util.*
-import javax.imageio.ImageIO
 import kotlin.jvm.optionals.getOrNull
 
+/**
+ * Item images change with the resource packs, which rebuild the atlas. The browser has to revalidate them,
+ * which is answered with `304 Not Modified` as long as the atlas did not change.
+ */
+private const val ITEM_CACHE_CONTROL = "private, no-cache"
+
+/**
+ * Skins of the same texture identifier practically never change, but the browser should still revalidate them
+ */
+private const val SKIN_CACHE_CONTROL = "private, no-cache"
+
+/**
+ * Encoded skins by texture identifier
+ */
+private val skinCache = LruCache<Identifier, EncodedImage>(128)
+
 // GET /api/v1/client/resource
 @Suppress("UNUSED_PARAMETER")
 fun getResource(requestObject: RequestObject) = run {
@@ -52,7 +76,6 @@ fun getResource(requestObject: RequestObject) = run {
 }
 
 // GET /api/v1/client/itemTexture
-@Suppress("UNUSED_PARAMETER")
 fun getItemTexture(requestObject: RequestObject) = run {
     if (!ItemImageAtlas.isAtlasAvailable) {
         return@run httpInternalServerError("Item atlas not available yet")
@@ -67,12 +90,26 @@ fun getItemTexture(requestObject: RequestObject) = run {
 
     val of = RegistryKey.of(RegistryKeys.ITEM, alternativeIdentifier)
 
-    val image = Registries.ITEM.get(of)?.let(ItemImageAtlas::getItemImage)
+    val image = Registries.ITEM.get(of)?.let(ItemImageAtlas::getEncodedItemImage)
         ?: return@run httpBadRequest("Item image not found")
 
-    val buffer = okio.Buffer()
-    ImageIO.write(image, "PNG", buffer.outputStream())
-    httpFileStream(buffer.inputStream(), contentLength = buffer.size.toInt(), contentType = "image/png")
+    httpCachedImage(requestObject, image, ITEM_CACHE_CONTROL)
+}
+
+// GET /api/v1/client/itemAtlas
+fun getItemAtlas(requestObject: RequestObject) = run {
+    val image = ItemImageAtlas.getSpriteSheet()
+        ?: return@run httpInternalServerError("Item atlas not available yet")
+
+    httpCachedImage(requestObject, image, ITEM_CACHE_CONTROL)
+}
+
+// GET /api/v1/client/itemAtlas/map
+fun getItemAtlasMap(requestObject: RequestObject) = run {
+    val map = ItemImageAtlas.getSpriteMap()
+        ?: return@run httpInternalServerError("Item atlas not available yet")
+
+    httpCached(requestObject, map.bytes, map.etag, HttpHeaderValues.APPLICATION_JSON, ITEM_CACHE_CONTROL)
 }
 
 // GET /api/v1/client/skin
@@ -81,14 +118,22 @@ fun getSkin(requestObject: RequestObject) = run {
         ?: return@run httpBadRequest("Missing UUID parameter")
     val skinTextures = world.players.find { it.uuid == uuid }?.skinTextures
         ?: DefaultSkinHelper.getSkinTextures(uuid)
-    val texture = mc.textureManager.getTexture(skinTextures.texture)
+    val textureId = skinTextures.texture
+
+    synchronized(skinCache) { skinCache[textureId] }?.let { image ->
+        return@run httpCachedImage(requestObject, image, SKIN_CACHE_CONTROL)
+    }
+
+    val texture = mc.textureManager.getTexture(textureId)
 
     if (texture is NativeImageBackedTexture) {
-        val buffer = okio.Buffer()
-        texture.image?.write(buffer) ?: return@run httpInternalServerError("Texture is not cached yet")
-        httpFileStream(buffer.inputStream(), contentLength = buffer.size.toInt(), contentType = "image/png")
+        val image = texture.image?.let(EncodedImage::of)
+            ?: return@run httpInternalServerError("Texture is not cached yet")
+
+        synchronized(skinCache) { skinCache[textureId] = image }
+        httpCachedImage(requestObject, image, SKIN_CACHE_CONTROL)
     } else {
-        val resource = mc.resourceManager.getResource(skinTextures.texture)
+        val resource = mc.resourceManager.getResource(textureId)
             .getOrNull() ?: return@run httpInternalServerError("Texture not found")
 
         resource.inputStream.use {
@@ -96,3 +141,54 @@ fun getSkin(requestObject: RequestObject) = run {
         }
     }
 }
+
+/**
+ * Responds with [image], or with `304 Not Modified` if the browser already has it.
+ */
+private fun httpCachedImage(
+    requestObject: RequestObject,
+    image: EncodedImage,
+    cacheControl: String
+) = httpCached(requestObject, image.bytes, image.etag, "image/png", cacheControl)
+
+/**
+ * Responds with [bytes], or with `304 Not Modified` if the browser already has them.
+ */
+private fun httpCached(
+    requestObject: RequestObject,
+    bytes: ByteArray,
+    etag: String,
+    contentType: CharSequence,
+    cacheControl: String
+): FullHttpResponse {
+    val response = if (requestObject.matchesEntityTag(etag)) {
+        DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED)
+    } else {
+        DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1,
+            HttpResponseStatus.OK,
+            Unpooled.wrappedBuffer(bytes)
+        ).apply {
+            headers().set(HttpHeaderNames.CONTENT_TYPE, contentType)
+            headers().set(HttpHeaderNames.CONTENT_LENGTH, bytes.size)
+        }
+    }
+
+    response.headers().set(HttpHeaderNames.ETAG, etag)
+    response.headers().set(HttpHeaderNames.CACHE_CONTROL, cacheControl)
+    return response
+}
+
+/**
+ * Whether the `If-None-Match` header of the request matches [etag]
+ */
+internal fun RequestObject.matchesEntityTag(etag: String): Boolean {
+    val ifNoneMatch = headers.entries.firstOrNull { (name, _) ->
+        HttpHeaderNames.IF_NONE_MATCH.contentEqualsIgnoreCase(name)
+    }?.value ?: return false
+
+    return ifNoneMatch.split(',').any { candidate ->
+        val tag = candidate.trim().removePrefix("W/")
+        tag == "*" || tag == etag
+    }
+}
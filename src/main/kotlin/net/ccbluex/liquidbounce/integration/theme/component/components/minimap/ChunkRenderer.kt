@@ -23,20 +23,18 @@ package net.ccbluex.liquidbounce.integration.theme.component.components.minimap
 import net.ccbluex.liquidbounce.utils.block.ChunkScanner
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
-import net.ccbluex.liquidbounce.utils.math.dotProduct
-import net.ccbluex.liquidbounce.utils.math.similarity
+import net.ccbluex.liquidbounce.utils.kotlin.getValue
 import net.minecraft.block.BlockState
 import net.minecraft.block.MapColor.Brightness
+import net.minecraft.client.texture.NativeImageBackedTexture
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.world.chunk.WorldChunk
 import org.joml.Vector2i
-import org.joml.component1
-import org.joml.component2
-import java.awt.Color
 import kotlin.math.PI
 import kotlin.math.roundToInt
 import kotlin.math.sin
+import kotlin.math.sqrt
 
 object ChunkRenderer {
     private val textureAtlasManager = MinimapTextureAtlasManager()
@@ -61,6 +59,12 @@ object ChunkRenderer {
         override val shouldCallRecordBlockOnChunkUpdate: Boolean
             get() = false
 
+        /**
+         * Heights of the chunk which is being drawn and its border columns, see [MinimapHeightmapManager.fillHalo]
+         */
+        private val halo by ThreadLocal.withInitial { IntArray(HALO_SIZE * HALO_SIZE) }
+        private val surfacePos by ThreadLocal.withInitial(BlockPos::Mutable)
+
         override fun recordBlock(
             pos: BlockPos,
             state: BlockState,
@@ -68,133 +72,180 @@ object ChunkRenderer {
         ) {
             val heightmapUpdated = heightmapManager.updatePosition(pos, state)
 
-            val positionsToUpdate =
-                if (heightmapUpdated) {
-                    arrayOf(
-                        pos,
-                        pos.add(1, 0, 0),
-                        pos.add(-1, 0, 0),
-                        pos.add(0, 0, 1),
-                        pos.add(0, 0, -1),
-                    )
-                } else {
-                    arrayOf(pos)
+            val chunkX = pos.x shr 4
+            val chunkZ = pos.z shr 4
+            val x = pos.x and 15
+            val z = pos.z and 15
+
+            if (!heightmapUpdated) {
+                drawColumns(chunkX, chunkZ, x, z, x, z, allocate = true)
+                return
+            }
+
+            // The shading of the surrounding columns depends on the changed height
+            drawColumnsAround(chunkX, chunkZ, x - 1, z - 1, x + 1, z + 1)
+        }
+
+        override fun chunkUpdate(chunk: WorldChunk) {
+            val chunkPos = chunk.pos
+
+            heightmapManager.updateChunk(chunkPos)
+
+            // The border columns of loaded neighbours, including the corners of the diagonal ones,
+            // are shaded using the heights of this chunk
+            drawColumnsAround(chunkPos.x, chunkPos.z, -1, -1, 16, 16, chunk)
+        }
+
+        /**
+         * Like [drawColumns], but the columns may reach one column into the eight neighbouring chunks
+         * (-1..16). The rectangle is clamped to each chunk it touches and every part is drawn separately.
+         * Only the chunk at [chunkX], [chunkZ] gets a texture allocated.
+         */
+        @Suppress("LongParameterList")
+        private fun drawColumnsAround(
+            chunkX: Int,
+            chunkZ: Int,
+            minX: Int,
+            minZ: Int,
+            maxX: Int,
+            maxZ: Int,
+            chunk: WorldChunk? = null,
+        ) {
+            for (offsetZ in -1..1) {
+                val fromZ = (minZ - (offsetZ shl 4)).coerceAtLeast(0)
+                val toZ = (maxZ - (offsetZ shl 4)).coerceAtMost(15)
+
+                if (fromZ > toZ) {
+                    continue
                 }
 
-            for (posToUpdate in positionsToUpdate) {
-                val color = getColor(posToUpdate.x, posToUpdate.z)
+                for (offsetX in -1..1) {
+                    val fromX = (minX - (offsetX shl 4)).coerceAtLeast(0)
+                    val toX = (maxX - (offsetX shl 4)).coerceAtMost(15)
 
-                textureAtlasManager.editChunk(ChunkPos(posToUpdate)) { texture, atlasPosition ->
-                    val (x, y) = atlasPosition.getPosOnAtlas(posToUpdate.x and 15, posToUpdate.z and 15)
+                    if (fromX > toX) {
+                        continue
+                    }
 
-                    texture.image!!.setColorArgb(x, y, color)
+                    if (offsetX == 0 && offsetZ == 0) {
+                        drawColumns(chunkX, chunkZ, fromX, fromZ, toX, toZ, allocate = true, chunk)
+                    } else {
+                        drawColumns(chunkX + offsetX, chunkZ + offsetZ, fromX, fromZ, toX, toZ)
+                    }
                 }
             }
         }
 
-        private val offsetsToCheck = arrayOf(
-            Vector2i(-1, 0),
-            Vector2i(1, 0),
-            Vector2i(0, -1),
-            Vector2i(0, 1),
-            Vector2i(-1, 1),
-            Vector2i(1, 1),
-            Vector2i(-1, -1),
-            Vector2i(1, -1),
-        )
+        /**
+         * Shades the columns [minX]..[maxX], [minZ]..[maxZ] (chunk-local) of a chunk in a single pass,
+         * straight into the atlas texture.
+         *
+         * @param allocate whether a texture should be allocated if the chunk has none yet
+         */
+        @Suppress("LongParameterList")
+        private fun drawColumns(
+            chunkX: Int,
+            chunkZ: Int,
+            minX: Int,
+            minZ: Int,
+            maxX: Int,
+            maxZ: Int,
+            allocate: Boolean = false,
+            chunk: WorldChunk? = null,
+        ) {
+            val chunk = chunk ?: mc.world?.getChunk(chunkX, chunkZ) ?: return
+            val halo = halo
+            val surfacePos = surfacePos
 
-        private val AIR_COLOR = Color(255, 207, 179).rgb
+            heightmapManager.fillHalo(chunkX, chunkZ, halo)
 
-        private fun getColor(x: Int, z: Int): Int {
-            try {
-                val chunk = mc.world?.getChunk(x shr 4, z shr 4) ?: return AIR_COLOR
+            val editor = { texture: NativeImageBackedTexture, atlasPosition: MinimapTextureAtlasManager.AtlasPosition ->
+                val image = texture.image!!
 
-                val height = heightmapManager.getHeight(x, z)
+                for (z in minZ..maxZ) {
+                    for (x in minX..maxX) {
+                        val color = getColor(chunk, halo, x, z, surfacePos)
 
-                val higherOffsets = offsetsToCheck.filter { offset ->
-                    heightmapManager.getHeight(x + offset.x, z + offset.y) > height
+                        image.setColorArgb(atlasPosition.baseXOnAtlas or x, atlasPosition.baseYOnAtlas or z, color)
+                    }
                 }
+            }
+
+            val chunkKey = ChunkPos.toLong(chunkX, chunkZ)
+            if (allocate) {
+                textureAtlasManager.editChunk(chunkKey, editor)
+            } else {
+                textureAtlasManager.editChunkIfAllocated(chunkKey, editor)
+            }
+        }
 
-                val higherOffsetVec = Vector2i(0, 0)
-                higherOffsets.forEach { higherOffsetVec.add(it) }
+        /**
+         * Offsets of the eight surrounding columns
+         */
+        private val NEIGHBOUR_X = intArrayOf(-1, 1, 0, 0, -1, 1, -1, 1)
+        private val NEIGHBOUR_Z = intArrayOf(0, 0, -1, 1, 1, 1, -1, -1)
+
+        private const val AIR_COLOR = 0xFFFFCFB3.toInt()
+
+        /**
+         * @param x chunk-local x coordinate (0-15)
+         * @param z chunk-local z coordinate (0-15)
+         */
+        private fun getColor(chunk: WorldChunk, halo: IntArray, x: Int, z: Int, surfacePos: BlockPos.Mutable): Int {
+            val worldX = chunk.pos.startX or x
+            val worldZ = chunk.pos.startZ or z
+
+            try {
+                val index = haloIndex(x, z)
+                val height = halo[index]
+
+                var higherOffsets = 0
+                var higherX = 0
+                var higherZ = 0
+
+                for (i in NEIGHBOUR_X.indices) {
+                    if (halo[index + NEIGHBOUR_Z[i] * HALO_SIZE + NEIGHBOUR_X[i]] > height) {
+                        higherOffsets++
+                        higherX += NEIGHBOUR_X[i]
+                        higherZ += NEIGHBOUR_Z[i]
+                    }
+                }
 
                 val brightness =
-                    if (higherOffsets.size < 2) {
+                    if (higherOffsets < 2) {
                         220.0 / 255.0
-                    } else if (higherOffsetVec.x == 0 && higherOffsetVec.y == 0) {
+                    } else if (higherX == 0 && higherZ == 0) {
                         130.0 / 255.0
                     } else {
-                        val similarityToSunDirection = higherOffsetVec.similarity(SUN_DIRECTION)
-                        val eee = higherOffsetVec.dotProduct(x, z).toDouble() / higherOffsetVec.length()
+                        val length = sqrt((higherX * higherX + higherZ * higherZ).toDouble())
+                        val similarityToSunDirection =
+                            (higherX * SUN_DIRECTION.x + higherZ * SUN_DIRECTION.y) / (length * SUN_DIRECTION.length())
+                        val eee = (higherX.toLong() * worldX + higherZ.toLong() * worldZ) / length
                         val sine = sin(eee * 0.5 * PI)
 
                         (190.0 + (similarityToSunDirection * 55.0) + sine * 10.0) / 255.0
                     }
 
-                val surfaceBlockPos = BlockPos(x, height, z)
-                val surfaceBlockState = chunk.getBlockState(surfaceBlockPos)
+                surfacePos.set(worldX, height, worldZ)
+                val surfaceBlockState = chunk.getBlockState(surfacePos)
 
                 if (surfaceBlockState.isAir) {
                     return AIR_COLOR
                 }
 
-                val baseColor = surfaceBlockState.getMapColor(chunk, surfaceBlockPos).getRenderColor(Brightness.HIGH)
+                val baseColor = surfaceBlockState.getMapColor(chunk, surfacePos).getRenderColor(Brightness.HIGH)
 
-                val color = Color(baseColor)
+                val red = ((baseColor shr 16 and 255) * brightness).roundToInt()
+                val green = ((baseColor shr 8 and 255) * brightness).roundToInt()
+                val blue = ((baseColor and 255) * brightness).roundToInt()
 
-                return Color(
-                    (color.red * brightness).roundToInt(),
-                    (color.green * brightness).roundToInt(),
-                    (color.blue * brightness).roundToInt(),
-                ).rgb
+                return (255 shl 24) or (red shl 16) or (green shl 8) or blue
             } catch (e: Exception) {
-                logger.error("Failed to get color for chunk at $x, $z", e)
+                logger.error("Failed to get color for chunk at $worldX, $worldZ", e)
                 return AIR_COLOR
             }
         }
 
-        override fun chunkUpdate(chunk: WorldChunk) {
-            val chunkPos = chunk.pos
-            val x = chunkPos.x
-            val z = chunkPos.z
-
-            val chunkBordersToUpdate =
-                arrayOf(
-                    Triple(ChunkPos(x + 1, z), Vector2i(0, 0), Vector2i(0, 15)),
-                    Triple(ChunkPos(x - 1, z), Vector2i(15, 0), Vector2i(15, 15)),
-                    Triple(ChunkPos(x, z + 1), Vector2i(0, 0), Vector2i(15, 0)),
-                    Triple(ChunkPos(x, z - 1), Vector2i(0, 15), Vector2i(15, 15)),
-                )
-
-            heightmapManager.updateChunk(chunkPos)
-
-            textureAtlasManager.editChunk(chunkPos) { texture, atlasPosition ->
-                for (offX in 0..15) {
-                    for (offZ in 0..15) {
-                        val (texX, texY) = atlasPosition.getPosOnAtlas(offX, offZ)
-
-                        val color = getColor(offX or (x shl 4), offZ or (z shl 4))
-
-                        texture.image!!.setColorArgb(texX, texY, color)
-                    }
-                }
-            }
-
-            for ((otherPos, from, to) in chunkBordersToUpdate) {
-                textureAtlasManager.editChunk(otherPos) { texture, atlasPosition ->
-                    for (offX in from.x..to.x) {
-                        for (offZ in from.y..to.y) {
-                            val (texX, texY) = atlasPosition.getPosOnAtlas(offX, offZ)
-
-                            val color = getColor(offX or otherPos.startX, offZ or otherPos.startZ)
-
-                            texture.image!!.setColorArgb(texX, texY, color)
-                        }
-                    }
-                }
-            }
-        }
-
         override fun clearChunk(pos: ChunkPos) {
             heightmapManager.unloadChunk(pos)
             textureAtlasManager.deallocate(pos)
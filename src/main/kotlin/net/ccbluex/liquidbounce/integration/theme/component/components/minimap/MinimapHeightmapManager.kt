@@ -20,6 +20,7 @@
  */
 package net.ccbluex.liquidbounce.integration.theme.component.components.minimap
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.minecraft.block.BlockState
@@ -27,46 +28,107 @@ import net.minecraft.block.MapColor
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.world.chunk.Chunk
-import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * Width of a heightmap halo: a chunk plus one column of each neighbour on every side
+ */
+internal const val HALO_SIZE = 18
+
+/**
+ * Index of chunk-local column [x], [z] (-1..16) in a halo filled by [MinimapHeightmapManager.fillHalo]
+ */
+@Suppress("NOTHING_TO_INLINE")
+internal inline fun haloIndex(x: Int, z: Int) = (z + 1) * HALO_SIZE + x + 1
 
 class MinimapHeightmapManager {
-    private val heightmaps = ConcurrentHashMap<ChunkPos, HeightmapForChunk>()
+    /**
+     * Heightmaps by [ChunkPos.toLong]
+     */
+    private val heightmaps = Long2ObjectOpenHashMap<HeightmapForChunk>()
+    private val lock = ReentrantReadWriteLock()
 
     fun getHeight(x: Int, z: Int): Int {
-        val chunkPos = ChunkPos(x shr 4, z shr 4)
-        val heightmap = getHeightmap(chunkPos)
+        val heightmap = getHeightmap(ChunkPos.toLong(x shr 4, z shr 4))
 
         return heightmap.getHeight(x and 15, z and 15)
     }
 
-    private fun getHeightmap(chunkPos: ChunkPos): HeightmapForChunk {
-        return heightmaps.getOrPut(chunkPos, ::HeightmapForChunk)
+    private fun getHeightmap(chunkKey: Long): HeightmapForChunk {
+        return lock.read { heightmaps.get(chunkKey) } ?: lock.write {
+            heightmaps.get(chunkKey) ?: HeightmapForChunk().also { heightmaps.put(chunkKey, it) }
+        }
     }
 
+    /**
+     * Copies the heights of the chunk at [chunkX], [chunkZ] and the adjacent columns of its eight neighbours
+     * into [halo] (see [haloIndex]), so a whole chunk can be shaded with nine map lookups instead of
+     * nine per column. Chunks without a heightmap yet read as [HeightmapForChunk.DEFAULT_HEIGHT].
+     */
+    fun fillHalo(chunkX: Int, chunkZ: Int, halo: IntArray) {
+        lock.read { fillHaloLocked(chunkX, chunkZ, halo) }
+    }
+
+    private fun fillHaloLocked(chunkX: Int, chunkZ: Int, halo: IntArray) {
+        val center = heightmaps.get(ChunkPos.toLong(chunkX, chunkZ))
+        val west = heightmaps.get(ChunkPos.toLong(chunkX - 1, chunkZ))
+        val east = heightmaps.get(ChunkPos.toLong(chunkX + 1, chunkZ))
+        val north = heightmaps.get(ChunkPos.toLong(chunkX, chunkZ - 1))
+        val south = heightmaps.get(ChunkPos.toLong(chunkX, chunkZ + 1))
+
+        for (z in 0..15) {
+            for (x in 0..15) {
+                halo[haloIndex(x, z)] = center.heightAt(x, z)
+            }
+
+            halo[haloIndex(-1, z)] = west.heightAt(15, z)
+            halo[haloIndex(16, z)] = east.heightAt(0, z)
+        }
+
+        for (x in 0..15) {
+            halo[haloIndex(x, -1)] = north.heightAt(x, 15)
+            halo[haloIndex(x, 16)] = south.heightAt(x, 0)
+        }
+
+        halo[haloIndex(-1, -1)] = heightmaps.get(ChunkPos.toLong(chunkX - 1, chunkZ - 1)).heightAt(15, 15)
+        halo[haloIndex(16, -1)] = heightmaps.get(ChunkPos.toLong(chunkX + 1, chunkZ - 1)).heightAt(0, 15)
+        halo[haloIndex(-1, 16)] = heightmaps.get(ChunkPos.toLong(chunkX - 1, chunkZ + 1)).heightAt(15, 0)
+        halo[haloIndex(16, 16)] = heightmaps.get(ChunkPos.toLong(chunkX + 1, chunkZ + 1)).heightAt(0, 0)
+    }
+
+    @Suppress("NOTHING_TO_INLINE")
+    private inline fun HeightmapForChunk?.heightAt(x: Int, z: Int) =
+        this?.getHeight(x, z) ?: HeightmapForChunk.DEFAULT_HEIGHT
+
     fun updateChunk(chunkPos: ChunkPos) {
         val chunk = mc.world?.getChunk(chunkPos.x, chunkPos.z) ?: return
 
         val heightmap = HeightmapForChunk()
 
-        heightmaps[chunkPos] = heightmap
-
         for (x in 0..15) {
             for (z in 0..15) {
                 heightmap.setHeight(x, z, chunk.calculateHeight(x, z))
             }
         }
+
+        lock.write {
+            heightmaps.put(chunkPos.toLong(), heightmap)
+        }
     }
 
     /**
      * @return true if the heightmap was changed
      */
     fun updatePosition(pos: BlockPos, newState: BlockState): Boolean {
-        val chunkPos = ChunkPos(pos)
-        val heightmap = getHeightmap(chunkPos)
+        val chunkX = pos.x shr 4
+        val chunkZ = pos.z shr 4
+        val heightmap = getHeightmap(ChunkPos.toLong(chunkX, chunkZ))
 
         val currentHeight = heightmap.getHeight(pos.x and 15, pos.z and 15)
 
-        val newHeight = mc.world!!.getChunk(chunkPos.x, chunkPos.z)
+        val newHeight = mc.world!!.getChunk(chunkX, chunkZ)
             .calculateHeightIfNeeded(currentHeight, pos, newState)
 
         return if (newHeight != null) {
@@ -131,16 +193,20 @@ class MinimapHeightmapManager {
     }
 
     fun unloadChunk(chunkPos: ChunkPos) {
-        this.heightmaps.remove(chunkPos)
+        lock.write {
+            this.heightmaps.remove(chunkPos.toLong())
+        }
     }
 
     fun unloadAllChunks() {
-        heightmaps.clear()
+        lock.write {
+            heightmaps.clear()
+        }
     }
 }
 
 class HeightmapForChunk {
-    private val heightmap = IntArray(16 * 16) { 255 }
+    private val heightmap = IntArray(16 * 16) { DEFAULT_HEIGHT }
 
     fun getHeight(
         x: Int,
@@ -156,4 +222,8 @@ class HeightmapForChunk {
     ) {
         heightmap[(z shl 4) or x] = height
     }
+
+    companion object {
+        const val DEFAULT_HEIGHT = 255
+    }
 }
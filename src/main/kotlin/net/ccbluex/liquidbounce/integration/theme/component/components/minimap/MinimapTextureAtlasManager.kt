@@ -20,6 +20,7 @@
  */
 package net.ccbluex.liquidbounce.integration.theme.component.components.minimap
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.render.engine.font.BoundingBox2f
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.minecraft.client.texture.NativeImage
@@ -49,7 +50,11 @@ class MinimapTextureAtlasManager {
     private val texture = NativeImageBackedTexture(ATLAS_SIZE * 16, ATLAS_SIZE * 16, false)
     private val availableAtlasPositions: ArrayBlockingQueue<AtlasPosition>
     private val dirtyAtlasPositions = hashSetOf<AtlasPosition>()
-    private val chunkPosAtlasPosMap = hashMapOf<ChunkPos, AtlasPosition>()
+
+    /**
+     * Atlas positions by [ChunkPos.toLong]
+     */
+    private val chunkPosAtlasPosMap = Long2ObjectOpenHashMap<AtlasPosition>()
 
     private val lock = ReentrantReadWriteLock()
 
@@ -79,11 +84,11 @@ class MinimapTextureAtlasManager {
         this.dirtyAtlasPositions.add(NOT_LOADED_ATLAS_POSITION)
     }
 
-    private fun allocate(chunkPos: ChunkPos): AtlasPosition {
+    private fun allocate(chunkKey: Long): AtlasPosition {
         val atlasPosition = availableAtlasPositions.take() ?: error("No more space in the texture atlas!")
 
         lock.write {
-            chunkPosAtlasPosMap[chunkPos] = atlasPosition
+            chunkPosAtlasPosMap.put(chunkKey, atlasPosition)
         }
 
         return atlasPosition
@@ -91,7 +96,7 @@ class MinimapTextureAtlasManager {
 
     fun deallocate(chunkPos: ChunkPos) {
         lock.write {
-            chunkPosAtlasPosMap.remove(chunkPos)?.apply(availableAtlasPositions::add)
+            chunkPosAtlasPosMap.remove(chunkPos.toLong())?.apply(availableAtlasPositions::add)
         }
     }
 
@@ -104,22 +109,45 @@ class MinimapTextureAtlasManager {
     }
 
     fun getOrNotLoadedTexture(chunkPos: ChunkPos): AtlasPosition {
-        return get(chunkPos) ?: NOT_LOADED_ATLAS_POSITION
+        return get(chunkPos.toLong()) ?: NOT_LOADED_ATLAS_POSITION
     }
 
-    fun get(chunkPos: ChunkPos): AtlasPosition? {
-        return lock.read { chunkPosAtlasPosMap[chunkPos] }
+    /**
+     * @param chunkKey the chunk position packed by [ChunkPos.toLong]
+     */
+    fun get(chunkKey: Long): AtlasPosition? {
+        return lock.read { chunkPosAtlasPosMap.get(chunkKey) }
     }
 
-    private fun getOrAllocate(chunkPos: ChunkPos): AtlasPosition {
-        return chunkPosAtlasPosMap[chunkPos] ?: allocate(chunkPos)
+    private fun getOrAllocate(chunkKey: Long): AtlasPosition {
+        return get(chunkKey) ?: allocate(chunkKey)
     }
 
+    /**
+     * @param chunkKey the chunk position packed by [ChunkPos.toLong]
+     */
     fun editChunk(
-        chunkPos: ChunkPos,
+        chunkKey: Long,
+        editor: (NativeImageBackedTexture, AtlasPosition) -> Unit,
+    ) {
+        val atlasPosition = getOrAllocate(chunkKey)
+
+        lock.write {
+            dirtyAtlasPositions.add(atlasPosition)
+        }
+
+        editor(texture, atlasPosition)
+    }
+
+    /**
+     * Like [editChunk], but does nothing if [chunkKey] has no texture yet.
+     * It will be drawn as a whole once it is loaded.
+     */
+    fun editChunkIfAllocated(
+        chunkKey: Long,
         editor: (NativeImageBackedTexture, AtlasPosition) -> Unit,
     ) {
-        val atlasPosition = getOrAllocate(chunkPos)
+        val atlasPosition = get(chunkKey) ?: return
 
         lock.write {
             dirtyAtlasPositions.add(atlasPosition)
@@ -18,9 +18,7 @@ class FontGlyphPageManager(
     additionalFonts: Collection<FontManager.FontFace> = emptySet()
 ): EventListener {
 
-    private val staticPage: List<StaticGlyphPage> = StaticGlyphPage.createGlyphPages(baseFonts.flatMap { loadedFont ->
-        loadedFont.styles.filterNotNull().flatMap { font -> BASIC_CHARS.map { ch -> FontGlyph(ch, font) } }
-    })
+    private val staticPage: List<StaticGlyphPage> = StaticGlyphPage.loadGlyphPages(baseFonts, BASIC_CHARS)
     private val dynamicPage: DynamicGlyphPage = DynamicGlyphPage(
         Dimension(1024, 1024),
         ceil(baseFonts.first().styles[0]!!.height * 2.0F).toInt()
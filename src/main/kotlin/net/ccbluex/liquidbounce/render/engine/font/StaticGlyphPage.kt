@@ -4,6 +4,7 @@ import net.ccbluex.liquidbounce.render.FontManager
 import net.ccbluex.liquidbounce.render.engine.font.GlyphPage.Companion.CharacterGenerationInfo
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.render.toNativeImage
+import net.minecraft.client.texture.NativeImage
 import net.minecraft.client.texture.NativeImageBackedTexture
 import java.awt.Dimension
 import java.awt.Point
@@ -21,32 +22,61 @@ class StaticGlyphPage(
     companion object {
         @JvmStatic
         fun createGlyphPages(chars: List<FontGlyph>): List<StaticGlyphPage> {
-            val glyphPages = mutableListOf<StaticGlyphPage>()
+            return rasterizeGlyphPages(chars).map { it.upload() }
+        }
+
+        /**
+         * Creates the pages for all [chars] of the [fonts], reading them from the [StaticGlyphPageCache]
+         * if they were created before and writing them back to it otherwise.
+         */
+        @JvmStatic
+        fun loadGlyphPages(fonts: Collection<FontManager.FontFace>, chars: CharRange): List<StaticGlyphPage> {
+            val fontIds = fonts.flatMap { face -> face.styles.filterNotNull() }
+            val key = StaticGlyphPageCache.keyOf(fonts, chars, maxTextureSize.value)
+
+            val pages = StaticGlyphPageCache.read(key, fontIds) ?: run {
+                val glyphs = fontIds.flatMap { font -> chars.map { ch -> FontGlyph(ch, font) } }
 
-            var remainingChars = chars
+                rasterizeGlyphPages(glyphs).also { StaticGlyphPageCache.write(key, fontIds, it) }
+            }
 
-            do {
-                val result = createGlyphPageWithFittingCharacters(remainingChars)
+            return pages.map { it.upload() }
+        }
+
+        /**
+         * Places and draws [chars] on as many atlases as needed. The atlases are not uploaded yet.
+         */
+        @JvmStatic
+        fun rasterizeGlyphPages(chars: List<FontGlyph>): List<RasterizedGlyphPage> {
+            val glyphPages = mutableListOf<RasterizedGlyphPage>()
+
+            // Measuring the glyphs is expensive, so it is done once instead of for every placement attempt
+            var remainingGlyphs = chars.mapNotNull { createCharacterCreationInfo(it) }
+
+            while (remainingGlyphs.isNotEmpty()) {
+                val result = createGlyphPageWithFittingCharacters(remainingGlyphs)
 
                 glyphPages.add(result.first)
 
-                remainingChars = result.second
-            } while (remainingChars.isNotEmpty())
+                remainingGlyphs = result.second
+            }
 
             return glyphPages
         }
 
         /**
-         * Creates a bitmap which contains all [chars].
+         * Creates a bitmap which contains as many of [glyphs] as possible.
          */
         @JvmStatic
-        fun createGlyphPageWithFittingCharacters(chars: List<FontGlyph>): Pair<StaticGlyphPage, List<FontGlyph>> {
-            val result: Pair<GlyphPlacementResult, List<FontGlyph>>? = tryCharacterPlacementWithShrinking(chars)
+        private fun createGlyphPageWithFittingCharacters(
+            glyphs: List<CharacterGenerationInfo>
+        ): Pair<RasterizedGlyphPage, List<CharacterGenerationInfo>> {
+            val result = tryCharacterPlacementWithShrinking(glyphs)
 
             val (res, remainingGlyphs) = result ?: error("Unable to create static atlas.")
 
-            if (res.glyphsToRender.size < chars.size) {
-                logger.warn("Failed to place all characters (${chars.size}) on the atlas, " +
+            if (res.glyphsToRender.size < glyphs.size) {
+                logger.warn("Failed to place all characters (${glyphs.size}) on the atlas, " +
                         "using a reduced charset (${res.glyphsToRender.size}) instead!")
             }
 
@@ -54,20 +84,20 @@ class StaticGlyphPage(
         }
 
         /**
-         * Tries to fit all characters on a page.
-         * If it does not fit, it reduces the list of characters to place by 20% and retries.
+         * Tries to fit all glyphs on a page.
+         * If it does not fit, it reduces the list of glyphs to place by 20% and retries.
          */
         @JvmStatic
         private fun tryCharacterPlacementWithShrinking(
-            chars: List<FontGlyph>
-        ): Pair<GlyphPlacementResult, List<FontGlyph>>? {
-            var currentLen = chars.size
+            glyphs: List<CharacterGenerationInfo>
+        ): Pair<GlyphPlacementResult, List<CharacterGenerationInfo>>? {
+            var currentLen = glyphs.size
 
             while (currentLen > 1) {
-                val result = tryCharacterPlacement(chars.subList(0, currentLen))
+                val result = tryCharacterPlacement(glyphs.subList(0, currentLen))
 
                 if (result != null) {
-                    return result to chars.subList(currentLen, chars.size)
+                    return result to glyphs.subList(currentLen, glyphs.size)
                 }
 
                 currentLen = currentLen * 4 / 5
@@ -77,25 +107,15 @@ class StaticGlyphPage(
         }
 
         @JvmStatic
-        private fun renderGlyphPage(placementPlan: GlyphPlacementResult): StaticGlyphPage {
+        private fun renderGlyphPage(placementPlan: GlyphPlacementResult): RasterizedGlyphPage {
             val atlas = createBufferedImageWithDimensions(placementPlan.atlasDimension)
 
             renderGlyphs(atlas, placementPlan.glyphsToRender)
 
             val glyphs = placementPlan.glyphsToRender
                 .map { it.fontGlyph.font to createGlyphFromGenerationInfo(it, placementPlan.atlasDimension) }
-                .toSet()
 
-            val nativeImage = atlas.toNativeImage()
-            val texture = NativeImageBackedTexture(nativeImage)
-
-            texture.bindTexture()
-            texture.image!!.upload(0, 0, 0, 0, 0, nativeImage.width, nativeImage.height, true)
-
-            return StaticGlyphPage(
-                texture,
-                glyphs,
-            )
+            return RasterizedGlyphPage(atlas.toNativeImage(), glyphs)
         }
 
         /**
@@ -104,11 +124,9 @@ class StaticGlyphPage(
          * @return null if the resulting atlas is bigger than the maximum texture size.
          */
         @JvmStatic
-        private fun tryCharacterPlacement(chars: List<FontGlyph>): GlyphPlacementResult? {
-            // Get information about the glyphs and sort them by their height
-            val glyphsToRender = chars
-                .mapNotNull { createCharacterCreationInfo(it) }
-                .sortedBy { it.glyphMetrics.bounds2D.height }
+        private fun tryCharacterPlacement(glyphs: List<CharacterGenerationInfo>): GlyphPlacementResult? {
+            // Sort the glyphs by their height
+            val glyphsToRender = glyphs.sortedBy { it.glyphMetrics.bounds2D.height }
 
             val maxTextureSize = maxTextureSize.value
 
@@ -179,4 +197,27 @@ class StaticGlyphPage(
     }
 
     private class GlyphPlacementResult(val glyphsToRender: List<CharacterGenerationInfo>, val atlasDimension: Dimension)
+
+    /**
+     * A glyph atlas that was drawn or read from the [StaticGlyphPageCache], but not uploaded yet.
+     */
+    class RasterizedGlyphPage(
+        val image: NativeImage,
+        val glyphs: List<Pair<FontManager.FontId, GlyphRenderInfo>>
+    ) {
+
+        /**
+         * Uploads the atlas, the texture takes ownership of [image].
+         * Has to be called from a thread with an OpenGL context.
+         */
+        fun upload(): StaticGlyphPage {
+            val texture = NativeImageBackedTexture(image)
+
+            texture.bindTexture()
+            texture.image!!.upload(0, 0, 0, 0, 0, image.width, image.height, true)
+
+            return StaticGlyphPage(texture, glyphs.toSet())
+        }
+
+    }
 }
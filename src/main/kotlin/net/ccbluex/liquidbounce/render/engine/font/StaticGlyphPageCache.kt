@@ -0,0 +1,187 @@
+package net.ccbluex.liquidbounce.render.engine.font
+
+import kotlinx.coroutines.launch
+import net.ccbluex.liquidbounce.api.core.ioScope
+import net.ccbluex.liquidbounce.config.ConfigSystem
+import net.ccbluex.liquidbounce.render.FontManager
+import net.ccbluex.liquidbounce.render.engine.font.StaticGlyphPage.RasterizedGlyphPage
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.io.writeAtomically
+import net.minecraft.client.texture.NativeImage
+import org.apache.commons.codec.digest.DigestUtils
+import java.awt.Dimension
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * Keeps the static glyph atlases and their glyph metrics on disk,
+ * so they only have to be drawn through AWT when the fonts change.
+ *
+ * An entry is keyed by the content of the font files, the size and style of every font,
+ * the charset and the maximum texture size, so a stale entry is never read.
+ * Only the latest entry is kept.
+ */
+internal object StaticGlyphPageCache {
+
+    /**
+     * Has to be increased whenever the format or the way glyphs are drawn changes
+     */
+    private const val VERSION = 1
+
+    private val folder = File(ConfigSystem.rootFolder, "cache/glyphs")
+
+    fun keyOf(fonts: Collection<FontManager.FontFace>, chars: CharRange, maxTextureSize: Int): String {
+        val key = buildString {
+            append(VERSION).append(';').append(chars.first.code).append('-').append(chars.last.code)
+            append(';').append(maxTextureSize)
+
+            for (face in fonts) {
+                val fileHash = face.file?.inputStream()?.use(DigestUtils::sha1Hex) ?: "system"
+                append(';').append(face.name).append(':').append(face.size).append(':').append(fileHash)
+
+                for (font in face.styles.filterNotNull()) {
+                    val awtFont = font.awtFont
+                    append(':').append(font.style).append('/').append(awtFont.fontName).append('/')
+                        .append(awtFont.style).append('/').append(awtFont.size2D).append('/')
+                        .append(awtFont.numGlyphs)
+                }
+            }
+        }
+
+        return DigestUtils.sha1Hex(key)
+    }
+
+    /**
+     * @param fonts the fonts in the same order as they were written
+     * @return the pages, or null if there is no entry for the [key] or it could not be read
+     */
+    fun read(key: String, fonts: List<FontManager.FontId>): List<RasterizedGlyphPage>? {
+        val file = File(folder, "$key.bin")
+
+        if (!file.exists()) {
+            return null
+        }
+
+        val images = mutableListOf<NativeImage>()
+        val pages = mutableListOf<RasterizedGlyphPage>()
+
+        return runCatching {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                require(input.readInt() == VERSION) { "Unsupported version" }
+
+                repeat(input.readInt()) {
+                    val image = NativeImage.read(input.readNBytes(input.readInt()).inputStream())
+                    images += image
+
+                    val dimension = Dimension(image.width, image.height)
+                    val glyphs = List(input.readInt()) {
+                        fonts[input.readInt()] to readGlyph(input, dimension)
+                    }
+
+                    pages += RasterizedGlyphPage(image, glyphs)
+                }
+            }
+
+            pages
+        }.onFailure {
+            logger.warn("Failed to read cached glyph pages, drawing them again.", it)
+
+            images.forEach(NativeImage::close)
+            file.delete()
+        }.getOrNull()
+    }
+
+    /**
+     * Writes the pages in the background. The images are copied, so the pages can be uploaded right away.
+     */
+    fun write(key: String, fonts: List<FontManager.FontId>, pages: List<RasterizedGlyphPage>) {
+        val fontIndices = fonts.withIndex().associate { (index, font) -> font to index }
+        val snapshots = pages.map { page ->
+            val copy = NativeImage(page.image.format, page.image.width, page.image.height, false)
+            copy.copyFrom(page.image)
+
+            copy to page.glyphs
+        }
+
+        ioScope.launch {
+            try {
+                folder.mkdirs()
+
+                File(folder, "$key.bin").writeAtomically { stream ->
+                    val output = DataOutputStream(stream)
+
+                    output.writeInt(VERSION)
+                    output.writeInt(snapshots.size)
+
+                    for ((image, glyphs) in snapshots) {
+                        val png = image.bytes
+                        output.writeInt(png.size)
+                        output.write(png)
+
+                        output.writeInt(glyphs.size)
+                        for ((font, glyph) in glyphs) {
+                            output.writeInt(fontIndices.getValue(font))
+                            writeGlyph(output, glyph)
+                        }
+                    }
+
+                    output.flush()
+                }
+
+                // Entries of other fonts will not be read again
+                folder.listFiles { file -> file.name != "$key.bin" }?.forEach(File::delete)
+            } catch (e: Exception) {
+                logger.warn("Failed to cache glyph pages.", e)
+            } finally {
+                snapshots.forEach { (image, _) -> image.close() }
+            }
+        }
+    }
+
+    private fun writeGlyph(output: DataOutputStream, glyph: GlyphRenderInfo) {
+        output.writeChar(glyph.char.code)
+
+        val location = glyph.atlasLocation
+        output.writeBoolean(location != null)
+        if (location != null) {
+            writeBoundingBox(output, location.pixelBoundingBox)
+        }
+
+        writeBoundingBox(output, glyph.glyphBounds)
+        output.writeBoolean(glyph.layoutInfo.useHorizontalBaseline)
+        output.writeFloat(glyph.layoutInfo.advanceX)
+        output.writeFloat(glyph.layoutInfo.advanceY)
+    }
+
+    private fun readGlyph(input: DataInputStream, atlasDimension: Dimension): GlyphRenderInfo {
+        val char = input.readChar()
+        val location = if (input.readBoolean()) {
+            GlyphAtlasLocation(readBoundingBox(input), atlasDimension)
+        } else {
+            null
+        }
+
+        return GlyphRenderInfo(
+            char,
+            atlasLocation = location,
+            glyphBounds = readBoundingBox(input),
+            layoutInfo = GlyphLayoutInfo(
+                useHorizontalBaseline = input.readBoolean(),
+                advanceX = input.readFloat(),
+                advanceY = input.readFloat()
+            )
+        )
+    }
+
+    private fun writeBoundingBox(output: DataOutputStream, box: BoundingBox2f) {
+        output.writeFloat(box.xMin)
+        output.writeFloat(box.yMin)
+        output.writeFloat(box.xMax)
+        output.writeFloat(box.yMax)
+    }
+
+    private fun readBoundingBox(input: DataInputStream) =
+        BoundingBox2f(input.readFloat(), input.readFloat(), input.readFloat(), input.readFloat())
+
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.render.ui
+
+import net.minecraft.client.texture.NativeImage
+import org.apache.commons.codec.digest.DigestUtils
+import java.awt.image.BufferedImage
+import java.io.ByteArrayOutputStream
+import javax.imageio.ImageIO
+
+/**
+ * An image encoded as PNG, or other encoded content like a JSON document,
+ * along with a strong entity tag derived from its content.
+ */
+class EncodedImage(val bytes: ByteArray) {
+
+    /**
+     * Quoted, as required for the `ETag` header
+     */
+    val etag = "\"${DigestUtils.sha1Hex(bytes)}\""
+
+    companion object {
+
+        fun of(image: BufferedImage): EncodedImage {
+            val stream = ByteArrayOutputStream(4096)
+            ImageIO.write(image, "PNG", stream)
+            return EncodedImage(stream.toByteArray())
+        }
+
+        fun of(image: NativeImage): EncodedImage {
+            val buffer = okio.Buffer()
+            image.write(buffer)
+            return EncodedImage(buffer.readByteArray())
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package net.ccbluex.liquidbounce.render.ui
 
+import com.google.gson.JsonObject
 import com.mojang.blaze3d.systems.ProjectionType
 import com.mojang.blaze3d.systems.RenderSystem
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
@@ -9,6 +10,7 @@ import net.ccbluex.liquidbounce.event.events.ResourceReloadEvent
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.features.module.MinecraftShortcuts
 import net.ccbluex.liquidbounce.utils.client.mc
+import net.ccbluex.liquidbounce.utils.kotlin.LruCache
 import net.ccbluex.liquidbounce.utils.render.toBufferedImage
 import net.ccbluex.liquidbounce.utils.render.toNativeImage
 import net.minecraft.client.gl.Framebuffer
@@ -20,6 +22,7 @@ import net.minecraft.item.Item
 import net.minecraft.registry.Registries
 import net.minecraft.registry.Registry
 import net.minecraft.util.Identifier
+import net.minecraft.util.Util
 import net.minecraft.util.math.BlockPos
 import org.joml.Matrix4f
 import org.joml.Vector2i
@@ -29,6 +32,11 @@ import kotlin.math.sqrt
 
 private const val NATIVE_ITEM_SIZE: Int = 16
 
+/**
+ * Upper bound of encoded item images kept in memory, more than there are items in vanilla
+ */
+private const val MAX_ENCODED_IMAGES: Int = 4096
+
 private class Atlas(
     val map: Map<Item, Rect2i>,
     val image: BufferedImage,
@@ -37,7 +45,66 @@ private class Atlas(
      * `minecraft:blue_wall_banner` has no texture.
      */
     val aliasMap: Map<Identifier, Identifier>
-)
+) {
+
+    /**
+     * PNG encoded item images by item identifier, encoded once after the atlas has been built
+     */
+    val encodedImages = LruCache<Identifier, EncodedImage>(MAX_ENCODED_IMAGES)
+
+    val spriteSheet by lazy { EncodedImage.of(image) }
+
+    /**
+     * The UTF-8 encoded JSON of the sprite map
+     */
+    val spriteMap by lazy { EncodedImage(createSpriteMap().toString().toByteArray(Charsets.UTF_8)) }
+
+    private fun createSpriteMap() = JsonObject().apply {
+        addProperty("etag", spriteSheet.etag)
+        addProperty("width", image.width)
+        addProperty("height", image.height)
+        add("items", JsonObject().apply {
+            for ((item, rect) in map) {
+                add(Registries.ITEM.getId(item).toString(), JsonObject().apply {
+                    addProperty("x", rect.x)
+                    addProperty("y", rect.y)
+                    addProperty("width", rect.width)
+                    addProperty("height", rect.height)
+                })
+            }
+        })
+        add("aliases", JsonObject().apply {
+            for ((alias, id) in aliasMap) {
+                addProperty(alias.toString(), id.toString())
+            }
+        })
+    }
+
+    fun encodedImageOf(item: Item): EncodedImage? {
+        val id = Registries.ITEM.getId(item)
+
+        synchronized(encodedImages) {
+            encodedImages[id]?.let { return it }
+        }
+
+        val rect = map[item] ?: return null
+        val encoded = EncodedImage.of(image.getSubimage(rect.x, rect.y, rect.width, rect.height))
+
+        synchronized(encodedImages) {
+            encodedImages[id] = encoded
+        }
+        return encoded
+    }
+
+    fun encodeAll() {
+        spriteMap
+
+        for (item in map.keys) {
+            encodedImageOf(item)
+        }
+    }
+
+}
 
 /**
  *
@@ -62,7 +129,11 @@ object ItemImageAtlas : EventListener {
 
         renderer.deleteFramebuffer()
 
-        this.atlas = Atlas(items, image, findAliases())
+        val atlas = Atlas(items, image, findAliases())
+        this.atlas = atlas
+
+        // Encode the item images up front, the UI requests hundreds of them at once
+        Util.getMainWorkerExecutor().execute(atlas::encodeAll)
     }
 
     private fun findAliases(): Map<Identifier, Identifier> {
@@ -94,6 +165,23 @@ object ItemImageAtlas : EventListener {
         return atlas!!.aliasMap[name] ?: return name
     }
 
+    /**
+     * @return the PNG encoded image of [item], or null if the atlas is not available or has no image of it
+     */
+    fun getEncodedItemImage(item: Item): EncodedImage? = this.atlas?.encodedImageOf(item)
+
+    /**
+     * @return the whole atlas as PNG, or null if the atlas is not available
+     */
+    fun getSpriteSheet(): EncodedImage? = this.atlas?.spriteSheet
+
+    /**
+     * Position of each item in the [getSpriteSheet] by item identifier, and the aliases
+     * of [resolveAliasIfPresent] as JSON, or null if the atlas is not available.
+     * It is serialized once per atlas.
+     */
+    fun getSpriteMap(): EncodedImage? = this.atlas?.spriteMap
+
     fun getItemImage(item: Item): BufferedImage? {
         val atlas = requireNotNull(this.atlas) { "Atlas is not available yet" }
         val rect = atlas.map[item] ?: return null
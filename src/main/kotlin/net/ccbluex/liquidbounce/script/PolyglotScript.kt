@@ -35,7 +35,6 @@ import net.ccbluex.liquidbounce.utils.client.*
 import net.minecraft.text.HoverEvent
 import org.graalvm.polyglot.Context
 import org.graalvm.polyglot.HostAccess
-import org.graalvm.polyglot.Source
 import org.graalvm.polyglot.Value
 import org.graalvm.polyglot.io.IOAccess
 import java.io.File
@@ -50,6 +49,12 @@ class PolyglotScript(
 ) : AutoCloseable {
 
     private val context: Context = Context.newBuilder(language)
+        .apply {
+            // The debugger instrument is configured per engine, so debugged scripts cannot share it
+            if (!debugOptions.enabled) {
+                engine(ScriptManager.engine)
+            }
+        }
         .allowHostAccess(HostAccess.ALL) // Allow access to all Java classes
         .allowHostClassLookup { true }
         .currentWorkingDirectory(file.parentFile.toPath())
@@ -80,19 +85,22 @@ class PolyglotScript(
                         val devtoolURL =
                             "devtools://devtools/bundled/js_app.html?ws=127.0.0.1:${debugOptions.port}/${file.name}"
 
-                        chat(
-                            regular(translation("liquidbounce.scripts.debug.support", variable(file.toString())))
-                                .append(
-                                    variable(devtoolURL)
-                                        .copyable(
-                                            copyContent = devtoolURL, hover = HoverEvent(
-                                                HoverEvent.Action.SHOW_TEXT,
-                                                regular(translation("liquidbounce.scripts.debug.inspect.url"))
+                        // Scripts are evaluated off the render thread, but the chat is not thread-safe
+                        mc.execute {
+                            chat(
+                                regular(translation("liquidbounce.scripts.debug.support", variable(file.toString())))
+                                    .append(
+                                        variable(devtoolURL)
+                                            .copyable(
+                                                copyContent = devtoolURL, hover = HoverEvent(
+                                                    HoverEvent.Action.SHOW_TEXT,
+                                                    regular(translation("liquidbounce.scripts.debug.inspect.url"))
+                                                )
                                             )
-                                        )
-                                        .underline(true)
-                                )
-                        )
+                                            .underline(true)
+                                    )
+                            )
+                        }
                     }
 
                     DebugProtocol.DAP -> {
@@ -103,16 +111,18 @@ class PolyglotScript(
                             throw IllegalStateException("Debug port ${debugOptions.port} already in use", e)
                         }
 
-                        chat(
-                            regular(
-                                translation("liquidbounce.scripts.debug.support", variable(file.toString())).append(
-                                    translation(
-                                        "liquidbounce.scripts.debug.dap",
-                                        variable(debugOptions.port.toString())
+                        mc.execute {
+                            chat(
+                                regular(
+                                    translation("liquidbounce.scripts.debug.support", variable(file.toString())).append(
+                                        translation(
+                                            "liquidbounce.scripts.debug.dap",
+                                            variable(debugOptions.port.toString())
+                                        )
                                     )
                                 )
                             )
-                        )
+                        }
                     }
                 }
             }
@@ -152,7 +162,7 @@ class PolyglotScript(
     fun initScript() {
         try {
             // Evaluate script
-            context.eval(Source.newBuilder(language, file).build())
+            context.eval(ScriptManager.sourceOf(language, file))
 
             // Call load event
             callGlobalEvent("load")
@@ -162,7 +172,6 @@ class PolyglotScript(
                 error("Script '${file.name}' is missing required information!")
             }
 
-            logger.info("[ScriptAPI] Successfully loaded script '${file.name}'.")
         } catch (e: Exception) {
             logger.error("[ScriptAPI] Failed to load script '${file.name}'.", e)
             context.close()
@@ -18,17 +18,25 @@
  */
 package net.ccbluex.liquidbounce.script
 
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import net.ccbluex.liquidbounce.api.models.marketplace.MarketplaceItemType
 import net.ccbluex.liquidbounce.config.ConfigSystem
 import net.ccbluex.liquidbounce.features.marketplace.MarketplaceManager
-import net.ccbluex.liquidbounce.features.module.modules.render.ModuleClickGui
 import net.ccbluex.liquidbounce.script.bindings.api.ScriptAsyncUtil
 import net.ccbluex.liquidbounce.script.bindings.api.ScriptContextProvider
+import net.ccbluex.liquidbounce.utils.client.StartupTrace
 import net.ccbluex.liquidbounce.utils.client.logger
-import net.ccbluex.liquidbounce.utils.client.mc
+import net.ccbluex.liquidbounce.utils.kotlin.Minecraft
+import org.apache.commons.codec.digest.DigestUtils
 import org.graalvm.polyglot.Engine
 import org.graalvm.polyglot.Source
 import java.io.File
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * The ScriptManager allows to extend the client by loading supported scripts at runtime.
@@ -36,6 +44,9 @@ import java.io.File
  * and can interact with the client through the Script API.
  *
  * Scripts are stored in the scripts directory and can be organized in subdirectories when using a main script file.
+ *
+ * All script contexts share a single [engine], so code parsed and compiled for one script is reused by
+ * every context evaluating the same [Source] - most notably when scripts are reloaded.
  */
 object ScriptManager {
 
@@ -55,11 +66,30 @@ object ScriptManager {
         }
     }
 
+    /**
+     * The engine shared by all script contexts, except for the ones being debugged,
+     * which require their own engine for the debugger instrument.
+     */
+    lateinit var engine: Engine
+        private set
+
+    /**
+     * Sources by script file. The engine only keeps parsed code for as long as its [Source] is alive,
+     * so we hold on to the source of each script and hand out the same instance until the content changes.
+     */
+    private val sources = ConcurrentHashMap<File, CachedSource>()
+
+    private class CachedSource(val language: String, val hash: String, val source: Source)
+
+    private val loadDispatcher = Dispatchers.IO.limitedParallelism(Runtime.getRuntime().availableProcessors())
+
     fun initializeEngine() {
         ScriptAsyncUtil.TickScheduler
 
-        // Initialize the script engine and log its version and supported languages.
-        val engine = Engine.create()
+        // Initialize the shared script engine and log its version and supported languages.
+        engine = Engine.newBuilder()
+            .allowExperimentalOptions(true)
+            .build()
         logger.info(
             "[ScriptAPI] Engine Version: ${engine.version}, " +
                 "Supported languages: [ ${engine.languages.keys.joinToString(", ")} ]"
@@ -68,36 +98,78 @@ object ScriptManager {
     }
 
     /**
-     * Loads all scripts found in the scripts directory. This method scans the directory for script files
-     * and directories containing a main script file. It then loads and enables all found scripts.
+     * Loads all scripts found in the scripts directory and enables them.
+     * Blocks until all scripts have been evaluated, see [evaluateAll].
      */
     fun loadAll() {
         require(isInitialized) { "Cannot load scripts before the script engine is initialized." }
-        val files = root.listFiles { file ->
+
+        register(runBlocking { evaluateAll(findScriptFiles()) })
+    }
+
+    /**
+     * Scans the scripts directory and the subscribed marketplace scripts for script files
+     * and directories containing a main script file.
+     *
+     * Has to be called on the render thread, after the [MarketplaceManager] config has been loaded,
+     * as it reads the subscribed items.
+     */
+    fun findScriptFiles(): List<File> {
+        val files = (root.listFiles { file ->
             Source.findLanguage(file) != null || file.isDirectory
-        } + MarketplaceManager.getSubscribedItemsOfType(MarketplaceItemType.SCRIPT).map { item ->
+        } ?: emptyArray()) + MarketplaceManager.getSubscribedItemsOfType(MarketplaceItemType.SCRIPT).map { item ->
             item.getInstallationFolder()
         }
 
-        files.forEach { file ->
+        return files.mapNotNull { file ->
             if (file.isDirectory) {
                 // If a directory is found, look for a main script file inside it.
                 val mainFile = file.listFiles { dirFile ->
                     dirFile.nameWithoutExtension == "main" && Source.findLanguage(dirFile) != null
                 }?.firstOrNull()
 
-                if (mainFile != null) {
-                    loadCatched(mainFile)
-                } else {
+                if (mainFile == null) {
                     logger.warn("Unable to find main inside the directory ${file.name}.")
                 }
+
+                mainFile
             } else {
-                // If the file is a script, load it immediately.
-                loadCatched(file)
+                file
             }
         }
+    }
+
+    /**
+     * Evaluates the [mainFiles] of the scripts in parallel, off the calling thread.
+     *
+     * The returned scripts are neither part of [scripts] nor enabled yet, see [register].
+     */
+    suspend fun evaluateAll(mainFiles: List<File>): List<PolyglotScript> {
+        require(isInitialized) { "Cannot load scripts before the script engine is initialized." }
+
+        // Forget sources of scripts which are gone
+        sources.keys.retainAll(mainFiles.mapTo(HashSet()) { it.absoluteFile })
+
+        val startTime = System.nanoTime()
+        val loaded = coroutineScope {
+            mainFiles.map { file ->
+                async(loadDispatcher) { evaluateCatched(file) }
+            }.awaitAll().filterNotNull()
+        }
+
+        logger.info(
+            "[ScriptAPI] Evaluated ${loaded.size}/${mainFiles.size} scripts " +
+                "in ${(System.nanoTime() - startTime) / 1_000_000} ms."
+        )
+        return loaded
+    }
 
-        // After loading, enable all the scripts.
+    /**
+     * Adds evaluated scripts to [scripts] and enables them, which registers their modules, commands and choices.
+     * Has to be called on the render thread.
+     */
+    fun register(loaded: List<PolyglotScript>) {
+        scripts += loaded
         enableAll()
     }
 
@@ -113,13 +185,13 @@ object ScriptManager {
     }
 
     /**
-     * Loads a script from a file and catches any exceptions that occur during the loading process.
+     * Evaluates a script from a file and catches any exceptions that occur during the loading process.
      * This ensures that a single faulty script does not prevent other scripts from being loaded.
      *
      * @param file The script file to load.
      */
-    private fun loadCatched(file: File) = runCatching {
-        loadScript(file)
+    private fun evaluateCatched(file: File) = runCatching {
+        evaluateScript(file)
     }.onFailure {
         logger.error("Unable to load script ${file.name}.", it)
     }.getOrNull()
@@ -136,16 +208,62 @@ object ScriptManager {
         file: File,
         language: String = Source.findLanguage(file),
         debugOptions: ScriptDebugOptions = ScriptDebugOptions()
+    ): PolyglotScript {
+        val script = evaluateScript(file, language, debugOptions)
+
+        scripts += script
+        return script
+    }
+
+    /**
+     * Creates the context of a script and evaluates it. Safe to call from any thread,
+     * as long as a single script is not evaluated by two threads at once.
+     */
+    private fun evaluateScript(
+        file: File,
+        language: String = Source.findLanguage(file),
+        debugOptions: ScriptDebugOptions = ScriptDebugOptions()
     ): PolyglotScript {
         require(isInitialized) { "Cannot load scripts before the script engine is initialized." }
 
-        val script = PolyglotScript(language, file, debugOptions)
-        script.initScript()
+        val startTime = System.nanoTime()
+        var contextTime = 0L
+        val script = StartupTrace.span(file.name, StartupTrace.SCRIPT) {
+            PolyglotScript(language, file, debugOptions).also { script ->
+                contextTime = System.nanoTime()
+                script.initScript()
+            }
+        }
+        val endTime = System.nanoTime()
 
-        scripts += script
+        logger.info(
+            "[ScriptAPI] Loaded script '${file.name}' in %.1f ms (context: %.1f ms, evaluation: %.1f ms)".format(
+                (endTime - startTime) / 1e6,
+                (contextTime - startTime) / 1e6,
+                (endTime - contextTime) / 1e6
+            )
+        )
         return script
     }
 
+    /**
+     * Returns the source of a script file, reusing the previous instance if the content did not change.
+     */
+    internal fun sourceOf(language: String, file: File): Source {
+        val content = file.readText()
+        val hash = DigestUtils.sha256Hex(content)
+        val key = file.absoluteFile
+
+        val cached = sources[key]
+        if (cached != null && cached.language == language && cached.hash == hash) {
+            return cached.source
+        }
+
+        val source = Source.newBuilder(language, file).content(content).build()
+        sources[key] = CachedSource(language, hash, source)
+        return source
+    }
+
     /**
      * Unloads a specific script. This method disables the script and removes it from the list of loaded scripts.
      *
@@ -177,21 +295,28 @@ object ScriptManager {
     }
 
     /**
-     * Reloads all scripts. This method unloads all currently loaded scripts, loads them again from the scripts
-     * directory, and then enables them. It logs a message upon successful completion.
+     * Reloads all scripts. This method unloads all currently loaded scripts, evaluates them again off the render
+     * thread and then registers and enables them on the render thread. Unchanged scripts reuse the code
+     * the [engine] already parsed for them.
      */
-    fun reload() {
+    suspend fun reload() {
         // Unload
-        try {
-            disableAll()
-            unloadAll()
-        } catch (e: Exception) {
-            logger.error("Failed to unload scripts.", e)
+        val mainFiles = withContext(Dispatchers.Minecraft) {
+            try {
+                disableAll()
+                unloadAll()
+            } catch (e: Exception) {
+                logger.error("Failed to unload scripts.", e)
+            }
+
+            findScriptFiles()
         }
 
         // Load
-        loadAll()
-        enableAll()
+        val loaded = evaluateAll(mainFiles)
+        withContext(Dispatchers.Minecraft) {
+            register(loaded)
+        }
 
         logger.info("Successfully reloaded scripts.")
     }
@@ -28,7 +28,13 @@ class ScriptChoice(choiceObject: Map<String, Any>, override val parent: ChoiceCo
     name = choiceObject["name"] as String,
 ) {
 
-    private val events = hashMapOf<String, org.graalvm.polyglot.Value>()
+    /**
+     * Handlers of `enable` and `disable`, every other handler is an event hook
+     */
+    private val lifecycleHandlers = hashMapOf<String, org.graalvm.polyglot.Value>()
+    private val eventHooks = ScriptEventHooks(this) { event, throwable ->
+        logger.error("Script caused exception in module $name on $event event!", throwable)
+    }
     private val _values = linkedMapOf<String, Value<*>>()
 
     /**
@@ -50,15 +56,20 @@ class ScriptChoice(choiceObject: Map<String, Any>, override val parent: ChoiceCo
      * Called from inside the script to register a new event handler.
      * @param eventName Name of the event.
      * @param handler JavaScript function used to handle the event.
+     * @param filter Optional filter evaluated before calling into the script, see [ScriptEventHooks].
      */
-    fun on(eventName: String, handler: org.graalvm.polyglot.Value) {
+    @JvmOverloads
+    fun on(eventName: String, handler: org.graalvm.polyglot.Value, filter: org.graalvm.polyglot.Value? = null) {
         if (!handler.canExecute()) {
             logger.error("Invalid event handler for $eventName")
             return
         }
 
-        events[eventName] = handler
-        hookHandler(eventName)
+        if (eventName == "enable" || eventName == "disable") {
+            lifecycleHandlers[eventName] = handler
+        } else if (!eventHooks.register(eventName, handler, filter)) {
+            logger.warn("Unknown event $eventName")
+        }
     }
 
     override fun enable() = callEvent("enable")
@@ -66,31 +77,13 @@ class ScriptChoice(choiceObject: Map<String, Any>, override val parent: ChoiceCo
     override fun disable() = callEvent("disable")
 
     /**
-     * Calls the function of the [event]  with the [payload] of the event.
+     * Calls the handler of the lifecycle [event].
      */
-    private fun callEvent(event: String, payload: Event? = null) {
+    private fun callEvent(event: String) {
         try {
-            events[event]?.executeVoid(payload)
+            lifecycleHandlers[event]?.executeVoid()
         } catch (throwable: Throwable) {
             logger.error("Script caused exception in module $name on $event event!", throwable)
         }
     }
-
-    /**
-     * Register new event hook
-     */
-    private fun hookHandler(eventName: String) {
-        // Get event case-insensitive
-        val clazz = EVENT_NAME_TO_CLASS[eventName] ?: return
-
-        EventManager.registerEventHook(
-            clazz,
-            EventHook(
-                this,
-                {
-                    callEvent(eventName, it)
-                }
-            )
-        )
-    }
 }
@@ -0,0 +1,156 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.script.bindings.features
+
+import net.ccbluex.liquidbounce.event.EVENT_NAME_TO_CLASS
+import net.ccbluex.liquidbounce.event.Event
+import net.ccbluex.liquidbounce.event.EventHook
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.EventManager
+import net.ccbluex.liquidbounce.event.events.PacketEvent
+import net.ccbluex.liquidbounce.event.events.TransferOrigin
+import net.ccbluex.liquidbounce.utils.mappings.EnvironmentRemapper
+import org.graalvm.polyglot.Value
+import java.util.function.Predicate
+
+/**
+ * Event hooks of a script feature, at most one per event.
+ *
+ * The guest function is resolved when the script registers it, so firing an event neither looks up the handler
+ * by name nor does anything but a single host-to-guest call. The event itself is handed over as is,
+ * Graal caches the interop wrapper per host class.
+ *
+ * Scripts can declare a filter along with the handler, which is evaluated on the host
+ * and skips the guest call entirely, e.g.
+ * ```js
+ * module.on("packet", handler, { packet: ["PlayerMoveC2SPacket", "PlayerInteractEntityC2SPacket"], origin: "outgoing" })
+ * ```
+ */
+internal class ScriptEventHooks(
+    private val listener: EventListener,
+    private val onError: (eventName: String, Throwable) -> Unit
+) {
+
+    private val hooks = hashMapOf<Class<out Event>, EventHook<Event>>()
+
+    /**
+     * Registers [function] as handler of [eventName], replacing the previous handler of the event.
+     *
+     * @return false if there is no event called [eventName]
+     */
+    fun register(eventName: String, function: Value, filterOptions: Value?): Boolean {
+        // Get event case-insensitive
+        val eventClass = EVENT_NAME_TO_CLASS[eventName] ?: return false
+        val filter = filterOptions?.let { createFilter(eventClass, it) }
+
+        val hook = EventHook<Event>(listener, { event ->
+            if (filter == null || filter.test(event)) {
+                try {
+                    function.executeVoid(event)
+                } catch (throwable: Throwable) {
+                    onError(eventName, throwable)
+                }
+            }
+        })
+
+        hooks.put(eventClass, hook)?.let { previous ->
+            EventManager.unregisterEventHook(eventClass, previous)
+        }
+        EventManager.registerEventHook(eventClass, hook)
+        return true
+    }
+
+    private fun createFilter(eventClass: Class<out Event>, options: Value): Predicate<Event>? {
+        if (options.isNull) {
+            return null
+        }
+
+        require(options.hasMembers()) { "Event filter has to be an object" }
+
+        var filter: Predicate<Event>? = null
+        fun and(predicate: Predicate<Event>) {
+            filter = filter?.and(predicate) ?: predicate
+        }
+
+        for (key in options.memberKeys) {
+            val option = options.getMember(key)
+
+            when {
+                key == "packet" && eventClass == PacketEvent::class.java -> {
+                    val classes = classesOf(option)
+                    and { event -> classes.any { it.isInstance((event as PacketEvent).packet) } }
+                }
+
+                key == "origin" && eventClass == PacketEvent::class.java -> {
+                    val origin = TransferOrigin.entries.first { it.choiceName.equals(option.asString(), true) }
+                    and { event -> (event as PacketEvent).origin == origin }
+                }
+
+                else -> error("Unsupported filter '$key' for event ${eventClass.simpleName}")
+            }
+        }
+
+        return filter
+    }
+
+    /**
+     * Accepts a host class (`Java.type(...)`), a class name or an array of them
+     */
+    private fun classesOf(value: Value): Array<Class<*>> = when {
+        value.hasArrayElements() -> Array(value.arraySize.toInt()) { classOf(value.getArrayElement(it.toLong())) }
+        else -> arrayOf(classOf(value))
+    }
+
+    private fun classOf(value: Value): Class<*> = when {
+        value.isHostObject && value.asHostObject<Any>() is Class<*> -> value.asHostObject()
+        value.isString -> classByName(value.asString())
+        else -> error("Expected a class or class name, got $value")
+    }
+
+    /**
+     * Resolves a class by its named (yarn) name, simple names are looked up in the packet packages.
+     */
+    private fun classByName(name: String): Class<*> {
+        val candidates = if ('.' in name) {
+            listOf(name)
+        } else {
+            PACKET_PACKAGES.map { "$it.$name" }
+        }
+
+        for (candidate in candidates) {
+            try {
+                return Class.forName(EnvironmentRemapper.remapClassName(candidate))
+            } catch (_: ClassNotFoundException) {
+                // Try the next candidate
+            }
+        }
+
+        error("Unknown class $name")
+    }
+
+    companion object {
+        private val PACKET_PACKAGES = arrayOf(
+            "net.minecraft.network.packet.c2s.play",
+            "net.minecraft.network.packet.s2c.play",
+            "net.minecraft.network.packet.c2s.common",
+            "net.minecraft.network.packet.s2c.common"
+        )
+    }
+
+}
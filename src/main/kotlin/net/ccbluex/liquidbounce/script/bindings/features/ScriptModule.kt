@@ -32,7 +32,11 @@ class ScriptModule(val script: PolyglotScript, moduleObject: Map<String, Any>) :
     category = Category.fromReadableName(moduleObject["category"] as String)!!
 ) {
 
-    private val events = hashMapOf<String, org.graalvm.polyglot.Value>()
+    /**
+     * Handlers of `enable` and `disable`, every other handler is an event hook
+     */
+    private val lifecycleHandlers = hashMapOf<String, org.graalvm.polyglot.Value>()
+    private val eventHooks = ScriptEventHooks(this, ::handleError)
     private val _values = linkedMapOf<String, Value<*>>()
     override var tag: String? = null
         set(value) {
@@ -73,15 +77,20 @@ class ScriptModule(val script: PolyglotScript, moduleObject: Map<String, Any>) :
      *   1. `() => void` (enable/disable)
      *   2. `(Event) => void` (handler<T>)
      *   3. `async (Event) => void` (sequenceHandler<T>)
+     * @param filter Optional filter evaluated before calling into the script, see [ScriptEventHooks].
      */
-    fun on(eventName: String, handler: org.graalvm.polyglot.Value) {
+    @JvmOverloads
+    fun on(eventName: String, handler: org.graalvm.polyglot.Value, filter: org.graalvm.polyglot.Value? = null) {
         if (!handler.canExecute()) {
             logger.error("Invalid event handler for $eventName")
             return
         }
 
-        events[eventName] = handler
-        hookHandler(eventName)
+        if (eventName == "enable" || eventName == "disable") {
+            lifecycleHandlers[eventName] = handler
+        } else if (!eventHooks.register(eventName, handler, filter)) {
+            logger.warn("Unknown event $eventName")
+        }
     }
 
     override fun onEnabled() = callEvent("enable")
@@ -89,55 +98,38 @@ class ScriptModule(val script: PolyglotScript, moduleObject: Map<String, Any>) :
     override fun onDisabled() = callEvent("disable")
 
     /**
-     * Calls the function of the [event] with the [payload] of the event.
-     *
-     * @param payload when event is "enable" or "disable", it will be null
+     * Calls the handler of the lifecycle [event].
      */
-    private fun callEvent(event: String, payload: Event? = null) {
+    private fun callEvent(event: String) {
         try {
-            events[event]?.executeVoid(payload)
+            lifecycleHandlers[event]?.executeVoid()
         } catch (throwable: Throwable) {
-            if (inGame) {
-                chat(
-                    regular("["),
-                    warning(script.file.name),
-                    regular("] "),
-                    markAsError(script.scriptName),
-                    regular("::"),
-                    markAsError(name),
-                    regular("::"),
-                    markAsError(event),
-                    regular(" threw ["),
-                    highlight(throwable.javaClass.simpleName),
-                    regular("]: "),
-                    variable(throwable.message ?: ""),
-                    metadata = MessageMetadata(prefix = false)
-                )
-
-            }
-
-            logger.error("${script.scriptName}::$name -> Event Function $event threw an error", throwable)
-
-            // Disable the module if an error occurs
-            enabled = false
+            handleError(event, throwable)
         }
     }
 
-    /**
-     * Register new event hook
-     */
-    private fun hookHandler(eventName: String) {
-        // Get event case-insensitive
-        val clazz = EVENT_NAME_TO_CLASS[eventName] ?: return
-
-        EventManager.registerEventHook(
-            clazz,
-            EventHook(
-                this,
-                {
-                    callEvent(eventName, it)
-                }
+    private fun handleError(event: String, throwable: Throwable) {
+        if (inGame) {
+            chat(
+                regular("["),
+                warning(script.file.name),
+                regular("] "),
+                markAsError(script.scriptName),
+                regular("::"),
+                markAsError(name),
+                regular("::"),
+                markAsError(event),
+                regular(" threw ["),
+                highlight(throwable.javaClass.simpleName),
+                regular("]: "),
+                variable(throwable.message ?: ""),
+                metadata = MessageMetadata(prefix = false)
             )
-        )
+        }
+
+        logger.error("${script.scriptName}::$name -> Event Function $event threw an error", throwable)
+
+        // Disable the module if an error occurs
+        enabled = false
     }
 }
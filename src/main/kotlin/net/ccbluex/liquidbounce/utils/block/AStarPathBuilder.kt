@@ -16,37 +16,20 @@
  * You should have received a copy of the GNU General Public License
  * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
  */
-
 package net.ccbluex.liquidbounce.utils.block
 
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.ccbluex.liquidbounce.utils.client.player
 import net.ccbluex.liquidbounce.utils.client.world
+import net.ccbluex.liquidbounce.utils.collection.LongPriorityHeap
 import net.ccbluex.liquidbounce.utils.collection.ObjectPool
 import net.ccbluex.liquidbounce.utils.math.sq
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3i
-import java.util.Comparator
-import java.util.TreeSet
-
-private class Node(val position: Vec3i, var parent: Node? = null) {
-    var g = 0
-    var h = 0
-    var f = 0
-
-    override fun hashCode(): Int = position.hashCode()
-    override fun equals(other: Any?): Boolean = other is Node && other.position == this.position
-
-    fun buildPath(): List<Vec3i> {
-        val path = mutableListOf<Vec3i>()
-        var currentNode = this
-        while (currentNode.parent != null) {
-            path.add(currentNode.position)
-            currentNode = currentNode.parent!!
-        }
-        path.reverse()
-        return path
-    }
-}
 
 private val directions = buildList(22) {
     add(Vec3i(-1, 0, 0)) // left
@@ -55,7 +38,7 @@ private val directions = buildList(22) {
     (1..9).mapTo(this) { Vec3i(0, it, 0) } // up
     add(Vec3i(0, 0, -1)) // front
     add(Vec3i(0, 0, 1)) // back
-}
+}.toTypedArray()
 
 private val diagonalDirections = arrayOf(
     Vec3i(-1, 0, -1), // left front
@@ -64,7 +47,10 @@ private val diagonalDirections = arrayOf(
     Vec3i(1, 0, 1) // right back
 )
 
-private val NODE_COMPARATOR = Comparator.comparingInt<Node> { it.f }.thenComparing { it.position }
+/**
+ * How many iterations pass between two checks of [AStarPathBuilder.maxSearchNanos]
+ */
+private const val TIME_CHECK_MASK = 15
 
 interface AStarPathBuilder {
 
@@ -72,6 +58,11 @@ interface AStarPathBuilder {
 
     val maxIterations: Int get() = 500
 
+    /**
+     * Wall-clock budget of a single [findPath] call. The search gives up like it does after [maxIterations].
+     */
+    val maxSearchNanos: Long get() = Long.MAX_VALUE
+
     val stopRange: Double get() = 2.0
 
     val Vec3i.isPassable: Boolean
@@ -89,40 +80,75 @@ interface AStarPathBuilder {
     fun findPath(start: Vec3i, end: Vec3i, maxCost: Int): List<Vec3i> {
         if (end.isWithinDistance(start, stopRange)) return emptyList()
 
-        val startNode = Node(start)
-        val endNode = Node(end)
+        return AStarSearch.POOL.use { search -> search.run(this, start, end, maxCost) }
+    }
 
-        // Node::f won't be modified after added
-        val openList = TreeSet(NODE_COMPARATOR).apply { add(startNode) }
-        val closedList = hashSetOf<Node>()
+}
+
+/**
+ * State of a single A* search on packed [BlockPos] longs.
+ *
+ * Instances are pooled and cleared between searches, so their tables keep their capacity
+ * and a search does not allocate per visited position.
+ */
+private class AStarSearch {
+
+    private val open = LongPriorityHeap(INITIAL_CAPACITY)
+    private val closed = LongOpenHashSet(INITIAL_CAPACITY)
+    private val gScores = Long2IntOpenHashMap(INITIAL_CAPACITY).apply { defaultReturnValue(Int.MAX_VALUE) }
+    private val parents = Long2LongOpenHashMap(INITIAL_CAPACITY)
+
+    /**
+     * [Vec3i.isPassable] is the expensive part of a search and most positions are asked for more than once
+     */
+    private val passability = Long2ByteOpenHashMap(INITIAL_CAPACITY)
+
+    private val current = BlockPos.Mutable()
+    private val neighbour = BlockPos.Mutable()
+    private val side = BlockPos.Mutable()
+
+    fun run(builder: AStarPathBuilder, start: Vec3i, end: Vec3i, maxCost: Int): List<Vec3i> = with(builder) {
+        val startKey = BlockPos.asLong(start.x, start.y, start.z)
+        val startTime = System.nanoTime()
+
+        gScores.put(startKey, 0)
+        open.enqueue(startKey, 0)
 
         var iterations = 0
-        while (openList.isNotEmpty()) {
+        while (!open.isEmpty()) {
+            val key = open.dequeue()
+
+            // Outdated entry of a position which has been reached more cheaply in the meantime
+            if (!closed.add(key)) {
+                continue
+            }
+
             iterations++
-            if (iterations > maxIterations) {
+            if (iterations > maxIterations ||
+                (iterations and TIME_CHECK_MASK) == 0 && System.nanoTime() - startTime > maxSearchNanos) {
                 break
             }
 
-            val currentNode = openList.removeFirst()
-            closedList.add(currentNode)
+            current.set(key)
 
-            if (currentNode.position.isWithinDistance(endNode.position, stopRange)) {
-                return currentNode.buildPath()
+            if (current.isWithinDistance(end, stopRange)) {
+                return buildPath(key)
             }
 
-            for (node in getAdjacentNodes(currentNode)) {
-                if (node in closedList || !node.position.isPassable) continue
-
-                val tentativeG = currentNode.g + currentNode.position.costWith(node.position)
-                if (tentativeG < node.g || node !in openList) {
-                    if (tentativeG > maxCost) continue // Skip this node if the cost exceeds the maximum
+            val g = gScores.get(key)
 
-                    node.parent = currentNode
-                    node.g = tentativeG
-                    node.h = node.position costWith endNode.position
-                    node.f = node.g + node.h
+            for (direction in directions) {
+                neighbour.set(current, direction)
+                visit(key, g, end, maxCost)
+            }
 
-                    openList.add(node)
+            if (allowDiagonal) {
+                for (direction in diagonalDirections) {
+                    if (isPassable(side.set(current, direction.x, 0, 0)) &&
+                        isPassable(side.set(current, 0, 0, direction.z))) {
+                        neighbour.set(current, direction)
+                        visit(key, g, end, maxCost)
+                    }
                 }
             }
         }
@@ -130,34 +156,65 @@ interface AStarPathBuilder {
         return emptyList() // Return an empty list if no path was found
     }
 
-    private fun getAdjacentNodes(node: Node): List<Node> = buildList {
-        getAdjacentNodesDirect(node)
-        if (allowDiagonal) {
-            getAdjacentNodesDiagonal(node)
+    private fun AStarPathBuilder.visit(currentKey: Long, currentG: Int, end: Vec3i, maxCost: Int) {
+        val key = neighbour.asLong()
+        if (key in closed || !isPassable(neighbour)) {
+            return
+        }
+
+        val tentativeG = currentG + (current costWith neighbour)
+        if (tentativeG > maxCost || tentativeG >= gScores.get(key)) {
+            return
         }
+
+        gScores.put(key, tentativeG)
+        parents.put(key, currentKey)
+        open.enqueue(key, tentativeG + (neighbour costWith end))
     }
 
-    private fun MutableList<Node>.getAdjacentNodesDirect(node: Node) {
-        ObjectPool.MutableBlockPos.use { pos ->
-            for (direction in directions) {
-                val adjacentPosition = pos.set(node.position, direction)
-                if (adjacentPosition.isPassable) {
-                    add(Node(adjacentPosition.toImmutable(), node))
-                }
-            }
+    private fun AStarPathBuilder.isPassable(pos: BlockPos): Boolean {
+        val key = pos.asLong()
+
+        return when (passability.get(key)) {
+            PASSABLE -> true
+            BLOCKED -> false
+            else -> pos.isPassable.also { passability.put(key, if (it) PASSABLE else BLOCKED) }
         }
     }
 
-    private fun MutableList<Node>.getAdjacentNodesDiagonal(node: Node) {
-        ObjectPool.MutableBlockPos.use { pos ->
-            for (direction in diagonalDirections) {
-                val adjacentPosition = pos.set(node.position, direction)
-                if (adjacentPosition.isPassable &&
-                        node.position.add(direction.x, 0, 0).isPassable &&
-                        node.position.add(0, 0, direction.z).isPassable) {
-                    add(Node(adjacentPosition.toImmutable(), node))
-                }
-            }
+    private fun buildPath(endKey: Long): List<Vec3i> {
+        val path = ArrayList<Vec3i>()
+
+        var key = endKey
+        while (parents.containsKey(key)) {
+            path.add(BlockPos.fromLong(key))
+            key = parents.get(key)
         }
+
+        path.reverse()
+        return path
+    }
+
+    fun clear() {
+        open.clear()
+        closed.clear()
+        gScores.clear()
+        parents.clear()
+        passability.clear()
+
+        closed.trim(INITIAL_CAPACITY)
+        gScores.trim(INITIAL_CAPACITY)
+        parents.trim(INITIAL_CAPACITY)
+        passability.trim(INITIAL_CAPACITY)
     }
+
+    companion object {
+        private const val INITIAL_CAPACITY = 1024
+
+        private const val PASSABLE: Byte = 1
+        private const val BLOCKED: Byte = 2
+
+        val POOL = ObjectPool(::AStarSearch, AStarSearch::clear)
+    }
+
 }
@@ -18,8 +18,9 @@
  */
 package net.ccbluex.liquidbounce.utils.block
 
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet
-import it.unimi.dsi.fastutil.longs.LongSet
+import it.unimi.dsi.fastutil.HashCommon
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
 import net.minecraft.block.BlockState
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
@@ -86,99 +87,175 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
         }
     }
 
-    final override fun chunkUpdate(chunk: WorldChunk) {
+    override fun chunkUpdate(chunk: WorldChunk) {
         // NOP
     }
 
     /**
-     * This base implementation stores multiple [BlockPos] for each state [T].
+     * This base implementation indexes the tracked [BlockPos] and their state [T] by chunk.
      *
-     * If one instance of [T] will be mapped from many [BlockPos],
-     * for example, [T] is [Enum], this base will consume less memory.
+     * Chunks are spread over [REGION_COUNT] regions, each guarded by its own lock, so scanner workers
+     * updating different chunks rarely wait for each other. Unloading a chunk drops its whole bucket,
+     * and [iterateChunk] only reads the requested chunks.
      *
-     * @param T the generic should be stable for hash.
      * @see BlockPos2State
      * @see AbstractBlockLocationTracker
      */
-    abstract class State2BlockPos<T> : AbstractBlockLocationTracker<T>() {
-        private val stateAndPositions = hashMapOf<T, LongSet>()
+    abstract class ChunkIndexed<T : Any> : AbstractBlockLocationTracker<T>() {
 
-        private val lock = ReentrantReadWriteLock()
+        private val regions = Array(REGION_COUNT) { Region<T>() }
+
+        private class Region<T> {
+            val lock = ReentrantReadWriteLock()
+
+            /**
+             * Chunk key -> (block position -> state). Empty chunk buckets are removed.
+             */
+            val chunks = Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<T>>()
+        }
+
+        private fun regionOf(chunkKey: Long) =
+            regions[HashCommon.mix(chunkKey).toInt() and (REGION_COUNT - 1)]
 
         final override fun allPositions() = sequence<BlockPos> {
             val mutable = BlockPos.Mutable()
-            lock.read {
-                for (positions in stateAndPositions.values) {
-                    val iterator = positions.longIterator()
-                    while (iterator.hasNext()) {
-                        mutable.set(iterator.nextLong())
-                        yield(mutable)
+            val buffer = LongArrayList()
+            for (region in regions) {
+                region.lock.read {
+                    for (chunk in region.chunks.values) {
+                        buffer.addAll(chunk.keys)
                     }
                 }
+
+                // Yield outside the lock, the consumer might stop early or take its time
+                for (i in 0 until buffer.size) {
+                    mutable.set(buffer.getLong(i))
+                    yield(mutable)
+                }
+                buffer.clear()
             }
         }
 
         final override fun iterate() = sequence<Map.Entry<BlockPos, T>> {
-            val mutable = BlockPos.Mutable()
-            var entry: FullMutableEntry<BlockPos, T>? = null
-            lock.read {
-                for ((state, positions) in stateAndPositions) {
-                    val iterator = positions.longIterator()
-                    while (iterator.hasNext()) {
-                        mutable.set(iterator.nextLong())
-                        if (entry == null) {
-                            entry = FullMutableEntry(mutable, state)
-                        } else {
-                            entry.value = state
-                        }
-                        yield(entry)
+            val entry = FullMutableEntry<BlockPos, T?>(BlockPos.Mutable(), null)
+            val positions = LongArrayList()
+            val states = ArrayList<T>()
+            for (region in regions) {
+                region.lock.read {
+                    for (chunk in region.chunks.values) {
+                        collect(chunk, positions, states)
                     }
                 }
+
+                yieldEntries(entry, positions, states)
             }
         }
 
-        final override fun isEmpty() = lock.read {
-            stateAndPositions.isEmpty() || stateAndPositions.values.all { it.isEmpty() }
+        /**
+         * Returns a [Sequence] providing the tracked [BlockPos] and its state [T]
+         * inside the chunks from [from] to [to] (inclusive).
+         *
+         * Note: The elements of the [Map.Entry.key] is [BlockPos.Mutable]. Copy them if they will be maintained.
+         */
+        fun iterateChunk(from: ChunkPos, to: ChunkPos = from) = sequence<Map.Entry<BlockPos, T>> {
+            val entry = FullMutableEntry<BlockPos, T?>(BlockPos.Mutable(), null)
+            val positions = LongArrayList()
+            val states = ArrayList<T>()
+            for (chunkX in minOf(from.x, to.x)..maxOf(from.x, to.x)) {
+                for (chunkZ in minOf(from.z, to.z)..maxOf(from.z, to.z)) {
+                    val chunkKey = ChunkPos.toLong(chunkX, chunkZ)
+                    val region = regionOf(chunkKey)
+                    region.lock.read {
+                        region.chunks.get(chunkKey)?.let { collect(it, positions, states) }
+                    }
+
+                    yieldEntries(entry, positions, states)
+                }
+            }
+        }
+
+        private fun collect(chunk: Long2ObjectOpenHashMap<T>, positions: LongArrayList, states: MutableList<T>) {
+            val iterator = chunk.long2ObjectEntrySet().fastIterator()
+            while (iterator.hasNext()) {
+                val next = iterator.next()
+                positions.add(next.longKey)
+                states.add(next.value)
+            }
+        }
+
+        private suspend fun SequenceScope<Map.Entry<BlockPos, T>>.yieldEntries(
+            entry: FullMutableEntry<BlockPos, T?>,
+            positions: LongArrayList,
+            states: MutableList<T>
+        ) {
+            for (i in 0 until positions.size) {
+                (entry.key as BlockPos.Mutable).set(positions.getLong(i))
+                entry.value = states[i]
+                @Suppress("UNCHECKED_CAST")
+                yield(entry as Map.Entry<BlockPos, T>)
+            }
+            positions.clear()
+            states.clear()
+        }
+
+        final override fun isEmpty() = regions.all { region ->
+            region.lock.read { region.chunks.isEmpty() }
         }
 
         final override fun track(pos: BlockPos, state: T) {
-            lock.write {
-                stateAndPositions.computeIfAbsent(state) { LongOpenHashSet() }.add(pos.asLong())
+            val chunkKey = ChunkPos.toLong(pos.x shr 4, pos.z shr 4)
+            val region = regionOf(chunkKey)
+            region.lock.write {
+                val chunk = region.chunks.get(chunkKey) ?: Long2ObjectOpenHashMap<T>().also {
+                    region.chunks.put(chunkKey, it)
+                }
+                chunk.put(pos.asLong(), state)
             }
         }
 
         final override fun untrack(pos: BlockPos): Boolean {
-            lock.write {
-                val longValue = pos.asLong()
-                return stateAndPositions.values.any { it.remove(longValue) }
+            val chunkKey = ChunkPos.toLong(pos.x shr 4, pos.z shr 4)
+            val region = regionOf(chunkKey)
+            region.lock.write {
+                val chunk = region.chunks.get(chunkKey) ?: return false
+                val removed = chunk.remove(pos.asLong()) != null
+                if (chunk.isEmpty()) {
+                    region.chunks.remove(chunkKey)
+                }
+                return removed
             }
         }
 
         final override fun clearAllChunks() {
-            lock.write {
-                stateAndPositions.clear()
+            for (region in regions) {
+                region.lock.write {
+                    region.chunks.clear()
+                }
             }
         }
 
         final override fun clearChunk(pos: ChunkPos) {
-            val blockPos = BlockPos.Mutable()
-            lock.write {
-                stateAndPositions.values.forEach { set ->
-                    set.removeIf {
-                        blockPos.set(it)
-                        blockPos.x shr 4 == pos.x && blockPos.z shr 4 == pos.z
-                    }
-                }
+            val chunkKey = pos.toLong()
+            val region = regionOf(chunkKey)
+            region.lock.write {
+                region.chunks.remove(chunkKey)
             }
         }
 
         private class FullMutableEntry<K, V>(override var key: K, override var value: V) : Map.Entry<K, V>
+
+        private companion object {
+            /**
+             * Must be a power of two
+             */
+            const val REGION_COUNT = 64
+        }
     }
 
     /**
      * This base implementation stores [BlockPos] and state [T] one by one.
      *
-     * @see State2BlockPos
+     * @see ChunkIndexed
      * @see AbstractBlockLocationTracker
      */
     abstract class BlockPos2State<T> : AbstractBlockLocationTracker<T>() {
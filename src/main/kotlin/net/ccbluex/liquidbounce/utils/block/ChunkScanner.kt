@@ -30,6 +30,8 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.world.chunk.WorldChunk
 import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Predicate
 
 object ChunkScanner : EventListener, MinecraftShortcuts {
 
@@ -112,12 +114,13 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
 
     object ChunkScannerThread {
 
+        private val parallelism = (Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(2)
+
         /**
          * When the first request comes in, the dispatcher and the scope will be initialized,
          * and its parallelism cannot be modified
          */
-        private val dispatcher = Dispatchers.Default
-            .limitedParallelism((Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(2))
+        private val dispatcher = Dispatchers.Default.limitedParallelism(parallelism)
 
         /**
          * The parent job for the current client world.
@@ -136,20 +139,88 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
          */
         private val mutable = ThreadLocal.withInitial(BlockPos::Mutable)
 
+        /**
+         * Pending requests, coalesced per chunk. Drained by up to [parallelism] workers.
+         */
+        private val queue = ChunkUpdateQueue { x, z -> mc.world?.getChunk(x, z) }
+
+        private val activeWorkers = AtomicInteger()
+
         fun process(chunkUpdate: UpdateRequest) {
+            queue.offer(chunkUpdate)
+            startWorkerIfIdle()
+        }
+
+        private fun startWorkerIfIdle() {
+            while (true) {
+                val workers = activeWorkers.get()
+                if (workers >= parallelism) {
+                    return
+                }
+
+                if (activeWorkers.compareAndSet(workers, workers + 1)) {
+                    break
+                }
+            }
+
             scope.launch {
-                // Process the update request
-                when (chunkUpdate) {
-                    is UpdateRequest.ChunkUpdate -> scanChunk(chunkUpdate)
+                while (true) {
+                    val work = queue.poll() ?: break
 
-                    is UpdateRequest.ChunkUnload -> subscribers.forEach {
-                        it.clearChunk(chunkUpdate.pos)
+                    try {
+                        coroutineScope { processWork(work) }
+                    } finally {
+                        queue.finished(work)
                     }
+                }
+            }.invokeOnCompletion {
+                // Also runs if the worker was cancelled before it started, unlike a finally block inside it
+                activeWorkers.decrementAndGet()
+
+                // Something might have been offered while this worker was about to stop
+                if (worldJob.isActive && queue.hasAvailableWork()) {
+                    startWorkerIfIdle()
+                }
+            }
+        }
 
-                    is UpdateRequest.BlockUpdate -> subscribers.forEach {
-                        it.recordBlock(chunkUpdate.blockPos, chunkUpdate.newState, cleared = false)
+        private suspend fun CoroutineScope.processWork(work: ChunkUpdateQueue.Work) {
+            if (work.unload) {
+                val chunkPos = ChunkPos(work.chunkKey)
+                subscribers.forEach { it.clearChunk(chunkPos) }
+            }
+
+            val chunk = work.chunk
+            val singleScanChunk = work.singleScanChunk
+            if (chunk != null) {
+                if (work.clearBeforeScan) {
+                    // Only subscribers fed by recordBlock keep what the scan does not find again,
+                    // the others rebuild the chunk in chunkUpdate
+                    val chunkPos = chunk.pos
+                    subscribers.forEach {
+                        if (it.shouldCallRecordBlockOnChunkUpdate) {
+                            it.clearChunk(chunkPos)
+                        }
                     }
                 }
+
+                scanChunk(chunk, subscribers)
+            } else if (singleScanChunk != null) {
+                scanChunk(singleScanChunk, work.singleScanSubscribers.filter { it in subscribers })
+            }
+
+            if (work.blockUpdates.isEmpty()) {
+                return
+            }
+
+            val blockPos = mutable.get()
+            val iterator = work.blockUpdates.long2ObjectEntrySet().fastIterator()
+            while (iterator.hasNext()) {
+                val entry = iterator.next()
+                blockPos.set(entry.longKey)
+                subscribers.forEach {
+                    it.recordBlock(blockPos, entry.value, cleared = false)
+                }
             }
         }
 
@@ -157,23 +228,25 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
          * Cancel all existing enqueue(emit) jobs and scanner jobs
          */
         fun cancelCurrentJobs() {
+            queue.clear()
             worldJob.cancelChildren()
         }
 
         /**
-         * Scans the chunks for a block
+         * Returns the state of the request queue, to confirm the scanner keeps up.
          */
-        private suspend fun CoroutineScope.scanChunk(request: UpdateRequest.ChunkUpdate) {
-            val chunk = request.chunk
+        internal fun statistics() = queue.statistics()
 
+        /**
+         * Scans the chunks for a block
+         */
+        private suspend fun CoroutineScope.scanChunk(chunk: WorldChunk, currentSubscriber: List<BlockChangeSubscriber>) {
             if (chunk.isEmpty) {
                 return
             }
 
             val start = System.nanoTime()
 
-            val currentSubscriber = request.singleSubscriber?.let { listOf(it) } ?: subscribers
-
             when (currentSubscriber.size) {
                 0 -> return
                 1 -> currentSubscriber.first().chunkUpdate(chunk)
@@ -191,15 +264,31 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
                 return
             }
 
+            var skippedSections = 0
+
             /**
              * @see WorldChunk.getBlockState
              */
-            (0..chunk.highestNonEmptySection).map { sectionIndex ->
+            (0..chunk.highestNonEmptySection).mapNotNull { sectionIndex ->
+                val section = chunk.getSection(sectionIndex)
+
+                // Test the palette first, most sections contain nothing a subscriber is looking for
+                val sectionSubscribers = subscribersForRecordBlock.filter {
+                    val filter = it.chunkScanFilter
+                    filter == null || section.hasAny(filter)
+                }
+
+                if (sectionSubscribers.isEmpty()) {
+                    skippedSections++
+                    return@mapNotNull null
+                }
+
+                val sectionFilters = sectionSubscribers.map { it.chunkScanFilter }
+
                 launch {
                     val startX = chunk.pos.startX
                     val startZ = chunk.pos.startZ
                     val blockPos = mutable.get()
-                    val section = chunk.getSection(sectionIndex)
 
                     for (sectionY in 0..15) {
                         // index == (y >> 4) - (bottomY >> 4)
@@ -208,14 +297,22 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
                             for (z in 0..15) {
                                 val blockState = section.getBlockState(x, sectionY, z)
                                 val pos = blockPos.set(startX or x, y, startZ or z)
-                                subscribersForRecordBlock.forEach { it.recordBlock(pos, blockState, cleared = true) }
+                                for (i in sectionSubscribers.indices) {
+                                    val filter = sectionFilters[i]
+                                    if (filter == null || filter.test(blockState)) {
+                                        sectionSubscribers[i].recordBlock(pos, blockState, cleared = true)
+                                    }
+                                }
                             }
                         }
                     }
                 }
             }.joinAll()
 
-            logger.debug("Scanning chunk (${chunk.pos.x}, ${chunk.pos.z}) took ${(System.nanoTime() - start) / 1000}us")
+            logger.debug(
+                "Scanning chunk (${chunk.pos.x}, ${chunk.pos.z}) took ${(System.nanoTime() - start) / 1000}us, " +
+                    "skipped $skippedSections/${chunk.highestNonEmptySection + 1} sections"
+            )
         }
 
         fun stopThread() {
@@ -250,6 +347,16 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
          */
         fun recordBlock(pos: BlockPos, state: BlockState, cleared: Boolean)
 
+        /**
+         * Narrows down the states [recordBlock] is called with during chunk scans.
+         *
+         * The scanner tests each section's palette against it and skips sections without any match.
+         * Only provide a filter if [recordBlock] does nothing for non-matching states when `cleared` is true.
+         * Single block updates are never filtered.
+         */
+        val chunkScanFilter: Predicate<BlockState>?
+            get() = null
+
         /**
          * Is called when a chunk is initially loaded or entirely updated.
          */
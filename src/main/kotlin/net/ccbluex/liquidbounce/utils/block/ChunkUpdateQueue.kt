@@ -0,0 +1,250 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet
+import net.ccbluex.liquidbounce.utils.block.ChunkScanner.BlockChangeSubscriber
+import net.ccbluex.liquidbounce.utils.block.ChunkScanner.UpdateRequest
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.world.chunk.WorldChunk
+
+/**
+ * Pending [UpdateRequest]s of the [ChunkScanner], coalesced per chunk.
+ *
+ * - A chunk scan supersedes pending block updates and single-subscriber scans of the same chunk,
+ *   as it reads the live chunk once it runs. As a scan only adds what it finds, the chunk is cleared
+ *   before it if it absorbed block updates, which might have removed something.
+ * - Block updates of the same position replace each other. Too many of them are folded into a chunk scan.
+ * - An unload drops everything pending for the chunk.
+ *
+ * A chunk which is currently being processed is not handed out again until it is [finished],
+ * so a chunk is never scanned twice at the same time and an unload never races a scan.
+ *
+ * There is at most one [Work] per chunk and each is bounded by [MAX_BLOCK_UPDATES_PER_CHUNK],
+ * so the queue only grows with the number of chunks which changed since the workers last caught up.
+ */
+internal class ChunkUpdateQueue(
+    /**
+     * Resolves the chunk a too long list of block updates is folded into
+     */
+    private val chunkProvider: (x: Int, z: Int) -> WorldChunk?
+) {
+
+    private val pending = Long2ObjectLinkedOpenHashMap<Work>()
+
+    /**
+     * The work which is currently being processed per chunk. A worker which was cancelled by [clear]
+     * might still finish afterward, which must not release the chunk for the work of another worker.
+     */
+    private val inFlight = Long2ObjectOpenHashMap<Work>()
+
+    private var merged = 0L
+    private var dropped = 0L
+    private var processed = 0L
+
+    /**
+     * Everything that has to happen to a single chunk
+     */
+    class Work(val chunkKey: Long) {
+        /**
+         * Subscribers have to forget this chunk before anything else happens
+         */
+        var unload = false
+            internal set
+
+        /**
+         * Full scan for all subscribers
+         */
+        var chunk: WorldChunk? = null
+            internal set
+
+        /**
+         * The [chunk] scan absorbed block updates, so subscribers have to forget the chunk before it
+         */
+        var clearBeforeScan = false
+            internal set
+
+        /**
+         * Scan for newly subscribed subscribers only, irrelevant if [chunk] is set
+         */
+        var singleScanChunk: WorldChunk? = null
+            internal set
+        val singleScanSubscribers = ReferenceLinkedOpenHashSet<BlockChangeSubscriber>()
+
+        /**
+         * Packed [BlockPos] to the latest [BlockState], irrelevant if [chunk] is set
+         */
+        val blockUpdates = Long2ObjectLinkedOpenHashMap<BlockState>()
+
+        internal val size: Int
+            get() = (if (chunk != null) 1 else 0) + singleScanSubscribers.size + blockUpdates.size
+    }
+
+    @Synchronized
+    fun offer(request: UpdateRequest) {
+        when (request) {
+            is UpdateRequest.ChunkUpdate -> {
+                val chunkPos = request.chunk.pos
+                val work = workFor(chunkPos.toLong())
+                val singleSubscriber = request.singleSubscriber
+
+                when {
+                    singleSubscriber == null -> {
+                        merged += work.size
+                        work.clearBeforeScan = work.clearBeforeScan || work.blockUpdates.isNotEmpty()
+                        work.chunk = request.chunk
+                        work.singleScanChunk = null
+                        work.singleScanSubscribers.clear()
+                        work.blockUpdates.clear()
+                    }
+
+                    work.chunk != null -> merged++
+                    else -> {
+                        work.singleScanChunk = request.chunk
+                        if (!work.singleScanSubscribers.add(singleSubscriber)) {
+                            merged++
+                        }
+                    }
+                }
+            }
+
+            is UpdateRequest.ChunkUnload -> {
+                val work = workFor(request.pos.toLong())
+
+                dropped += work.size
+                work.unload = true
+                work.clearBeforeScan = false
+                work.chunk = null
+                work.singleScanChunk = null
+                work.singleScanSubscribers.clear()
+                work.blockUpdates.clear()
+            }
+
+            is UpdateRequest.BlockUpdate -> {
+                val pos = request.blockPos
+                val work = workFor(ChunkPos.toLong(pos.x shr 4, pos.z shr 4))
+
+                if (work.chunk != null) {
+                    merged++
+                    work.clearBeforeScan = true
+                    return
+                }
+
+                if (work.blockUpdates.put(pos.asLong(), request.newState) != null) {
+                    merged++
+                }
+
+                if (work.blockUpdates.size > MAX_BLOCK_UPDATES_PER_CHUNK) {
+                    val chunk = chunkProvider(pos.x shr 4, pos.z shr 4) ?: return
+
+                    merged += work.size
+                    work.clearBeforeScan = true
+                    work.chunk = chunk
+                    work.singleScanChunk = null
+                    work.singleScanSubscribers.clear()
+                    work.blockUpdates.clear()
+                }
+            }
+        }
+    }
+
+    private fun workFor(chunkKey: Long): Work {
+        return pending.get(chunkKey) ?: Work(chunkKey).also { pending.put(chunkKey, it) }
+    }
+
+    /**
+     * Takes the oldest work of a chunk which is not currently being processed.
+     * The caller must call [finished] once done with it.
+     */
+    @Synchronized
+    fun poll(): Work? {
+        val iterator = pending.values.iterator()
+        while (iterator.hasNext()) {
+            val work = iterator.next()
+            if (inFlight.containsKey(work.chunkKey)) {
+                continue
+            }
+
+            iterator.remove()
+            inFlight.put(work.chunkKey, work)
+            return work
+        }
+
+        return null
+    }
+
+    @Synchronized
+    fun finished(work: Work) {
+        inFlight.remove(work.chunkKey, work)
+        processed++
+    }
+
+    @Synchronized
+    fun clear() {
+        dropped += pending.values.sumOf { it.size }
+        pending.clear()
+        inFlight.clear()
+    }
+
+    /**
+     * Whether [poll] would return something right now
+     */
+    @Synchronized
+    fun hasAvailableWork() = pending.keys.any { !inFlight.containsKey(it) }
+
+    @Synchronized
+    fun statistics() = Statistics(
+        pendingChunks = pending.size,
+        pendingRequests = pending.values.sumOf { it.size },
+        inFlightChunks = inFlight.size,
+        merged = merged,
+        dropped = dropped,
+        processed = processed
+    )
+
+    data class Statistics(
+        val pendingChunks: Int,
+        val pendingRequests: Int,
+        val inFlightChunks: Int,
+        /**
+         * Requests which were superseded by or folded into another request
+         */
+        val merged: Long,
+        /**
+         * Requests which were discarded by an unload or a world change
+         */
+        val dropped: Long,
+        /**
+         * Chunk works which have been processed
+         */
+        val processed: Long
+    )
+
+    companion object {
+        /**
+         * Above this, a single chunk scan is cheaper than recording the block updates one by one
+         */
+        private const val MAX_BLOCK_UPDATES_PER_CHUNK = 256
+    }
+
+}
@@ -37,6 +37,8 @@ import net.minecraft.block.Blocks
 import net.minecraft.block.DoubleBlockProperties
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Vec3d
+import net.minecraft.world.chunk.WorldChunk
+import java.util.function.Predicate
 
 object BedBlockTracker : AbstractBlockLocationTracker.BlockPos2State<BedState>() {
     private var maxLayers: Int = 0
@@ -137,7 +139,8 @@ object BedBlockTracker : AbstractBlockLocationTracker.BlockPos2State<BedState>()
         return BedState(bedBlock, renderPos, getBedSurroundingBlocks(headState))
     }
 
-    @Suppress("detekt:CognitiveComplexMethod")
+    override val chunkScanFilter = Predicate<BlockState> { it.isBed }
+
     override fun getStateFor(pos: BlockPos, state: BlockState): BedState? {
         return if (state.isBed) {
             val part = BedBlock.getBedPart(state)
@@ -151,25 +154,40 @@ object BedBlockTracker : AbstractBlockLocationTracker.BlockPos2State<BedState>()
             // A non-bed block was updated, we need to update the bed blocks around it
             val distance = maxLayers
 
-            allPositions().forEach { bedPos ->
-                // Update if the block is close to a bed
-                if (bedPos.getManhattanDistance(pos) > distance) {
-                    return@forEach
-                }
-
-                val bedState = bedPos.getState()
-                if (bedState == null || !bedState.isBed) {
-                    // The tracked block is not a bed anymore, remove it
-                    untrack(bedPos)
-                } else {
-                    track(bedPos, bedPos.getBedPlates(bedState))
-                }
-            }
+            updateBeds { bedPos -> bedPos.getManhattanDistance(pos) <= distance }
 
             null
         }
     }
 
+    /**
+     * Chunk scans only record beds (see [chunkScanFilter]),
+     * so beds close to a (re)loaded chunk have to pick up its blocks here.
+     */
+    override fun chunkUpdate(chunk: WorldChunk) {
+        val distance = maxLayers
+        val xRange = chunk.pos.startX - distance..chunk.pos.endX + distance
+        val zRange = chunk.pos.startZ - distance..chunk.pos.endZ + distance
+
+        updateBeds { bedPos -> bedPos.x in xRange && bedPos.z in zRange }
+    }
+
+    private inline fun updateBeds(crossinline predicate: (BlockPos) -> Boolean) {
+        allPositions().forEach { bedPos ->
+            if (!predicate(bedPos)) {
+                return@forEach
+            }
+
+            val bedState = bedPos.getState()
+            if (bedState == null || !bedState.isBed) {
+                // The tracked block is not a bed anymore, remove it
+                untrack(bedPos)
+            } else {
+                track(bedPos, bedPos.getBedPlates(bedState))
+            }
+        }
+    }
+
     interface Subscriber {
         val maxLayers: Int
     }
@@ -0,0 +1,109 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block.hole
+
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.Vec3i
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListSet
+
+/**
+ * Holds the detected [Hole]s together with an index from chunk to the holes overlapping it,
+ * so invalidating a region only looks at the holes nearby instead of all of them.
+ */
+internal class HoleIndex {
+
+    /**
+     * All holes, ordered by [Hole.compareTo]
+     */
+    val holes = ConcurrentSkipListSet<Hole>()
+
+    private val byChunk = ConcurrentHashMap<Long, MutableSet<Hole>>()
+
+    /**
+     * @return false if an equal hole (according to [Hole.compareTo]) is already present
+     */
+    fun add(hole: Hole): Boolean {
+        if (!holes.add(hole)) {
+            return false
+        }
+
+        forEachChunk(hole.positions) { chunkKey ->
+            byChunk.compute(chunkKey) { _, bucket ->
+                (bucket ?: ConcurrentHashMap.newKeySet()).apply { add(hole) }
+            }
+        }
+
+        return true
+    }
+
+    fun remove(hole: Hole) {
+        holes.remove(hole)
+
+        forEachChunk(hole.positions) { chunkKey ->
+            byChunk.computeIfPresent(chunkKey) { _, bucket ->
+                bucket.remove(hole)
+                bucket.ifEmpty { null }
+            }
+        }
+    }
+
+    /**
+     * Removes all holes intersecting [region]
+     */
+    fun removeIntersecting(region: BlockBox) {
+        val candidates = ArrayList<Hole>()
+
+        forEachChunk(region) { chunkKey ->
+            byChunk[chunkKey]?.filterTo(candidates) { it.positions.intersects(region) }
+        }
+
+        candidates.forEach(::remove)
+    }
+
+    /**
+     * Removes all holes not intersecting [region]
+     */
+    fun retainIntersecting(region: BlockBox) {
+        holes.filter { !it.positions.intersects(region) }.forEach(::remove)
+    }
+
+    /**
+     * Returns if [pos] is part of any hole
+     */
+    fun isInHole(pos: Vec3i): Boolean {
+        val bucket = byChunk[ChunkPos.toLong(pos.x shr 4, pos.z shr 4)] ?: return false
+        return bucket.any { pos in it }
+    }
+
+    fun clear() {
+        holes.clear()
+        byChunk.clear()
+    }
+
+    private inline fun forEachChunk(box: BlockBox, action: (Long) -> Unit) {
+        for (chunkX in box.minX shr 4..box.maxX shr 4) {
+            for (chunkZ in box.minZ shr 4..box.maxZ shr 4) {
+                action(ChunkPos.toLong(chunkX, chunkZ))
+            }
+        }
+    }
+
+}
@@ -84,7 +84,7 @@ object HoleManager : EventListener, MinecraftShortcuts {
 
         with(HoleTracker) {
             // Remove blocks out of the area
-            holes.removeIf { !it.positions.intersects(region) }
+            retainIn(region)
 
             // Update new area
             changedAreas.forEach {
@@ -25,7 +25,6 @@ import net.ccbluex.liquidbounce.utils.block.DIRECTIONS_EXCLUDING_UP
 import net.ccbluex.liquidbounce.utils.block.getState
 import net.ccbluex.liquidbounce.utils.kotlin.getValue
 import net.ccbluex.liquidbounce.utils.math.expendToBlockBox
-import net.ccbluex.liquidbounce.utils.math.iterate
 import net.ccbluex.liquidbounce.utils.math.iterator
 import net.ccbluex.liquidbounce.utils.math.size
 import net.ccbluex.liquidbounce.utils.math.toBlockBox
@@ -37,7 +36,6 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.util.math.Direction
 import net.minecraft.world.chunk.WorldChunk
-import java.util.concurrent.ConcurrentSkipListSet
 
 private const val INDESTRUCTIBLE = (-2).toByte()
 private const val BLAST_RESISTANT = (-1).toByte()
@@ -48,10 +46,28 @@ private const val BREAKABLE = 1.toByte()
 private typealias State = Byte
 private typealias BlockStateBuffer = Long2ByteOpenHashMap
 
+/**
+ * 5 * 7 * 5 block region of a single block update, plus the ring around it read by the checks
+ */
+private const val SMALL_BUFFER_SIZE = 9 * 11 * 9
+
 object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
 
-    val holes = ConcurrentSkipListSet<Hole>()
+    private val index = HoleIndex()
+
+    /**
+     * All detected holes, ordered by [Hole.compareTo]
+     */
+    val holes: Set<Hole>
+        get() = index.holes
+
     private val mutable by ThreadLocal.withInitial(BlockPos::Mutable)
+
+    /**
+     * Reused by [cachedUpdate] for small regions, which are the common case (single block updates)
+     */
+    private val smallBuffer by ThreadLocal.withInitial { BlockStateBuffer(SMALL_BUFFER_SIZE) }
+
     private val BLAST_RESISTANT_BLOCKS: Set<Block> by lazy {
         Registries.BLOCK.filterTo(hashSetOf()) { it.blastResistance >= 600 && it.blastResistance < 3_600_000 }
     }
@@ -64,44 +80,40 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
         get() = false
 
     override fun recordBlock(pos: BlockPos, state: BlockState, cleared: Boolean) {
-        // Invalidate old ones
-        if (state.isAir) {
-            // if one of the neighbor blocks becomes air, invalidate the hole
-            holes.removeIf { it.positions.iterate().any { p -> p.getManhattanDistance(pos) == 1 } }
-        } else {
-            holes.removeIf { pos in it.blockInvalidators }
-        }
-
-        // Check new ones
+        // Invalidate old ones and check new ones.
+        // Every hole next to pos (air) or below pos (blockInvalidators) intersects this region as well.
         val region = pos.expendToBlockBox(2, 3, 2)
         invalidate(region)
         region.cachedUpdate()
     }
 
     private fun invalidate(region: BlockBox) {
-        holes.removeIf { it.positions.intersects(region) }
+        index.removeIntersecting(region)
+    }
+
+    /**
+     * Removes all holes outside of [region]
+     */
+    internal fun retainIn(region: BlockBox) {
+        index.retainIntersecting(region)
     }
 
     @Suppress("CognitiveComplexMethod", "LongMethod", "LoopWithTooManyJumpStatements")
     fun BlockBox.cachedUpdate() {
-        val buffer = BlockStateBuffer(size)
+        val regionSize = size
+        val buffer = if (regionSize <= SMALL_BUFFER_SIZE) {
+            smallBuffer.apply { clear() }
+        } else {
+            BlockStateBuffer(regionSize)
+        }
 
         val mutableLocal = BlockPos.Mutable()
 
         val topY = world.topYInclusive - 2
 
-        val holesInRegion = if (holes.size >= 32) {
-            holes.subSet(
-                Hole(Hole.Type.ONE_ONE, BlockBox(mutableLocal.set(minX - 2, minY - 2, minZ - 2))), true,
-                Hole(Hole.Type.ONE_ONE, BlockBox(mutableLocal.set(maxX + 2, maxY + 2, maxZ + 2))), true
-            )
-        } else {
-            holes
-        }
-
         // Only check positions in this chunk (pos is BlockPos.Mutable)
         for (pos in this) {
-            if (pos.y >= topY || holesInRegion.any { pos in it } || !buffer.checkSameXZ(pos)) {
+            if (pos.y >= topY || index.isInHole(pos) || !buffer.checkSameXZ(pos)) {
                 continue
             }
 
@@ -118,7 +130,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                         cached == INDESTRUCTIBLE
                     }
 
-                    holes += Hole(Hole.Type.ONE_ONE, BlockBox(pos), bedrockOnly)
+                    index.add(Hole(Hole.Type.ONE_ONE, BlockBox(pos), bedrockOnly))
                 }
                 // 1*2
                 3 -> {
@@ -137,7 +149,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                     }
 
                     if (buffer.checkSurroundings(another, checkDirections)) {
-                        holes += Hole(Hole.Type.ONE_TWO, BlockBox.create(pos, another))
+                        index.add(Hole(Hole.Type.ONE_TWO, BlockBox.create(pos, another)))
                     }
                 }
                 // 2*2
@@ -156,7 +168,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                         continue
                     }
 
-                    holes += Hole(Hole.Type.TWO_TWO, BlockBox.create(pos, mutableLocal))
+                    index.add(Hole(Hole.Type.TWO_TWO, BlockBox.create(pos, mutableLocal)))
                 }
             }
         }
@@ -226,7 +238,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
     }
 
     override fun clearAllChunks() {
-        holes.clear()
+        index.clear()
     }
 
 }
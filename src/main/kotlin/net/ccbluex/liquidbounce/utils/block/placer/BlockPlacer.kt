@@ -19,6 +19,7 @@
 package net.ccbluex.liquidbounce.utils.block.placer
 
 import it.unimi.dsi.fastutil.longs.Long2BooleanLinkedOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.ccbluex.fastutil.fastIterator
 import net.ccbluex.liquidbounce.config.types.nesting.Configurable
@@ -195,26 +196,18 @@ class BlockPlacer(
             }
         }
 
-        var supportPath: Set<BlockPos>? = null
-        // find the best path
-        for (entry in blocks.fastIterator()) {
-            val posAsLong = entry.longKey
-            if (posAsLong in inaccessible) continue
-            val pos = blockPosCache.set(posAsLong)
-
-            support.findSupport(pos)?.let { path ->
-                val size = path.size
-                if (supportPath == null || supportPath.size > size) {
-                    supportPath = path
-                }
-
-                // one block is almost the best we can get, so why bother scanning the other blocks
-                if (size <= 1) {
-                    continue
-                }
+        // find the best path for all positions at once
+        val targets = LongArrayList(blocks.size)
+        val iterator = blocks.keys.iterator()
+        while (iterator.hasNext()) {
+            val posAsLong = iterator.nextLong()
+            if (posAsLong !in inaccessible) {
+                targets.add(posAsLong)
             }
         }
 
+        val supportPath = support.findSupport(targets)
+
         // we found the same path again, updating is not required
         if (currentPlaceCandidates == supportPath) {
             currentPlaceCandidates.forEach { blocks.put(it.asLong(), true) }
@@ -238,6 +231,18 @@ class BlockPlacer(
     private fun scheduleCurrentPlacements(itemStack: ItemStack): Boolean {
         var hasPlaced = false
 
+        // The same for every position
+        val searchOptions = BlockPlacementTargetFindingOptions(
+            BlockOffsetOptions(
+                listOf(Vec3i.ZERO),
+                BlockPlacementTargetFindingOptions.PRIORITIZE_LEAST_BLOCK_DISTANCE,
+            ),
+            FaceHandlingOptions(CenterTargetPositionFactory, considerFacingAwayFaces = wallRange > 0),
+            stackToPlaceWith = itemStack,
+            PlayerLocationOnPlacement(position = player.pos),
+        )
+        val targetFinder = BlockPlacementTargetFinder(searchOptions)
+
         for (entry in blocks.fastIterator()) {
             val posAsLong = entry.longKey
 
@@ -245,19 +250,9 @@ class BlockPlacer(
                 continue
             }
 
-            val searchOptions = BlockPlacementTargetFindingOptions(
-                BlockOffsetOptions(
-                    listOf(Vec3i.ZERO),
-                    BlockPlacementTargetFindingOptions.PRIORITIZE_LEAST_BLOCK_DISTANCE,
-                ),
-                FaceHandlingOptions(CenterTargetPositionFactory, considerFacingAwayFaces = wallRange > 0),
-                stackToPlaceWith = itemStack,
-                PlayerLocationOnPlacement(position = player.pos),
-            )
-
             // TODO prioritize faces where sneaking is not required
             val pos = blockPosCache.set(posAsLong)
-            val placementTarget = findBestBlockPlacementTarget(pos, searchOptions) ?: continue
+            val placementTarget = targetFinder.find(pos) ?: continue
 
             // Check if we can reach the target
             if (!canReach(placementTarget.interactedBlockPos, placementTarget.rotation)) {
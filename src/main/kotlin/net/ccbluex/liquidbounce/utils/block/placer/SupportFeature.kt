@@ -18,20 +18,24 @@
  */
 package net.ccbluex.liquidbounce.utils.block.placer
 
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import it.unimi.dsi.fastutil.longs.LongCollection
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.ccbluex.liquidbounce.config.types.nesting.ToggleableConfigurable
 import net.ccbluex.liquidbounce.utils.block.getState
-import net.ccbluex.liquidbounce.utils.block.isBlockedByEntities
 import net.ccbluex.liquidbounce.utils.client.Chronometer
 import net.ccbluex.liquidbounce.utils.collection.Filter
 import net.ccbluex.liquidbounce.utils.math.sq
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Direction
-import java.util.*
+import kotlin.math.abs
 
 // TODO multiple paths a tick if enough placements in none rotation mode
 // TODO support no wall range, proper reach calculations
 // wall range support could be done by taking the angle and, if the face is pointing to the player, exclude
-// TODO cache blocked / allowed spots
 /**
  * Places blocks to support placements.
  */
@@ -51,86 +55,188 @@ class SupportFeature(val placer: BlockPlacer) : ToggleableConfigurable(placer, "
     val blockedPositions = hashSetOf<BlockPos>()
 
     /**
-     * Currently finds the best path of blocks to support the placement of [targetPos] using Dijkstra's algorithm,
-     * the speed can possibly be improved by adding heuristics and making it an A* algorithm.
+     * Finds the best path of blocks to support the placement of any of the [targets].
+     *
+     * @param targets packed block positions
      */
-    @Suppress("detekt:all")
-    fun findSupport(targetPos: BlockPos): Set<BlockPos>? {
-        val rangeSq = placer.range.sq()
+    fun findSupport(targets: LongCollection): Set<BlockPos>? {
+        if (targets.isEmpty()) {
+            return null
+        }
 
-        val openList = PriorityQueue<Node>(Comparator.comparingDouble { it.totalCost })
-        val closedList = hashSetOf<BlockPos>()
+        return searchSupportPath(targets, depth, SupportSearch())
+    }
 
-        val startNode = Node(targetPos, null, 0.0)
-        openList.add(startNode)
+    /**
+     * The world as seen by one search. The checks against the world are memoized, since the paths of
+     * neighbouring targets test the same positions.
+     */
+    private inner class SupportSearch : SupportWorld {
 
-        while (!openList.isEmpty()) {
-            val currentNode = openList.poll()
-            closedList.add(currentNode.position)
+        private val rangeSq = placer.range.sq()
+        private val eyePos = player.eyePos
 
-            // found a possible path
-            if (canPlace(currentNode.position)) {
-                return reconstructPath(currentNode)
+        private val allowed = Long2BooleanOpenHashMap()
+        private val replaceable = Long2BooleanOpenHashMap()
+        private val mutable = BlockPos.Mutable()
+
+        /**
+         * Only entities that can reach into the range are relevant
+         */
+        private val entityBoxes = world.entities
+            .map { it.boundingBox }
+            .filter { it.intersects(player.boundingBox.expand(placer.range + 2.0)) }
+
+        override fun isAllowed(pos: Long): Boolean {
+            if (allowed.containsKey(pos)) {
+                return allowed.get(pos)
             }
 
-            for (direction in Direction.entries) {
-                val neighbor = currentNode.position.offset(direction)
-
-                // skip visited nodes
-                if (closedList.contains(neighbor)) {
-                    continue
-                }
-
-                if (
-                    // don't place helping blocks where the structure will be
-                    blockedPositions.contains(neighbor) ||
-
-                    // exclude blocks where the structure is...
-                    // this useless because we already search the shortest path under all structure blocks?
-                    placer.blocks.keys.contains(neighbor.asLong()) ||
-                    neighbor.getManhattanDistance(targetPos) > depth ||
-                    player.eyePos.squaredDistanceTo(neighbor.toCenterPos()) > rangeSq ||
-                    neighbor.isBlockedByEntities()
-                    ) {
-                    closedList.add(neighbor)
-                    continue
-                }
-
-                val totalCost = currentNode.totalCost + 2.0 // the current total cost and the move cost of two
-                val neighborNode = Node(neighbor, currentNode, totalCost)
-
-                if (!openList.contains(neighborNode) || totalCost < neighborNode.totalCost) {
-                    neighborNode.totalCost = totalCost
-                    neighborNode.parent = currentNode
-
-                    if (!openList.contains(neighborNode)) {
-                        openList.add(neighborNode)
-                    }
-                }
+            mutable.set(pos)
+
+            val isAllowed = !(
+                // don't place helping blocks where the structure will be
+                mutable in blockedPositions ||
+
+                // exclude blocks where the structure is...
+                // this useless because we already search the shortest path under all structure blocks?
+                placer.blocks.containsKey(pos) ||
+                eyePos.squaredDistanceTo(mutable.toCenterPos()) > rangeSq ||
+                isBlockedByEntities(mutable)
+            )
+
+            allowed.put(pos, isAllowed)
+
+            return isAllowed
+        }
+
+        private fun isBlockedByEntities(pos: BlockPos): Boolean {
+            val x = pos.x.toDouble()
+            val y = pos.y.toDouble()
+            val z = pos.z.toDouble()
+
+            return entityBoxes.any { it.intersects(x, y, z, x + 1.0, y + 1.0, z + 1.0) }
+        }
+
+        override fun isReplaceable(pos: Long): Boolean {
+            if (replaceable.containsKey(pos)) {
+                return replaceable.get(pos)
             }
+
+            return mutable.set(pos).getState()!!.isReplaceable.also { replaceable.put(pos, it) }
         }
 
-        // no path found
-        return null
     }
 
-    private fun reconstructPath(currentNode: Node): Set<BlockPos> {
-        var node: Node? = currentNode
-        val path = mutableSetOf<BlockPos>()
-        while (node != null) {
-            path.add(node.position)
-            node = node.parent
+}
+
+/**
+ * The checks [searchSupportPath] needs from the world
+ */
+internal interface SupportWorld {
+
+    /**
+     * Whether a helping block may be placed at [pos]
+     */
+    fun isAllowed(pos: Long): Boolean
+
+    fun isReplaceable(pos: Long): Boolean
+
+}
+
+/**
+ * Searches the shortest path of helping blocks from any of the [targets] to a position a block can be placed
+ * against. The returned path contains the target it starts at.
+ *
+ * All targets are searched at once, starting from all of them. Every move costs the same, so the breadth-first
+ * order is the same as Dijkstra's algorithm and the first placeable position ends the cheapest path overall.
+ * A position is visited once per target it is reached from, so every target may expand through positions within
+ * its own [depth], even if another target reached them first. This finds the same path length as searching every
+ * target on its own.
+ *
+ * @param targets packed block positions
+ */
+internal fun searchSupportPath(targets: LongCollection, depth: Int, world: SupportWorld): Set<BlockPos>? {
+    // The nodes, a node is a position reached from one target
+    val positions = LongArrayList()
+    val origins = IntArrayList()
+    val parents = IntArrayList()
+
+    // The visited positions, by the index of the target they were reached from
+    val targetPositions = LongArrayList(targets.size)
+    val distinctTargets = LongOpenHashSet(targets.size)
+    val visited = ArrayList<LongOpenHashSet>(targets.size)
+
+    val openList = IntArrayFIFOQueue()
+
+    fun addNode(pos: Long, origin: Int, parent: Int) {
+        openList.enqueue(positions.size)
+        positions.add(pos)
+        origins.add(origin)
+        parents.add(parent)
+    }
+
+    val iterator = targets.iterator()
+    while (iterator.hasNext()) {
+        val target = iterator.nextLong()
+
+        if (!distinctTargets.add(target)) {
+            continue
         }
-        return path
+
+        addNode(target, targetPositions.size, NO_NODE)
+        targetPositions.add(target)
+        visited.add(LongOpenHashSet().apply { add(target) })
     }
 
-    private fun canPlace(pos: BlockPos): Boolean {
-        val cache = BlockPos.Mutable()
-        return Direction.entries.any {
-            !cache.set(pos, it).getState()!!.isReplaceable
+    while (!openList.isEmpty) {
+        val node = openList.dequeueInt()
+        val current = positions.getLong(node)
+
+        // found a possible path
+        if (DIRECTIONS.any { direction -> !world.isReplaceable(BlockPos.offset(current, direction)) }) {
+            return reconstructPath(positions, parents, node)
         }
+
+        val origin = origins.getInt(node)
+        val originPos = targetPositions.getLong(origin)
+        val visitedFromOrigin = visited[origin]
+
+        for (direction in DIRECTIONS) {
+            val neighbor = BlockPos.offset(current, direction)
+
+            if (manhattanDistance(neighbor, originPos) > depth || !visitedFromOrigin.add(neighbor)) {
+                continue
+            }
+
+            if (world.isAllowed(neighbor)) {
+                addNode(neighbor, origin, node)
+            }
+        }
+    }
+
+    // no path found
+    return null
+}
+
+private fun reconstructPath(positions: LongArrayList, parents: IntArrayList, end: Int): Set<BlockPos> {
+    val path = mutableSetOf<BlockPos>()
+    var node = end
+
+    while (node != NO_NODE) {
+        path.add(BlockPos.fromLong(positions.getLong(node)))
+        node = parents.getInt(node)
     }
 
+    return path
 }
 
-private data class Node(val position: BlockPos, var parent: Node? = null, var totalCost: Double)
+private val DIRECTIONS = Direction.entries.toTypedArray()
+
+private const val NO_NODE = -1
+
+private fun manhattanDistance(a: Long, b: Long): Int {
+    return abs(BlockPos.unpackLongX(a) - BlockPos.unpackLongX(b)) +
+        abs(BlockPos.unpackLongY(a) - BlockPos.unpackLongY(b)) +
+        abs(BlockPos.unpackLongZ(a) - BlockPos.unpackLongZ(b))
+}
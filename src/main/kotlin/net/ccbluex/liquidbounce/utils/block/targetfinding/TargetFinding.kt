@@ -37,9 +37,12 @@ import net.minecraft.item.ItemStack
 import net.minecraft.util.hit.BlockHitResult
 import net.minecraft.util.hit.HitResult
 import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
 import net.minecraft.util.math.Direction
 import net.minecraft.util.math.Vec3d
 import net.minecraft.util.math.Vec3i
+import net.minecraft.util.shape.VoxelShape
+import java.util.concurrent.ConcurrentHashMap
 
 enum class AimMode(override val choiceName: String) : NamedChoice {
     CENTER("Center"),
@@ -130,9 +133,14 @@ data class BlockTargetPlan(
      * cosine of the angle between the expected player's eye position and the normal of the targeted face.
      */
     fun calculateAngleToPlayerEyeCosine(playerPos: Vec3d): Double {
-        val deltaToPlayerPos = playerPos
-            .add(0.0, mc.player!!.standingEyeHeight.toDouble(), 0.0)
-            .subtract(targetPositionOnBlock)
+        return calculateAngleToEyeCosine(playerPos.add(0.0, mc.player!!.standingEyeHeight.toDouble(), 0.0))
+    }
+
+    /**
+     * cosine of the angle between [eyePos] and the normal of the targeted face.
+     */
+    fun calculateAngleToEyeCosine(eyePos: Vec3d): Double {
+        val deltaToPlayerPos = eyePos.subtract(targetPositionOnBlock)
 
         return deltaToPlayerPos.dotProduct(Vec3d.of(interactionDirection.vector)) / deltaToPlayerPos.length()
     }
@@ -144,37 +152,53 @@ enum class BlockTargetingMode {
     REPLACE_EXISTING_BLOCK
 }
 
+/**
+ * What the player will see on placement, shared by all targets which are searched with the same options.
+ */
+private class PlacementView(options: BlockPlacementTargetFindingOptions) {
+
+    /**
+     * The eye position on placement when standing, used to choose the face
+     */
+    val standingEyePos: Vec3d = options.playerLocationOnPlacement.position.add(
+        0.0,
+        player.standingEyeHeight.toDouble(),
+        0.0
+    )
+
+    /**
+     * The eye position on placement in the expected pose, used to calculate the rotation
+     */
+    val eyePos: Vec3d = options.playerLocationOnPlacement.position.add(
+        0.0,
+        player.getEyeHeight(options.playerLocationOnPlacement.pose).toDouble(),
+        0.0
+    )
+}
+
 private fun findBestTargetPlanForTargetPosition(
     posToInvestigate: BlockPos,
     mode: BlockTargetingMode,
-    targetFindingOptions: BlockPlacementTargetFindingOptions
+    targetFindingOptions: BlockPlacementTargetFindingOptions,
+    view: PlacementView,
+    currentRotation: Rotation
 ): BlockTargetPlan? {
-    val directions = Direction.entries
-
-    val options = directions.mapNotNull { direction ->
+    val options = DIRECTIONS.mapNotNull { direction ->
         val targetPlan =
             getTargetPlanForPositionAndDirection(posToInvestigate, direction, mode)
                 ?: return@mapNotNull null
 
         // Check if the target face is pointing away from the player
         if (!targetFindingOptions.faceHandlingOptions.considerFacingAwayFaces &&
-            targetPlan.calculateAngleToPlayerEyeCosine(targetFindingOptions.playerLocationOnPlacement.position) < 0) {
+            targetPlan.calculateAngleToEyeCosine(view.standingEyePos) < 0) {
             return@mapNotNull null
         }
 
         return@mapNotNull targetPlan
     }
 
-    val currentRotation = RotationManager.serverRotation
-
-    val playerEyePositionOnPlacement = targetFindingOptions.playerLocationOnPlacement.position.add(
-        0.0,
-        player.standingEyeHeight.toDouble(),
-        0.0
-    )
-
     return options.minByOrNull {
-        val targetRotation = Rotation.lookingAt(point = it.targetPositionOnBlock, from = playerEyePositionOnPlacement)
+        val targetRotation = Rotation.lookingAt(point = it.targetPositionOnBlock, from = view.standingEyePos)
 
         currentRotation.angleTo(targetRotation)
     }
@@ -207,21 +231,115 @@ fun getTargetPlanForPositionAndDirection(
 
 class PointOnFace(val face: AlignedFace, val point: Vec3d)
 
+/**
+ * A face of an outline shape, together with the part of it which should be searched for a point to aim at.
+ */
+data class CandidateFace(val face: AlignedFace, val searchFace: AlignedFace)
+
+/**
+ * The faces of an outline shape per direction.
+ *
+ * Most outline shapes only depend on the block state, so the faces are kept per [BlockState]
+ * and only computed again when the state returns a different shape, as offset or context dependent blocks do.
+ */
+class ShapeFaces(val shape: VoxelShape) {
+
+    // Computed up front, so the instance is immutable and can be shared between threads
+    private val faces = shape.boundingBoxes.let { boxes ->
+        Array(DIRECTIONS.size) { computeFaces(boxes, DIRECTIONS[it]) }
+    }
+
+    fun towards(direction: Direction): List<CandidateFace> = faces[direction.ordinal]
+
+    companion object {
+
+        private val cache = ConcurrentHashMap<BlockState, ShapeFaces>()
+
+        fun of(state: BlockState, pos: BlockPos): ShapeFaces {
+            val shape = state.getOutlineShape(world, pos, ShapeContext.of(player))
+            val cached = cache[state]
+
+            if (cached != null && cached.shape === shape) {
+                return cached
+            }
+
+            return ShapeFaces(shape).also { cache[state] = it }
+        }
+
+        @JvmStatic
+        fun computeFaces(boxes: List<Box>, direction: Direction): List<CandidateFace> = boxes.map {
+            val face = it.getFace(direction)
+
+            var searchFace = face
+
+            // Try to aim at the upper portion of the block which makes it easier to switch from full blocks to
+            // half blocks
+            if (searchFace.to.y >= 0.9) {
+                searchFace = searchFace.truncateY(0.6).requireNonEmpty() ?: face
+            }
+
+            CandidateFace(face, searchFace)
+        }
+
+    }
+
+}
+
+private val DIRECTIONS = Direction.entries.toTypedArray()
+
+/**
+ * The positions around [pos] to investigate, highest priority first.
+ * Every offset is added to [pos] once, instead of on every comparison.
+ */
+internal fun BlockOffsetOptions.sortedPositionsAround(pos: BlockPos): List<BlockPos> {
+    if (offsetsToInvestigate.size == 1) {
+        return listOf(pos.add(offsetsToInvestigate[0]))
+    }
+
+    val positions = Array(offsetsToInvestigate.size) { pos.add(offsetsToInvestigate[it]) }
+
+    // Sort DESCENDING!
+    positions.sortWith { a, b -> priorityComparator.compare(b, a) }
+
+    return positions.asList()
+}
+
 fun findBestBlockPlacementTarget(pos: BlockPos, options: BlockPlacementTargetFindingOptions): BlockPlacementTarget? {
+    return BlockPlacementTargetFinder(options).find(pos)
+}
+
+/**
+ * Finds the best placement targets of many positions, all seen from the same player location on placement,
+ * so the eye positions are only resolved once instead of for every position.
+ *
+ * Each target is only found when it is requested, so it sees the blocks placed for the previous ones.
+ * A finder should not be kept beyond the current tick.
+ */
+class BlockPlacementTargetFinder(private val options: BlockPlacementTargetFindingOptions) {
+
+    private val view = PlacementView(options)
+
+    /**
+     * @return the same target as [findBestBlockPlacementTarget]
+     */
+    fun find(pos: BlockPos): BlockPlacementTarget? = findBestBlockPlacementTarget(pos, options, view)
+
+}
+
+private fun findBestBlockPlacementTarget(
+    pos: BlockPos,
+    options: BlockPlacementTargetFindingOptions,
+    view: PlacementView
+): BlockPlacementTarget? {
     val state = pos.getState()!!
+    val currentRotation = RotationManager.serverRotation
 
     // We cannot place blocks when there is already a block at that position
     if (isBlockSolid(state, pos)) {
         return null
     }
 
-    val offsetsToInvestigate = options.offsetOptions.offsetsToInvestigate.sortedWith { a, b ->
-        // Sort DESCENDING!
-        options.offsetOptions.priorityComparator.compare(b.add(pos), a.add(pos))
-    }
-
-    for (offset in offsetsToInvestigate) {
-        val posToInvestigate = pos.add(offset)
+    for (posToInvestigate in options.offsetOptions.sortedPositionsAround(pos)) {
         val blockStateToInvestigate = posToInvestigate.getState()!!
 
         // Already a block in that position?
@@ -246,7 +364,13 @@ fun findBestBlockPlacementTarget(pos: BlockPos, options: BlockPlacementTargetFin
         }
 
         // Find the best plan to do the placement
-        val targetPlan = findBestTargetPlanForTargetPosition(posToInvestigate, targetMode, options) ?: continue
+        val targetPlan = findBestTargetPlanForTargetPosition(
+            posToInvestigate,
+            targetMode,
+            options,
+            view,
+            currentRotation
+        ) ?: continue
 
         val currPos = targetPlan.blockPosToInteractWith
 
@@ -256,11 +380,7 @@ fun findBestBlockPlacementTarget(pos: BlockPos, options: BlockPlacementTargetFin
 
         val rotation = Rotation.lookingAt(
             point = pointOnFace.point.add(Vec3d.of(currPos)),
-            from = options.playerLocationOnPlacement.position.add(
-                0.0,
-                player.getEyeHeight(options.playerLocationOnPlacement.pose).toDouble(),
-                0.0
-            )
+            from = view.eyePos
         )
 
         return BlockPlacementTarget(
@@ -281,18 +401,9 @@ private fun findTargetPointOnFace(
     targetPlan: BlockTargetPlan,
     options: BlockPlacementTargetFindingOptions
 ): PointOnFace? {
-    val shapeBBs = currState.getOutlineShape(world, currPos, ShapeContext.of(player)).boundingBoxes
-
-    val face = shapeBBs.mapNotNull {
-        val face = it.getFace(targetPlan.interactionDirection)
-
-        var searchFace = face
-
-        // Try to aim at the upper portion of the block which makes it easier to switch from full blocks to half blocks
-        if (searchFace.to.y >= 0.9) {
-            searchFace = searchFace.truncateY(0.6).requireNonEmpty() ?: face
-        }
+    val faces = ShapeFaces.of(currState, currPos).towards(targetPlan.interactionDirection)
 
+    val face = faces.mapNotNull { (face, searchFace) ->
         val targetPos = options.faceHandlingOptions.facePositionFactory.producePositionOnFace(searchFace, currPos)
             ?: return@mapNotNull null
 
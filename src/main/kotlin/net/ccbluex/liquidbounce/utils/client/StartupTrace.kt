@@ -0,0 +1,134 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.client
+
+import com.google.gson.stream.JsonWriter
+import java.io.File
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Records timed spans of the client startup, such as each phase and each module, command, script
+ * and config, and writes them as Chrome trace (`chrome://tracing`, Perfetto) once the client is initialized.
+ *
+ * Spans may be recorded from any thread, each thread becomes a track of the trace.
+ */
+object StartupTrace {
+
+    const val PHASE = "phase"
+    const val MODULE = "module"
+    const val COMMAND = "command"
+    const val SCRIPT = "script"
+    const val CONFIG = "config"
+
+    private val origin = System.nanoTime()
+
+    @Volatile
+    var recording = true
+        private set
+
+    private val spans = ConcurrentLinkedQueue<Span>()
+
+    private class Span(
+        val name: String,
+        val category: String,
+        val startNanos: Long,
+        val durationNanos: Long,
+        val threadId: Long,
+        val threadName: String
+    )
+
+    inline fun <T> span(name: String, category: String = PHASE, block: () -> T): T {
+        if (!recording) {
+            return block()
+        }
+
+        val startNanos = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(name, category, startNanos, System.nanoTime() - startNanos)
+        }
+    }
+
+    @PublishedApi
+    internal fun record(name: String, category: String, startNanos: Long, durationNanos: Long) {
+        val thread = Thread.currentThread()
+        spans += Span(name, category, startNanos - origin, durationNanos, thread.threadId(), thread.name)
+    }
+
+    /**
+     * Nanoseconds since the trace started
+     */
+    fun elapsedNanos() = System.nanoTime() - origin
+
+    /**
+     * Stops recording and writes the trace to [file]. Spans still running on other threads are not included.
+     */
+    fun finish(file: File) {
+        if (!recording) {
+            return
+        }
+        recording = false
+
+        val spans = spans.toList()
+
+        runCatching {
+            JsonWriter(file.bufferedWriter()).use { writer -> writeTrace(writer, spans) }
+        }.onSuccess {
+            logger.info("Wrote startup trace with ${spans.size} spans to ${file.name}.")
+        }.onFailure {
+            logger.error("Failed to write startup trace.", it)
+        }
+
+        this.spans.clear()
+    }
+
+    private fun writeTrace(writer: JsonWriter, spans: List<Span>) {
+        writer.beginObject()
+        writer.name("displayTimeUnit").value("ms")
+        writer.name("traceEvents").beginArray()
+
+        // Name the tracks after their threads
+        for ((threadId, threadName) in spans.associate { it.threadId to it.threadName }) {
+            writer.beginObject()
+            writer.name("name").value("thread_name")
+            writer.name("ph").value("M")
+            writer.name("pid").value(1)
+            writer.name("tid").value(threadId)
+            writer.name("args").beginObject().name("name").value(threadName).endObject()
+            writer.endObject()
+        }
+
+        for (span in spans) {
+            writer.beginObject()
+            writer.name("name").value(span.name)
+            writer.name("cat").value(span.category)
+            writer.name("ph").value("X")
+            writer.name("ts").value(span.startNanos / 1e3)
+            writer.name("dur").value(span.durationNanos / 1e3)
+            writer.name("pid").value(1)
+            writer.name("tid").value(span.threadId)
+            writer.endObject()
+        }
+
+        writer.endArray()
+        writer.endObject()
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.collection
+
+/**
+ * A binary min-heap of `long` elements ordered by an `int` priority, without boxing either.
+ *
+ * Elements are not deduplicated. To lower the priority of an element, enqueue it again
+ * and skip the outdated entry once it is dequeued.
+ */
+class LongPriorityHeap(initialCapacity: Int = 16) {
+
+    private val initialCapacity = initialCapacity.coerceAtLeast(1)
+
+    private var elements = LongArray(this.initialCapacity)
+    private var priorities = IntArray(this.initialCapacity)
+
+    var size = 0
+        private set
+
+    fun isEmpty() = size == 0
+
+    fun enqueue(element: Long, priority: Int) {
+        if (size == elements.size) {
+            elements = elements.copyOf(size shl 1)
+            priorities = priorities.copyOf(size shl 1)
+        }
+
+        var index = size++
+        while (index > 0) {
+            val parent = (index - 1) ushr 1
+            if (priorities[parent] <= priority) {
+                break
+            }
+
+            elements[index] = elements[parent]
+            priorities[index] = priorities[parent]
+            index = parent
+        }
+
+        elements[index] = element
+        priorities[index] = priority
+    }
+
+    /**
+     * Removes and returns the element with the lowest priority
+     */
+    fun dequeue(): Long {
+        check(size > 0) { "Heap is empty" }
+
+        val first = elements[0]
+        val last = --size
+        if (last == 0) {
+            return first
+        }
+
+        val element = elements[last]
+        val priority = priorities[last]
+
+        var index = 0
+        while (true) {
+            var child = (index shl 1) + 1
+            if (child >= last) {
+                break
+            }
+            if (child + 1 < last && priorities[child + 1] < priorities[child]) {
+                child++
+            }
+            if (priority <= priorities[child]) {
+                break
+            }
+
+            elements[index] = elements[child]
+            priorities[index] = priorities[child]
+            index = child
+        }
+
+        elements[index] = element
+        priorities[index] = priority
+
+        return first
+    }
+
+    /**
+     * Removes all elements. Arrays which grew beyond the initial capacity are shrunk back to it,
+     * so a reused heap does not keep the size of its largest use forever.
+     */
+    fun clear() {
+        size = 0
+
+        if (elements.size > initialCapacity) {
+            elements = LongArray(initialCapacity)
+            priorities = IntArray(initialCapacity)
+        }
+    }
+
+}
@@ -1,8 +1,13 @@
 package net.ccbluex.liquidbounce.utils.entity
 
 import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.BlockChangeEvent
+import net.ccbluex.liquidbounce.event.events.ChunkDeltaUpdateEvent
+import net.ccbluex.liquidbounce.event.events.ChunkLoadEvent
+import net.ccbluex.liquidbounce.event.events.ChunkUnloadEvent
 import net.ccbluex.liquidbounce.event.events.GameTickEvent
 import net.ccbluex.liquidbounce.event.events.MovementInputEvent
+import net.ccbluex.liquidbounce.event.events.WorldChangeEvent
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.utils.client.player
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.CRITICAL_MODIFICATION
@@ -10,6 +15,7 @@ import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.FIRST_PRIOR
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.MODEL_STATE
 import net.ccbluex.liquidbounce.utils.movement.DirectionalInput
 import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3d
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.locks.ReentrantReadWriteLock
@@ -17,12 +23,69 @@ import kotlin.concurrent.read
 import kotlin.concurrent.write
 
 object PlayerSimulationCache: EventListener {
+    private const val REVALIDATION_EPSILON = 1.0E-4
+
     private val otherPlayerCache = ConcurrentHashMap<PlayerEntity, SimulatedPlayerCache>()
     private var localPlayerCache: SimulatedPlayerCache? = null
 
+    /**
+     * Keeps the simulations of other players across ticks. A simulation stays valid as long as the
+     * player moved exactly as it predicted, the input we would guess for them did not change
+     * and the world did not change around the simulated ticks, so it only has to be shifted by one tick
+     * instead of being rebuilt.
+     */
     @Suppress("unused")
     private val gameTickHandler = handler<GameTickEvent>(priority = FIRST_PRIORITY) {
-        this.otherPlayerCache.clear()
+        for (entry in this.otherPlayerCache.entries) {
+            val advanced = revalidate(entry.key, entry.value)
+
+            if (advanced == null) {
+                this.otherPlayerCache.remove(entry.key, entry.value)
+            } else {
+                entry.setValue(advanced)
+            }
+        }
+    }
+
+    /**
+     * The simulations were run against the world as it was, so they are dropped when it changes around them
+     */
+    private fun invalidate(box: Box) {
+        otherPlayerCache.values.removeIf { it.intersects(box) }
+    }
+
+    private fun invalidateChunk(chunkX: Int, chunkZ: Int) {
+        val minX = (chunkX shl 4).toDouble()
+        val minZ = (chunkZ shl 4).toDouble()
+
+        invalidate(Box(minX, Double.NEGATIVE_INFINITY, minZ, minX + 16.0, Double.POSITIVE_INFINITY, minZ + 16.0))
+    }
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        if (otherPlayerCache.isNotEmpty()) {
+            invalidate(Box(event.blockPos))
+        }
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        invalidateChunk(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaUpdateHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        invalidateChunk(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkUnloadHandler = handler<ChunkUnloadEvent> { event ->
+        invalidateChunk(event.pos.x, event.pos.z)
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        otherPlayerCache.clear()
     }
 
     @Suppress("unused")
@@ -65,6 +128,37 @@ object PlayerSimulationCache: EventListener {
         localPlayerCache = SimulatedPlayerCache(simulatedPlayer)
     }
 
+    /**
+     * Returns [cache] if [player] has not ticked since it was built, the simulation shifted by one tick if
+     * [player] ticked once and is still where it predicted, or `null` if it has to be rebuilt.
+     */
+    private fun revalidate(player: PlayerEntity, cache: SimulatedPlayerCache): SimulatedPlayerCache? {
+        if (player.isRemoved ||
+            player.yaw != cache.simulatedPlayer.yaw ||
+            !SimulatedPlayer.SimulatedPlayerInput.guessInput(player).matches(cache.simulatedPlayer.input)) {
+            return null
+        }
+
+        return when (player.age) {
+            // Built after the world ticked during the last tick
+            cache.age -> cache.takeIf { player.pos == it.getPosAt(0) }
+            cache.age + 1 -> {
+                if (!cache.canAdvance()) {
+                    return null
+                }
+
+                val predictedPos = cache.getPosAt(1)
+                val predictedMovement = predictedPos.subtract(cache.getPosAt(0))
+
+                cache.advance().takeIf {
+                    player.pos.isInRange(predictedPos, REVALIDATION_EPSILON) &&
+                        player.pos.subtract(player.prevPos).isInRange(predictedMovement, REVALIDATION_EPSILON)
+                }
+            }
+            else -> null
+        }
+    }
+
     fun getSimulationForOtherPlayers(player: PlayerEntity): SimulatedPlayerCache {
         return otherPlayerCache.computeIfAbsent(player) {
             val simulatedPlayer = SimulatedPlayer.fromOtherPlayer(
@@ -72,7 +166,18 @@ object PlayerSimulationCache: EventListener {
                 SimulatedPlayer.SimulatedPlayerInput.guessInput(player)
             )
 
-            SimulatedPlayerCache(simulatedPlayer)
+            SimulatedPlayerCache(simulatedPlayer, player.age)
+        }
+    }
+
+    /**
+     * Simulates all [players] [ticks] ticks ahead, for callers which are about to step through all
+     * of them tick by tick. Simulations kept from earlier ticks only simulate the ticks they are
+     * missing. The result is in the order of [players].
+     */
+    fun simulateOtherPlayers(players: List<PlayerEntity>, ticks: Int): List<SimulatedPlayerCache> {
+        return players.map { player ->
+            getSimulationForOtherPlayers(player).also { it.simulateUntil(ticks) }
         }
     }
 
@@ -95,35 +200,61 @@ object PlayerSimulationCache: EventListener {
     }
 }
 
-class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
-    private var currentSimulationStep = 0
-    private val simulationSteps = ArrayList<SimulatedPlayerSnapshot>().apply {
-        add(SimulatedPlayerSnapshot(simulatedPlayer))
-    }
-    private val lock = ReentrantReadWriteLock()
+/**
+ * The simulation of a player, starting at [origin] ticks into a [SimulationTrack]. Shifting it by a tick with
+ * [advance] shares the track, so the ticks simulated so far are kept.
+ */
+class SimulatedPlayerCache private constructor(
+    private val track: SimulationTrack,
+    private val origin: Int,
+    /**
+     * The age of the simulated entity this simulation starts at
+     */
+    internal val age: Int
+) {
+
+    constructor(simulatedPlayer: SimulatedPlayer, age: Int = 0) : this(SimulationTrack(simulatedPlayer), 0, age)
+
+    internal val simulatedPlayer: SimulatedPlayer
+        get() = track.simulatedPlayer
+
+    /**
+     * Whether a change of the world within [box] might change the simulated ticks
+     */
+    internal fun intersects(box: Box) = track.intersects(box)
+
+    /**
+     * Whether the simulation has already stepped one tick ahead and may still be shifted by [advance]
+     */
+    internal fun canAdvance() = origin < MAX_ORIGIN && track.simulatedTicks > origin
+
+    /**
+     * Returns this simulation starting one tick later
+     */
+    internal fun advance() = SimulatedPlayerCache(track, origin + 1, age + 1)
 
     fun simulateUntil(ticks: Int) {
         check(ticks >= 0) { "ticks may not be negative" }
 
-        if (currentSimulationStep >= ticks) {
-            return
-        }
+        track.simulateUntil(origin + ticks)
+    }
 
-        lock.write {
-            while (currentSimulationStep < ticks) {
-                simulatedPlayer.tick()
-                simulationSteps.add(SimulatedPlayerSnapshot(simulatedPlayer))
+    fun getSnapshotAt(ticks: Int): SimulatedPlayerSnapshot {
+        simulateUntil(ticks)
 
-                this.currentSimulationStep++
-            }
+        return track.lock.read {
+            track.snapshotAt(origin + ticks)
         }
     }
 
-    fun getSnapshotAt(ticks: Int): SimulatedPlayerSnapshot {
+    /**
+     * Same as `getSnapshotAt(ticks).pos`, without building the snapshot
+     */
+    fun getPosAt(ticks: Int): Vec3d {
         simulateUntil(ticks)
 
-        lock.read {
-            return simulationSteps[ticks]
+        return track.lock.read {
+            track.positionAt(origin + ticks)
         }
     }
 
@@ -138,17 +269,17 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
     }
 
     fun getSnapshotsBetween(tickRange: IntRange): List<SimulatedPlayerSnapshot> {
-        check(tickRange.last < 60 * 20) { "tried to simulate a player for more than a minute!" }
+        check(tickRange.last < MAX_TICKS) { "tried to simulate a player for more than a minute!" }
 
         simulateUntil(tickRange.last + 1)
 
-        return lock.read {
-            ArrayList(simulationSteps.subList(tickRange.first, tickRange.last + 1))
+        return track.lock.read {
+            tickRange.map { track.snapshotAt(origin + it) }
         }
     }
 
     fun simulateBetween(tickRange: IntRange): Sequence<SimulatedPlayerSnapshot> {
-        check(tickRange.last < 60 * 20) { "tried to simulate a player for more than a minute!" }
+        check(tickRange.last < MAX_TICKS) { "tried to simulate a player for more than a minute!" }
 
         simulateUntil(tickRange.last + 1)
 
@@ -159,6 +290,131 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
         }
     }
 
+    private companion object {
+        const val MAX_TICKS = 60 * 20
+
+        /**
+         * How often a simulation may be shifted before it is rebuilt. This bounds the recorded ticks, and how old
+         * the state of things which do not invalidate a simulation, such as other entities, may be.
+         */
+        const val MAX_ORIGIN = 20
+    }
+
+}
+
+/**
+ * The ticks simulated by a [SimulatedPlayer], stored column-wise instead of one snapshot object per tick.
+ * The Vec3d instances are immutable and shared with the simulated player,
+ * so recording a tick only copies references and primitives.
+ */
+internal class SimulationTrack(internal val simulatedPlayer: SimulatedPlayer) {
+    internal val lock = ReentrantReadWriteLock()
+
+    @Volatile
+    internal var simulatedTicks = 0
+        private set
+
+    private var positions = arrayOfNulls<Vec3d>(INITIAL_CAPACITY)
+    private var velocities = arrayOfNulls<Vec3d>(INITIAL_CAPACITY)
+    private var fallDistances = FloatArray(INITIAL_CAPACITY)
+    private var flags = ByteArray(INITIAL_CAPACITY)
+
+    /**
+     * Bounds of all blocks the simulated ticks may have collided with
+     */
+    private var minX = Double.POSITIVE_INFINITY
+    private var minY = Double.POSITIVE_INFINITY
+    private var minZ = Double.POSITIVE_INFINITY
+    private var maxX = Double.NEGATIVE_INFINITY
+    private var maxY = Double.NEGATIVE_INFINITY
+    private var maxZ = Double.NEGATIVE_INFINITY
+
+    init {
+        record(0)
+    }
+
+    /**
+     * Whether a change of the world within these bounds might change the simulated ticks
+     */
+    internal fun intersects(box: Box) = lock.read {
+        box.intersects(minX, minY, minZ, maxX, maxY, maxZ)
+    }
+
+    internal fun simulateUntil(ticks: Int) {
+        if (simulatedTicks >= ticks) {
+            return
+        }
+
+        lock.write {
+            ensureCapacity(ticks + 1)
+
+            while (simulatedTicks < ticks) {
+                simulatedPlayer.tick()
+
+                record(simulatedTicks + 1)
+                this.simulatedTicks++
+            }
+        }
+    }
+
+    private fun record(tick: Int) {
+        val pos = simulatedPlayer.pos
+
+        minX = minOf(minX, pos.x - COLLISION_MARGIN)
+        minY = minOf(minY, pos.y - COLLISION_MARGIN)
+        minZ = minOf(minZ, pos.z - COLLISION_MARGIN)
+        maxX = maxOf(maxX, pos.x + COLLISION_MARGIN)
+        maxY = maxOf(maxY, pos.y + PLAYER_HEIGHT + COLLISION_MARGIN)
+        maxZ = maxOf(maxZ, pos.z + COLLISION_MARGIN)
+
+        positions[tick] = pos
+        velocities[tick] = simulatedPlayer.velocity
+        fallDistances[tick] = simulatedPlayer.fallDistance
+
+        var flags = 0
+        if (simulatedPlayer.onGround) flags = flags or ON_GROUND
+        if (simulatedPlayer.clipLedged) flags = flags or CLIP_LEDGED
+        this.flags[tick] = flags.toByte()
+    }
+
+    private fun ensureCapacity(size: Int) {
+        if (size <= positions.size) {
+            return
+        }
+
+        val newSize = maxOf(size, positions.size shl 1)
+        positions = positions.copyOf(newSize)
+        velocities = velocities.copyOf(newSize)
+        fallDistances = fallDistances.copyOf(newSize)
+        flags = flags.copyOf(newSize)
+    }
+
+    internal fun positionAt(tick: Int) = positions[tick]!!
+
+    internal fun snapshotAt(tick: Int): SimulatedPlayerSnapshot {
+        val flags = flags[tick].toInt()
+
+        return SimulatedPlayerSnapshot(
+            positions[tick]!!,
+            fallDistances[tick],
+            velocities[tick]!!,
+            (flags and ON_GROUND) != 0,
+            (flags and CLIP_LEDGED) != 0
+        )
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 32
+
+        /**
+         * Half the width of a player plus the blocks next to it, which are tested for collisions and stepping
+         */
+        const val COLLISION_MARGIN = 1.5
+        const val PLAYER_HEIGHT = 1.8
+
+        const val ON_GROUND = 1
+        const val CLIP_LEDGED = 2
+    }
 }
 
 data class SimulatedPlayerSnapshot(
@@ -182,7 +438,7 @@ data class SimulatedPlayerSnapshot(
  */
 class CachedPlayerSimulation(val simulatedPlayer: SimulatedPlayerCache): PlayerSimulation {
     override val pos: Vec3d
-        get() = this.simulatedPlayer.getSnapshotAt(this.ticks).pos
+        get() = this.simulatedPlayer.getPosAt(this.ticks)
 
     private var ticks = 0
 
@@ -52,6 +52,6 @@ class PlayerSimulationExtrapolation(private val simulation: SimulatedPlayerCache
 
     override fun getPositionInTicks(ticks: Double): Vec3d {
         val ticks = max(0, round(ticks.coerceAtMost(30.0)).toInt())
-        return this.simulation.getSnapshotAt(ticks).pos
+        return this.simulation.getPosAt(ticks)
     }
 }
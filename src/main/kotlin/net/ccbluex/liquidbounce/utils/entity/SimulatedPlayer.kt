@@ -23,6 +23,7 @@ package net.ccbluex.liquidbounce.utils.entity
 import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap
 import net.ccbluex.liquidbounce.event.EventManager.callEvent
+import net.ccbluex.liquidbounce.event.EventManager.firstRunningHook
 import net.ccbluex.liquidbounce.event.events.PlayerMoveEvent
 import net.ccbluex.liquidbounce.event.events.PlayerSafeWalkEvent
 import net.ccbluex.liquidbounce.utils.block.getBlock
@@ -175,25 +176,18 @@ class SimulatedPlayer(
 
         val d: Vec3d = this.velocity
 
-        var h = d.x
-        var i = d.y
-        var j = d.z
-
-        if (abs(d.x) < 0.003) {
-            h = 0.0
-        }
-        if (abs(d.y) < 0.003) {
-            i = 0.0
-        }
-        if (abs(d.z) < 0.003) {
-            j = 0.0
+        if (abs(d.x) < 0.003 || abs(d.y) < 0.003 || abs(d.z) < 0.003) {
+            this.velocity = Vec3d(
+                if (abs(d.x) < 0.003) 0.0 else d.x,
+                if (abs(d.y) < 0.003) 0.0 else d.y,
+                if (abs(d.z) < 0.003) 0.0 else d.z
+            )
         }
+
         if (onGround) {
             this.isFallFlying = false
         }
 
-        this.velocity = Vec3d(h, i, j)
-
         if (this.isJumping) {
             val k = if (this.isInLava()) this.getFluidHeight(FluidTags.LAVA) else this.getFluidHeight(FluidTags.WATER)
             val bl = this.isTouchingWater() && k > 0.0
@@ -405,8 +399,12 @@ class SimulatedPlayer(
     private fun getMovementSpeed(): Float = 0.10000000149011612.toFloat()
 
     private fun move(input: Vec3d) {
-        val event = callEvent(PlayerMoveEvent(MovementType.SELF, input))
-        val vec3d = event.movement
+        val firstHook = firstRunningHook(PlayerMoveEvent::class.java)
+        val vec3d = if (firstHook != null) {
+            callEvent(PlayerMoveEvent(MovementType.SELF, input), firstHook).movement
+        } else {
+            input
+        }
 
         val movement = this.adjustMovementForSneaking(vec3d)
         val adjustedMovement = this.adjustMovementForCollisions(movement)
@@ -446,7 +444,7 @@ class SimulatedPlayer(
 
     private fun adjustMovementForCollisions(movement: Vec3d): Vec3d {
         val bl4: Boolean
-        val box: Box = Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3).offset(this.pos)
+        val box = Box(pos.x - 0.3, pos.y, pos.z - 0.3, pos.x + 0.3, pos.y + 1.8, pos.z + 0.3)
 
         val entityCollisionList = emptyList<VoxelShape>()
 
@@ -915,6 +913,17 @@ class SimulatedPlayer(
             }
         }
 
+        /**
+         * Whether [other] would move a player the same way as this input
+         */
+        fun matches(other: SimulatedPlayerInput): Boolean {
+            return directionalInput == other.directionalInput &&
+                sprinting == other.sprinting &&
+                playerInput.jump == other.playerInput.jump &&
+                playerInput.sneak == other.playerInput.sneak &&
+                forceSafeWalk == other.forceSafeWalk
+        }
+
         override fun toString(): String {
             return "SimulatedPlayerInput(forwards={${this.playerInput.forward}}, backwards={${this.playerInput.backward}}, left={${this.playerInput.left}}, right={${this.playerInput.right}}, jumping={${this.playerInput.jump}}, sprinting=$sprinting, slowDown=${playerInput.sneak})"
         }
@@ -19,8 +19,15 @@
 
 package net.ccbluex.liquidbounce.utils.io
 
+import java.io.File
+import java.io.FileOutputStream
 import java.io.IOException
+import java.io.OutputStream
 import java.io.RandomAccessFile
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
 
 /**
  * Skips the current line in the file.
@@ -49,3 +56,30 @@ fun RandomAccessFile.skipLine(): Long {
 
     return read
 }
+
+/**
+ * Writes the file through a temporary sibling which then replaces it,
+ * so readers and crashes only ever see the old or the complete new content.
+ */
+@Throws(IOException::class)
+fun File.writeAtomically(write: (OutputStream) -> Unit) {
+    val temp = File(absoluteFile.parentFile, "$name.tmp")
+
+    try {
+        FileOutputStream(temp).use { stream ->
+            val buffered = stream.buffered()
+            write(buffered)
+            buffered.flush()
+            stream.fd.sync()
+        }
+
+        try {
+            Files.move(temp.toPath(), toPath(), ATOMIC_MOVE, REPLACE_EXISTING)
+        } catch (_: AtomicMoveNotSupportedException) {
+            Files.move(temp.toPath(), toPath(), REPLACE_EXISTING)
+        }
+    } finally {
+        // Only left over if writing failed
+        temp.delete()
+    }
+}
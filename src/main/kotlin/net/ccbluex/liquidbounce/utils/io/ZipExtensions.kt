@@ -25,6 +25,9 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
 import java.io.File
 import java.io.InputStream
+import java.util.zip.CRC32
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
 
 /**
  * Extracts an [ArchiveInputStream] to a specified [folder]
@@ -71,6 +74,38 @@ fun extractZip(zipStream: InputStream, folder: File) =
  */
 fun extractZip(zipFile: File, folder: File) = extractZip(zipFile.inputStream(), folder)
 
+/**
+ * Reads every entry of a ZIP file and compares it with the CRC-32 stored in the archive,
+ * so a truncated or corrupted archive is noticed before anything is extracted from it.
+ *
+ * @throws ZipException if the archive is not valid
+ */
+fun verifyZip(zipFile: File) = ZipFile(zipFile).use { zip ->
+    val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+    val crc = CRC32()
+
+    for (entry in zip.entries()) {
+        if (entry.isDirectory) {
+            continue
+        }
+
+        crc.reset()
+        zip.getInputStream(entry).use { stream ->
+            while (true) {
+                val read = stream.read(buffer)
+                if (read < 0) {
+                    break
+                }
+                crc.update(buffer, 0, read)
+            }
+        }
+
+        if (entry.crc != -1L && crc.value != entry.crc) {
+            throw ZipException("CRC mismatch of entry ${entry.name}")
+        }
+    }
+}
+
 /**
  * Creates a ZIP file from multiple files
  */
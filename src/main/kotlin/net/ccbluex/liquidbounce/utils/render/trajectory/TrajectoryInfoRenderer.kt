@@ -115,15 +115,30 @@ class TrajectoryInfoRenderer(
         }
     }
 
+    /**
+     * The state the simulation starts from, used to tell whether a previous simulation can be reused.
+     */
+    val startPos: Vec3d = pos.copy()
+    val startVelocity: Vec3d = velocity.copy()
+
     private val velocity = velocity.copy() // Used as mutable
     private val pos = pos.copy() // Used as mutable
 
     private val hitbox = trajectoryInfo.hitbox()
     private val mutableBlockPos = BlockPos.Mutable()
 
+    /**
+     * Encloses every block and entity the last simulation has looked at.
+     * Its result stays valid as long as nothing changes within these bounds.
+     */
+    var sweptBounds: Box? = null
+        private set
+
     fun runSimulation(
         maxTicks: Int,
     ): SimulationResult {
+        sweptBounds = null
+
         val positions = mutableListOf<Vec3d>()
         val prevPos = pos.copy()
         var currTicks = 0
@@ -171,6 +186,10 @@ class TrajectoryInfoRenderer(
         posBefore: Vec3d,
         posAfter: Vec3d
     ): Pair<HitResult, Vec3d?>? {
+        val entitySearchBox = hitbox.offset(pos).stretch(velocity).expand(1.0)
+        val segmentBounds = Box(posBefore, posAfter).union(entitySearchBox)
+        sweptBounds = sweptBounds?.union(segmentBounds) ?: segmentBounds
+
         val blockHitResult = world.raycast(
             RaycastContext(
                 posBefore,
@@ -189,13 +208,9 @@ class TrajectoryInfoRenderer(
             owner,
             posBefore,
             posAfter,
-            hitbox.offset(pos).stretch(velocity).expand(1.0)
-        ) {
-            val canCollide = !it.isSpectator && it.isAlive
-            val shouldCollide = it.canHit() || owner !== player && it === player
-
-            return@getEntityCollision canCollide && shouldCollide && !owner.isConnectedThroughVehicle(it)
-        }
+            entitySearchBox,
+            ::canHit
+        )
 
         return if (entityHitResult != null && entityHitResult.type != HitResult.Type.MISS) {
             val hitPos = entityHitResult.entity.box.expand(trajectoryInfo.hitboxRadius).raycast(posBefore, posAfter)
@@ -206,15 +221,37 @@ class TrajectoryInfoRenderer(
         }
     }
 
+    /**
+     * Whether the projectile would collide with [entity]
+     */
+    fun canHit(entity: Entity): Boolean {
+        val canCollide = !entity.isSpectator && entity.isAlive
+        val shouldCollide = entity.canHit() || owner !== player && entity === player
+
+        return canCollide && shouldCollide && !owner.isConnectedThroughVehicle(entity)
+    }
+
     fun drawTrajectoryForProjectile(
         maxTicks: Int,
         event: WorldRenderEvent,
         trajectoryColor: Color4b,
         blockHitColor: Color4b?,
         entityHitColor: Color4b?,
-    ): SimulationResult {
-        val simulationResult = runSimulation(maxTicks)
+    ): SimulationResult = drawTrajectoryForProjectile(
+        runSimulation(maxTicks),
+        event,
+        trajectoryColor,
+        blockHitColor,
+        entityHitColor
+    )
 
+    fun drawTrajectoryForProjectile(
+        simulationResult: SimulationResult,
+        event: WorldRenderEvent,
+        trajectoryColor: Color4b,
+        blockHitColor: Color4b?,
+        entityHitColor: Color4b?,
+    ): SimulationResult {
         val (landingPosition, positions) = simulationResult
 
         drawTrajectoryForProjectile(positions, trajectoryColor, event.matrixStack)
@@ -0,0 +1,170 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.render.trajectory
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.BlockChangeEvent
+import net.ccbluex.liquidbounce.event.events.ChunkDeltaUpdateEvent
+import net.ccbluex.liquidbounce.event.events.ChunkLoadEvent
+import net.ccbluex.liquidbounce.event.events.ChunkUnloadEvent
+import net.ccbluex.liquidbounce.event.events.WorldChangeEvent
+import net.ccbluex.liquidbounce.event.handler
+import net.ccbluex.liquidbounce.utils.client.world
+import net.minecraft.util.hit.EntityHitResult
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.Vec3d
+
+/**
+ * Keeps the trajectory simulations of the last frame, so they are not run again every frame.
+ *
+ * A simulation is reused as long as its projectile starts from the same state. Within the tick it was run in
+ * the world is the same, except for block changes which remove it. In later ticks it is only reused
+ * if it did not hit an entity and no entity it could hit has moved into its [TrajectoryInfoRenderer.sweptBounds].
+ */
+class TrajectorySimulationCache(private val parent: EventListener) : EventListener {
+
+    private class Entry(
+        val trajectoryInfo: TrajectoryInfo,
+        val maxTicks: Int,
+        val startPos: Vec3d,
+        val startVelocity: Vec3d,
+        val result: TrajectoryInfoRenderer.SimulationResult,
+        val bounds: Box,
+        val worldTime: Long
+    ) {
+        var used = true
+
+        fun matches(renderer: TrajectoryInfoRenderer, maxTicks: Int) =
+            this.maxTicks == maxTicks &&
+                trajectoryInfo == renderer.trajectoryInfo &&
+                startPos == renderer.startPos &&
+                startVelocity == renderer.startVelocity
+    }
+
+    /**
+     * Keyed by the projectile, or by the owner for hypothetical trajectories
+     */
+    private val entries = Object2ObjectOpenHashMap<Any, Entry>()
+
+    var hits = 0
+        private set
+    var misses = 0
+        private set
+
+    /**
+     * Returns the simulation of [renderer], reusing the one of [key] if it is still valid.
+     */
+    fun simulate(key: Any, renderer: TrajectoryInfoRenderer, maxTicks: Int): TrajectoryInfoRenderer.SimulationResult {
+        val entry = entries[key]
+
+        if (entry != null && entry.matches(renderer, maxTicks) && isStillValid(entry, renderer)) {
+            entry.used = true
+            hits++
+            return entry.result
+        }
+
+        misses++
+        val result = renderer.runSimulation(maxTicks)
+        val bounds = renderer.sweptBounds ?: Box(renderer.startPos, renderer.startPos)
+
+        entries[key] = Entry(
+            renderer.trajectoryInfo,
+            maxTicks,
+            renderer.startPos,
+            renderer.startVelocity,
+            result,
+            bounds,
+            world.time
+        )
+
+        return result
+    }
+
+    private fun isStillValid(entry: Entry, renderer: TrajectoryInfoRenderer): Boolean {
+        if (entry.worldTime == world.time) {
+            return true
+        }
+
+        if (entry.result.hitResult is EntityHitResult) {
+            return false
+        }
+
+        return world.getOtherEntities(renderer.owner, entry.bounds, renderer::canHit).isEmpty()
+    }
+
+    /**
+     * Forgets the simulations which were not requested since the last call,
+     * such as the ones of projectiles that are gone.
+     */
+    fun evictUnused() {
+        entries.values.removeIf { entry ->
+            val unused = !entry.used
+            entry.used = false
+            unused
+        }
+    }
+
+    fun clear() {
+        entries.clear()
+        hits = 0
+        misses = 0
+    }
+
+    private fun invalidate(box: Box) {
+        entries.values.removeIf { it.bounds.intersects(box) }
+    }
+
+    private fun invalidateChunk(chunkX: Int, chunkZ: Int) {
+        val minX = (chunkX shl 4).toDouble()
+        val minZ = (chunkZ shl 4).toDouble()
+
+        invalidate(Box(minX, Double.NEGATIVE_INFINITY, minZ, minX + 16.0, Double.POSITIVE_INFINITY, minZ + 16.0))
+    }
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        if (entries.isNotEmpty()) {
+            invalidate(Box(event.blockPos))
+        }
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        invalidateChunk(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaUpdateHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        invalidateChunk(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkUnloadHandler = handler<ChunkUnloadEvent> { event ->
+        invalidateChunk(event.pos.x, event.pos.z)
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        entries.clear()
+    }
+
+    override fun parent() = parent
+
+}
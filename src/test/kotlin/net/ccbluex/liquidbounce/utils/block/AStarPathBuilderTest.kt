@@ -0,0 +1,86 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3i
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+/**
+ * Runs [AStarPathBuilder] on a synthetic world instead of the client world.
+ */
+class AStarPathBuilderTest {
+
+    private class SyntheticWorld(
+        override val allowDiagonal: Boolean,
+        private val blocked: Set<Long>,
+        override val maxSearchNanos: Long = Long.MAX_VALUE,
+    ) : AStarPathBuilder {
+        override val stopRange: Double get() = 0.5
+
+        override val Vec3i.isPassable: Boolean
+            get() = y == 0 && BlockPos.asLong(x, y, z) !in blocked
+    }
+
+    /**
+     * A wall along x = 5 from z = -3 to z = 3
+     */
+    private val wall = (-3..3).mapTo(hashSetOf()) { z -> BlockPos.asLong(5, 0, z) }
+
+    @Test
+    fun `finds straight path without obstacles`() {
+        val path = SyntheticWorld(false, emptySet()).findPath(Vec3i(0, 0, 0), Vec3i(8, 0, 0), 1000)
+
+        assertEquals((1..8).map { BlockPos(it, 0, 0) }, path)
+    }
+
+    @Test
+    fun `walks around a wall`() {
+        val end = Vec3i(8, 0, 0)
+        val path = SyntheticWorld(false, wall).findPath(Vec3i(0, 0, 0), end, 1000)
+
+        assertEquals(end, path.last())
+        assertTrue(path.none { BlockPos.asLong(it.x, it.y, it.z) in wall })
+
+        // Every step is a single horizontal move, as diagonals are disabled and the world is flat
+        path.zipWithNext().forEach { (a, b) -> assertEquals(1, a.getManhattanDistance(b)) }
+    }
+
+    @Test
+    fun `respects the cost limit`() {
+        val path = SyntheticWorld(true, wall).findPath(Vec3i(0, 0, 0), Vec3i(8, 0, 0), 10)
+
+        assertTrue(path.isEmpty())
+    }
+
+    @Test
+    fun `gives up when the time budget is spent`() {
+        val start = Vec3i(0, 0, 0)
+        val end = Vec3i(50, 0, 0)
+
+        assertEquals(end, SyntheticWorld(false, emptySet()).findPath(start, end, 10_000).last())
+
+        // The budget is checked every few iterations, the path is longer than that
+        val path = SyntheticWorld(false, emptySet(), maxSearchNanos = 0L).findPath(start, end, 10_000)
+        assertTrue(path.isEmpty())
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.block
+
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+class ChunkIndexedTrackerTest {
+
+    private class Tracker : AbstractBlockLocationTracker.ChunkIndexed<String>() {
+        override fun getStateFor(pos: BlockPos, state: BlockState): String? = null
+    }
+
+    private lateinit var tracker: Tracker
+
+    @BeforeEach
+    fun setup() {
+        tracker = Tracker()
+    }
+
+    private fun Tracker.snapshot() = iterate().associate { (pos, state) -> pos.toImmutable() to state }
+
+    @Test
+    fun `track and untrack`() {
+        assertTrue(tracker.isEmpty())
+
+        tracker.track(BlockPos(1, 64, 1), "a")
+        tracker.track(BlockPos(-1, 64, -1), "b")
+        assertFalse(tracker.isEmpty())
+        assertEquals(mapOf(BlockPos(1, 64, 1) to "a", BlockPos(-1, 64, -1) to "b"), tracker.snapshot())
+
+        assertTrue(tracker.untrack(BlockPos(1, 64, 1)))
+        assertFalse(tracker.untrack(BlockPos(1, 64, 1)))
+        assertTrue(tracker.untrack(BlockPos(-1, 64, -1)))
+        assertTrue(tracker.isEmpty())
+    }
+
+    @Test
+    fun `tracking again replaces the state`() {
+        tracker.track(BlockPos(3, 10, 3), "a")
+        tracker.track(BlockPos(3, 10, 3), "b")
+
+        assertEquals(mapOf(BlockPos(3, 10, 3) to "b"), tracker.snapshot())
+    }
+
+    @Test
+    fun `clear chunk only removes its positions`() {
+        tracker.track(BlockPos(0, 0, 0), "a")
+        tracker.track(BlockPos(15, 255, 15), "a")
+        tracker.track(BlockPos(16, 0, 0), "b")
+        tracker.track(BlockPos(-1, 0, 0), "c")
+
+        tracker.clearChunk(ChunkPos(0, 0))
+
+        assertEquals(mapOf(BlockPos(16, 0, 0) to "b", BlockPos(-1, 0, 0) to "c"), tracker.snapshot())
+        assertEquals(2, tracker.allPositions().count())
+    }
+
+    @Test
+    fun `iterate chunk range`() {
+        for (chunkX in -2..2) {
+            for (chunkZ in -2..2) {
+                tracker.track(BlockPos(chunkX * 16 + 8, 70, chunkZ * 16 + 8), "$chunkX,$chunkZ")
+            }
+        }
+
+        assertEquals(listOf("0,0"), tracker.iterateChunk(ChunkPos(0, 0)).map { it.value }.toList())
+        assertEquals(9, tracker.iterateChunk(ChunkPos(1, 1), ChunkPos(-1, -1)).count())
+        assertEquals(0, tracker.iterateChunk(ChunkPos(5, 5)).count())
+    }
+
+    @Test
+    fun `clear all chunks`() {
+        tracker.track(BlockPos(100, 0, 100), "a")
+        tracker.track(BlockPos(-100, 0, -100), "b")
+
+        tracker.clearAllChunks()
+
+        assertTrue(tracker.isEmpty())
+        assertEquals(0, tracker.allPositions().count())
+    }
+
+}
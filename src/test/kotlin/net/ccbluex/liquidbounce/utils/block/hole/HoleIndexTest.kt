@@ -0,0 +1,108 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.block.hole
+
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import java.util.concurrent.ConcurrentSkipListSet
+import kotlin.random.Random
+
+/**
+ * Compares [HoleIndex] with the plain `removeIf` scans it replaces.
+ */
+class HoleIndexTest {
+
+    private val random = Random(1337)
+
+    private fun randomHole(): Hole {
+        val x = random.nextInt(-64, 64)
+        val y = random.nextInt(-16, 16)
+        val z = random.nextInt(-64, 64)
+
+        return when (random.nextInt(3)) {
+            0 -> Hole(Hole.Type.ONE_ONE, BlockBox(BlockPos(x, y, z)))
+            1 -> Hole(Hole.Type.ONE_TWO, BlockBox.create(BlockPos(x, y, z), BlockPos(x + 1, y, z)))
+            else -> Hole(Hole.Type.TWO_TWO, BlockBox.create(BlockPos(x, y, z), BlockPos(x + 1, y, z + 1)))
+        }
+    }
+
+    private fun randomRegion(): BlockBox {
+        val pos = BlockPos(random.nextInt(-64, 64), random.nextInt(-16, 16), random.nextInt(-64, 64))
+        return BlockBox(pos.x - 2, pos.y - 3, pos.z - 2, pos.x + 2, pos.y + 3, pos.z + 2)
+    }
+
+    @Test
+    fun `remove intersecting matches removeIf`() {
+        val index = HoleIndex()
+        val reference = ConcurrentSkipListSet<Hole>()
+
+        repeat(10_000) {
+            if (random.nextInt(4) == 0) {
+                val region = randomRegion()
+                index.removeIntersecting(region)
+                reference.removeIf { it.positions.intersects(region) }
+            } else {
+                val hole = randomHole()
+                assertEquals(reference.add(hole), index.add(hole))
+            }
+
+            assertEquals(reference.toList(), index.holes.toList())
+        }
+    }
+
+    @Test
+    fun `retain intersecting matches removeIf`() {
+        val index = HoleIndex()
+        val reference = ConcurrentSkipListSet<Hole>()
+
+        repeat(2_000) {
+            val hole = randomHole()
+            index.add(hole)
+            reference.add(hole)
+        }
+
+        val region = BlockBox(-20, -16, -20, 20, 16, 20)
+        index.retainIntersecting(region)
+        reference.removeIf { !it.positions.intersects(region) }
+
+        assertEquals(reference.toList(), index.holes.toList())
+    }
+
+    @Test
+    fun `is in hole matches linear scan`() {
+        val index = HoleIndex()
+
+        repeat(2_000) {
+            index.add(randomHole())
+        }
+
+        repeat(10_000) {
+            val pos = BlockPos(random.nextInt(-66, 66), random.nextInt(-16, 16), random.nextInt(-66, 66))
+            assertEquals(index.holes.any { pos in it }, index.isInHole(pos))
+        }
+
+        index.clear()
+        assertTrue(index.holes.isEmpty())
+        assertFalse(index.isInHole(BlockPos.ORIGIN))
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block.placer
+
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import net.minecraft.util.math.BlockPos
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Test
+
+/**
+ * Runs [searchSupportPath] on a synthetic world instead of the client world.
+ */
+class SupportPathSearchTest {
+
+    /**
+     * Everything is air, helping blocks may only be placed at [allowed]
+     */
+    private class SyntheticWorld(
+        private val allowed: Set<BlockPos>,
+        private val solid: Set<BlockPos>,
+    ) : SupportWorld {
+        override fun isAllowed(pos: Long) = BlockPos.fromLong(pos) in allowed
+
+        override fun isReplaceable(pos: Long) = BlockPos.fromLong(pos) !in solid
+    }
+
+    private fun targets(vararg positions: BlockPos) = LongArrayList(positions.map(BlockPos::asLong))
+
+    @Test
+    fun `finds the shortest path over all targets`() {
+        val far = BlockPos(-10, 0, 0)
+        val near = BlockPos(0, 0, 0)
+        val world = SyntheticWorld(
+            allowed = (-9..1).mapTo(hashSetOf()) { BlockPos(it, 0, 0) },
+            solid = setOf(BlockPos(2, 0, 0)),
+        )
+
+        val path = searchSupportPath(targets(far, near), 4, world)
+
+        assertEquals(setOf(near, BlockPos(1, 0, 0)), path)
+    }
+
+    @Test
+    fun `expands through positions another target reached first`() {
+        val first = BlockPos(0, 0, 0)
+        val second = BlockPos(0, 0, 2)
+
+        // Both targets reach the shared position in one step, the first target claims it first.
+        // The placeable end is within the depth of the second target only.
+        val shared = BlockPos(0, 0, 1)
+        val corner = BlockPos(1, 0, 1)
+        val end = BlockPos(1, 1, 1)
+
+        val world = SyntheticWorld(
+            allowed = setOf(shared, corner, end),
+            solid = setOf(BlockPos(1, 2, 1)),
+        )
+
+        val path = searchSupportPath(targets(first, second), 2, world)
+
+        assertEquals(setOf(second, shared, corner, end), path)
+    }
+
+    @Test
+    fun `respects the depth of every target`() {
+        val world = SyntheticWorld(
+            allowed = (1..5).mapTo(hashSetOf()) { BlockPos(it, 0, 0) },
+            solid = setOf(BlockPos(6, 0, 0)),
+        )
+
+        assertNull(searchSupportPath(targets(BlockPos(0, 0, 0)), 4, world))
+        assertEquals(6, searchSupportPath(targets(BlockPos(0, 0, 0)), 5, world)?.size)
+    }
+
+}
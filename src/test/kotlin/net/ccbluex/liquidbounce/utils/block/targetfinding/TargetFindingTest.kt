@@ -0,0 +1,120 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.block.targetfinding
+
+import net.ccbluex.liquidbounce.utils.client.getFace
+import net.ccbluex.liquidbounce.utils.math.geometry.AlignedFace
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.Direction
+import net.minecraft.util.math.Vec3i
+import net.minecraft.util.shape.VoxelShapes
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+
+/**
+ * Compares the cached face geometry and the presorted offsets with the computations they replace.
+ */
+class TargetFindingTest {
+
+    private val random = Random(1337)
+
+    private val shapes = listOf(
+        VoxelShapes.fullCube(),
+        VoxelShapes.empty(),
+        // Bottom and top slab
+        VoxelShapes.cuboid(0.0, 0.0, 0.0, 1.0, 0.5, 1.0),
+        VoxelShapes.cuboid(0.0, 0.5, 0.0, 1.0, 1.0, 1.0),
+        // Stairs
+        VoxelShapes.union(
+            VoxelShapes.cuboid(0.0, 0.0, 0.0, 1.0, 0.5, 1.0),
+            VoxelShapes.cuboid(0.0, 0.5, 0.5, 1.0, 1.0, 1.0)
+        ),
+        // Fence post
+        VoxelShapes.cuboid(0.375, 0.0, 0.375, 0.625, 1.0, 0.625),
+        // Carpet
+        VoxelShapes.cuboid(0.0, 0.0, 0.0, 1.0, 0.0625, 1.0)
+    )
+
+    /**
+     * The faces as they were computed for every candidate before
+     */
+    private fun referenceFaces(boxes: List<Box>, direction: Direction) = boxes.map {
+        val face = it.getFace(direction)
+
+        var searchFace = face
+
+        if (searchFace.to.y >= 0.9) {
+            searchFace = searchFace.truncateY(0.6).requireNonEmpty() ?: face
+        }
+
+        face to searchFace
+    }
+
+    private fun assertFaceEquals(expected: AlignedFace, actual: AlignedFace) {
+        assertEquals(expected.from, actual.from)
+        assertEquals(expected.to, actual.to)
+    }
+
+    @Test
+    fun testShapeFacesMatchReference() {
+        for (shape in shapes) {
+            val shapeFaces = ShapeFaces(shape)
+
+            for (direction in Direction.entries) {
+                val expected = referenceFaces(shape.boundingBoxes, direction)
+
+                // Twice, the second time from the cache
+                repeat(2) {
+                    val actual = shapeFaces.towards(direction)
+
+                    assertEquals(expected.size, actual.size)
+                    expected.zip(actual).forEach { (reference, candidate) ->
+                        assertFaceEquals(reference.first, candidate.face)
+                        assertFaceEquals(reference.second, candidate.searchFace)
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun testSortedPositionsMatchReference() {
+        val target = Vec3i(3, 64, -7)
+        // Ties are frequent, so the order of equal offsets is compared as well
+        val comparator = compareBy<Vec3i> { it.getManhattanDistance(target) }
+
+        repeat(1000) {
+            val pos = BlockPos(random.nextInt(-16, 16), random.nextInt(50, 80), random.nextInt(-16, 16))
+            val offsets = List(random.nextInt(1, 30)) {
+                Vec3i(random.nextInt(-2, 3), random.nextInt(-2, 3), random.nextInt(-2, 3))
+            }
+            val options = BlockOffsetOptions(offsets, comparator)
+
+            val expected = offsets.sortedWith { a, b ->
+                comparator.compare(b.add(pos), a.add(pos))
+            }.map { pos.add(it) }
+
+            assertEquals(expected, options.sortedPositionsAround(pos))
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.collection
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import kotlin.random.Random
+
+class LongPriorityHeapTest {
+
+    @Test
+    fun `dequeues in priority order`() {
+        val random = Random(42)
+        val heap = LongPriorityHeap(1)
+        val priorities = IntArray(1000) { random.nextInt(-500, 500) }
+
+        priorities.forEachIndexed { index, priority -> heap.enqueue(index.toLong(), priority) }
+        assertEquals(priorities.size, heap.size)
+
+        val dequeued = IntArray(priorities.size) { priorities[heap.dequeue().toInt()] }
+
+        assertEquals(priorities.sorted(), dequeued.toList())
+        assertTrue(heap.isEmpty())
+    }
+
+    @Test
+    fun `dequeue on empty heap throws`() {
+        val heap = LongPriorityHeap()
+        heap.enqueue(1L, 1)
+        heap.clear()
+
+        assertThrows<IllegalStateException> { heap.dequeue() }
+    }
+
+    @Test
+    fun `is reusable after clearing a grown heap`() {
+        val heap = LongPriorityHeap(2)
+        repeat(100) { heap.enqueue(it.toLong(), -it) }
+        heap.clear()
+
+        heap.enqueue(7L, 3)
+        heap.enqueue(5L, 1)
+        heap.enqueue(6L, 2)
+
+        assertEquals(listOf(5L, 6L, 7L), List(3) { heap.dequeue() })
+        assertTrue(heap.isEmpty())
+    }
+
+}